@@ -18,8 +18,10 @@ package com.atlascopco.literumilo;
 import javax.swing.text.JTextComponent;
 
 import com.atlascopco.literumilo.spellchecker.Spellchecker;
+import com.atlascopco.literumilo.spellchecker.SuggestionCache;
 import com.atlascopco.literumilo.tokenizer.DefaultTokenizer;
 import com.atlascopco.literumilo.tokenizer.Tokenizer;
+import com.atlascopco.literumilo.ui.SpellcheckExecutor;
 import com.atlascopco.literumilo.ui.SpellcheckedComponent;
 
 /**
@@ -37,6 +39,15 @@ public class Literumilo {
 	 * The {@link Spellchecker} to use to perform the spell-checking.
 	 */
 	private static Spellchecker spellchecker;
+	/**
+	 * The {@link SpellcheckExecutor} that the registered components run their background checks on,
+	 * created the first time a component is registered.
+	 */
+	private static SpellcheckExecutor executor;
+	/**
+	 * The {@link SuggestionCache} that the registered components share.
+	 */
+	private static final SuggestionCache suggestionCache = new SuggestionCache();
 
 	/**
 	 * This method will activate spell-checking underlining on a component and
@@ -63,6 +74,8 @@ public class Literumilo {
 		}
 
 		SpellcheckedComponent spellcheckedComponent = new SpellcheckedComponent(component, spellchecker, tokenizer, registerMenus);
+		spellcheckedComponent.setExecutor(getExecutor());
+		spellcheckedComponent.setSuggestionCache(suggestionCache);
 
 		// Initialize the component.
 		spellcheckedComponent.initialize();
@@ -87,6 +100,40 @@ public class Literumilo {
 		Literumilo.spellchecker = spellchecker;
 	}
 
+	/**
+	 * Set the number of threads that the registered components share for their background checks.
+	 * By default there is one per processor.
+	 *
+	 * @param threads the number of threads to use
+	 */
+	public static void setCheckingThreads(int threads) {
+		getExecutor().setThreadCount(threads);
+	}
+
+	/**
+	 * Get the {@link SpellcheckExecutor} that the registered components run their background
+	 * checks on, creating it if necessary.
+	 *
+	 * @return the {@link SpellcheckExecutor} in use
+	 */
+	public static synchronized SpellcheckExecutor getExecutor() {
+		if ( executor == null ) {
+			executor = new SpellcheckExecutor();
+		}
+
+		return executor;
+	}
+
+	/**
+	 * Get the {@link SuggestionCache} that the registered components share.  If words are added to
+	 * or removed from a dictionary, the suggestions cached for it should be invalidated.
+	 *
+	 * @return the shared {@link SuggestionCache}
+	 */
+	public static SuggestionCache getSuggestionCache() {
+		return suggestionCache;
+	}
+
 	/**
 	 * Get the {@link Tokenizer} that is currently being used to tokenize text.
 	 * @return the {@link Tokenizer} currently in use
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * This is an abstract implementation of the {@link Spellchecker} interface.  It takes care of
+ * keeping track of the {@link DictionaryChangeListener}s, and checks batches of words by checking
+ * them one at a time.  Implementers that can check a batch more efficiently than that should
+ * override {@link #misspelled(List)}.
+ *
+ * It also {@link #misspelled(Spellchecker, List) checks batches} for any {@link Spellchecker},
+ * whether or not it is a {@link BatchSpellchecker}.
+ *
+ * @author Thomas Joiner
+ */
+public abstract class AbstractSpellchecker implements BatchSpellchecker {
+
+	/**
+	 * We hold only weak references to the listeners since the lifetime of the {@link Spellchecker}
+	 * will ostensibly last the whole program, however more than likely, the components it spell-checks
+	 * will be created and destroyed.
+	 */
+	private final List<WeakReference<DictionaryChangeListener>> listeners = new ArrayList<WeakReference<DictionaryChangeListener>>();
+
+	@Override
+	public BitSet misspelled(List<String> words) {
+		BitSet misspelled = new BitSet(words.size());
+
+		for (int i = 0; i < words.size(); i++) {
+			if ( this.misspelled(words.get(i)) ) {
+				misspelled.set(i);
+			}
+		}
+
+		return misspelled;
+	}
+
+	/**
+	 * Checks a batch of words with any {@link Spellchecker}, as a single batch if it is a
+	 * {@link BatchSpellchecker} and one word at a time otherwise.
+	 *
+	 * @param spellchecker the {@link Spellchecker} to check the words with
+	 * @param words the words to check
+	 * @return a {@link BitSet} with the indices of the misspelled words set
+	 */
+	public static BitSet misspelled(Spellchecker spellchecker, List<String> words) {
+		if ( spellchecker instanceof BatchSpellchecker ) {
+			return ((BatchSpellchecker) spellchecker).misspelled(words);
+		}
+
+		BitSet misspelled = new BitSet(words.size());
+
+		for (int i = 0; i < words.size(); i++) {
+			if ( spellchecker.misspelled(words.get(i)) ) {
+				misspelled.set(i);
+			}
+		}
+
+		return misspelled;
+	}
+
+	@Override
+	public void addDictionaryChangeListener(DictionaryChangeListener listener) {
+		synchronized (this.listeners) {
+			this.listeners.add(new WeakReference<DictionaryChangeListener>(listener));
+		}
+	}
+
+	@Override
+	public void removeDictionaryChangeListener(DictionaryChangeListener listener) {
+		synchronized (this.listeners) {
+			for (Iterator<WeakReference<DictionaryChangeListener>> iterator = this.listeners.iterator(); iterator.hasNext();) {
+				WeakReference<DictionaryChangeListener> weakReference = iterator.next();
+
+				if ( weakReference.get() == null || weakReference.get().equals(listener) ) {
+					iterator.remove();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Notifies all of the registered listeners that the dictionary has changed.
+	 */
+	protected void fireDictionaryChange() {
+		List<DictionaryChangeListener> toNotify = new ArrayList<DictionaryChangeListener>();
+
+		synchronized (this.listeners) {
+			for (Iterator<WeakReference<DictionaryChangeListener>> iterator = this.listeners.iterator(); iterator.hasNext();) {
+				DictionaryChangeListener listener = iterator.next().get();
+
+				if ( listener == null ) {
+					iterator.remove();
+				} else {
+					toNotify.add(listener);
+				}
+			}
+		}
+
+		// Notify outside of the lock, since the listeners may well end up calling back into us.
+		for (DictionaryChangeListener listener : toNotify) {
+			listener.dictionaryChanged();
+		}
+	}
+}
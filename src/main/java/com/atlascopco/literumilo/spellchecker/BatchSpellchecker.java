@@ -0,0 +1,37 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * This interface is implemented by the {@link Spellchecker}s that can check a batch of words
+ * more cheaply than checking them one at a time.  The words of a {@link Spellchecker} that does
+ * not implement it are checked one at a time instead, see
+ * {@link AbstractSpellchecker#misspelled(Spellchecker, List)}.
+ *
+ * @author Thomas Joiner
+ */
+public interface BatchSpellchecker extends Spellchecker {
+	/**
+	 * This method will check a batch of words to see which of them are misspelled.
+	 *
+	 * @param words the words to check
+	 * @return a {@link BitSet} with the indices of the misspelled words set
+	 */
+	public BitSet misspelled(List<String> words);
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class is a Bloom filter of words: a set that can say for certain that a word is not in it,
+ * but that only knows that a word is probably in it, at the cost of a few bits per word.
+ *
+ * It is sized for a number of words and a rate of false positives.  Once it holds that many words
+ * it stops accepting more, so that the rate of false positives stays where it was meant to be.
+ * Words can be added and looked up by any number of threads at once, and neither allocates
+ * anything.
+ *
+ * @author Thomas Joiner
+ */
+public final class BloomFilter {
+
+	private final AtomicLongArray bits;
+	private final int bitCount;
+	private final int hashCount;
+	private final int capacity;
+	private final AtomicInteger count = new AtomicInteger();
+
+	/**
+	 * Creates a {@link BloomFilter}.
+	 *
+	 * @param capacity the number of words that the filter should hold
+	 * @param falsePositiveRate the rate of false positives once the filter holds that many words,
+	 *        between 0 and 1 (exclusive)
+	 */
+	public BloomFilter(int capacity, double falsePositiveRate) {
+		if ( capacity <= 0 ) {
+			throw new IllegalArgumentException("capacity must be positive (was "+capacity+").");
+		}
+		if ( falsePositiveRate <= 0 || falsePositiveRate >= 1 ) {
+			throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1 (was "+falsePositiveRate+").");
+		}
+
+		double ln2 = Math.log(2);
+		double bits = Math.ceil(-capacity * Math.log(falsePositiveRate) / (ln2 * ln2));
+		if ( bits > Integer.MAX_VALUE - 63 ) {
+			throw new IllegalArgumentException("The filter would be too large ("+(long) bits+" bits).");
+		}
+
+		// Round up to whole longs, since those are what the bits are stored in
+		this.bits = new AtomicLongArray(((int) bits + 63) >>> 6);
+		this.bitCount = this.bits.length() << 6;
+		this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / capacity * ln2));
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Adds a word to the filter, unless it is already full.
+	 *
+	 * @param word the word to add
+	 * @return true if the word was added, false if the filter is full
+	 */
+	public boolean add(CharSequence word) {
+		if ( this.count.get() >= this.capacity ) {
+			return false;
+		}
+
+		long hash1 = hash(word);
+		long hash2 = mix(hash1);
+		boolean changed = false;
+
+		for (int i = 0; i < this.hashCount; i++) {
+			int bit = this.index(hash1, hash2, i);
+			int element = bit >>> 6;
+			long mask = 1L << bit;
+
+			long value;
+			do {
+				value = this.bits.get(element);
+				if ( (value & mask) != 0 ) {
+					break;
+				}
+				changed = true;
+			} while ( !this.bits.compareAndSet(element, value, value | mask) );
+		}
+
+		// A word whose bits were all set already may well have been added before
+		if ( changed ) {
+			this.count.incrementAndGet();
+		}
+
+		return true;
+	}
+
+	/**
+	 * @param word the word to look up
+	 * @return false if the word is definitely not in the filter, true if it probably is
+	 */
+	public boolean mightContain(CharSequence word) {
+		long hash1 = hash(word);
+		long hash2 = mix(hash1);
+
+		for (int i = 0; i < this.hashCount; i++) {
+			int bit = this.index(hash1, hash2, i);
+
+			if ( (this.bits.get(bit >>> 6) & (1L << bit)) == 0 ) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Removes all the words from the filter.
+	 */
+	public void clear() {
+		for (int i = 0; i < this.bits.length(); i++) {
+			this.bits.set(i, 0);
+		}
+		this.count.set(0);
+	}
+
+	/**
+	 * @return roughly how many words are in the filter
+	 */
+	public int getCount() {
+		return this.count.get();
+	}
+
+	/**
+	 * @return the number of words that the filter holds before it stops accepting more
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	/**
+	 * Estimates the rate of false positives of the filter as it currently is, from how many of its
+	 * bits are set.
+	 *
+	 * @return the chance that a word that was not added is said to be in the filter
+	 */
+	public double getFalsePositiveRate() {
+		long set = 0;
+
+		for (int i = 0; i < this.bits.length(); i++) {
+			set += Long.bitCount(this.bits.get(i));
+		}
+
+		return Math.pow((double) set / this.bitCount, this.hashCount);
+	}
+
+	/**
+	 * @return the memory that the bits of the filter take up, in bytes
+	 */
+	public long getMemorySize() {
+		return this.bits.length() * 8L;
+	}
+
+	/**
+	 * Derives the index of the {@code i}th bit of a word from its two hashes.
+	 */
+	private int index(long hash1, long hash2, int i) {
+		long combined = hash1 + i * hash2;
+		return (int) ((combined & Long.MAX_VALUE) % this.bitCount);
+	}
+
+	/**
+	 * FNV-1a over the characters of the word.
+	 */
+	private static long hash(CharSequence word) {
+		long hash = 0xcbf29ce484222325L;
+
+		for (int i = 0; i < word.length(); i++) {
+			hash ^= word.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+
+		return hash;
+	}
+
+	/**
+	 * The finalizer of MurmurHash3, which makes a second hash out of the first.
+	 */
+	private static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+
+		// An even step would only ever reach half of the bits when their number is even
+		return hash | 1;
+	}
+}
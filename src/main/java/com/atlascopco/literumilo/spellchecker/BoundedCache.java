@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A thread-safe, size-bounded cache that evicts the least recently used entry once
+ * it is full.  It also keeps count of its hits and misses so that the effectiveness
+ * of the cache can be reported.
+ *
+ * @author Thomas Joiner
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the cached values
+ */
+final class BoundedCache<K, V> {
+
+	private final Map<K, V> entries;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Creates a cache that will hold at most {@code capacity} entries.
+	 *
+	 * @param capacity the maximum number of entries to hold
+	 */
+	public BoundedCache(final int capacity) {
+		if ( capacity <= 0 ) {
+			throw new IllegalArgumentException("capacity must be positive (was "+capacity+").");
+		}
+
+		this.entries = new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = -3106358446371745962L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return this.size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Retrieves the value cached for the key, counting the lookup as a hit or a miss.
+	 *
+	 * @param key the key to look up
+	 * @return the cached value, or null if there is none
+	 */
+	public V get(K key) {
+		V value;
+		synchronized (this.entries) {
+			value = this.entries.get(key);
+		}
+
+		if ( value == null ) {
+			this.misses.incrementAndGet();
+		} else {
+			this.hits.incrementAndGet();
+		}
+
+		return value;
+	}
+
+	public void put(K key, V value) {
+		synchronized (this.entries) {
+			this.entries.put(key, value);
+		}
+	}
+
+	/**
+	 * Checks whether a value is cached for the key, without counting it as a lookup or
+	 * affecting the order of eviction.
+	 *
+	 * @param key the key to look for
+	 * @return true if a value is cached for the key
+	 */
+	public boolean containsKey(K key) {
+		synchronized (this.entries) {
+			return this.entries.containsKey(key);
+		}
+	}
+
+	public void clear() {
+		synchronized (this.entries) {
+			this.entries.clear();
+		}
+	}
+
+	public int size() {
+		synchronized (this.entries) {
+			return this.entries.size();
+		}
+	}
+
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	public long getMisses() {
+		return this.misses.get();
+	}
+}
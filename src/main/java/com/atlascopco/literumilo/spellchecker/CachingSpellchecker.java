@@ -0,0 +1,280 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This is a {@link Spellchecker} that wraps another {@link Spellchecker} and remembers
+ * whether or not the words it has been asked about were misspelled, so that words that
+ * show up over and over again in a document only have to be checked once.
+ *
+ * The verdicts are kept per {@link Locale}, so switching to another dictionary and back does not
+ * lose them, and words are cached exactly as they are given, since the case of a word affects
+ * whether or not it is spelled correctly.  A verdict is not cached if the dictionary changed while
+ * it was being made, and when the wrapped {@link Spellchecker} says that the dictionary it is
+ * already using has changed (for example, because it has finished loading), the verdicts for that
+ * dictionary are forgotten.  If the words in a dictionary change without the listeners being told,
+ * {@link #invalidate(Locale)} should be called in order to forget the verdicts for it.
+ *
+ * @author Thomas Joiner
+ */
+public class CachingSpellchecker extends AbstractSpellchecker implements Spellchecker.DictionaryChangeListener {
+
+	/**
+	 * The default number of verdicts that will be cached per dictionary.
+	 */
+	public static final int DEFAULT_CAPACITY = 16384;
+
+	private final Spellchecker delegate;
+	private final int capacity;
+	private final ConcurrentMap<Locale, BoundedCache<String, Boolean>> verdicts;
+	/**
+	 * The dictionary in use since it last changed, or null if it has not been looked up yet.  A
+	 * new one is made on every change, so a verdict may only be cached if this is still the one
+	 * it was made under.
+	 */
+	private final AtomicReference<Generation> generation = new AtomicReference<Generation>();
+
+	/**
+	 * Creates a {@link CachingSpellchecker} that will cache up to {@link #DEFAULT_CAPACITY}
+	 * verdicts per dictionary.
+	 *
+	 * @param delegate the {@link Spellchecker} to cache the verdicts of
+	 */
+	public CachingSpellchecker(Spellchecker delegate) {
+		this(delegate, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a {@link CachingSpellchecker}.
+	 *
+	 * @param delegate the {@link Spellchecker} to cache the verdicts of
+	 * @param capacity the maximum number of verdicts to cache per dictionary
+	 */
+	public CachingSpellchecker(Spellchecker delegate, int capacity) {
+		if ( delegate == null ) {
+			throw new NullPointerException("delegate must be non-null.");
+		}
+		if ( capacity <= 0 ) {
+			throw new IllegalArgumentException("capacity must be positive (was "+capacity+").");
+		}
+
+		this.delegate = delegate;
+		this.capacity = capacity;
+		this.verdicts = new ConcurrentHashMap<Locale, BoundedCache<String, Boolean>>();
+
+		// The delegate only holds a weak reference to us, but since we hold a strong
+		// reference to it, we will be around as long as anyone is using us.
+		this.delegate.addDictionaryChangeListener(this);
+	}
+
+	@Override
+	public boolean misspelled(String word) {
+		Generation generation = this.getGeneration();
+		BoundedCache<String, Boolean> cache = this.getCache(generation.locale);
+
+		Boolean misspelled = cache.get(word);
+
+		if ( misspelled == null ) {
+			misspelled = Boolean.valueOf(this.delegate.misspelled(word));
+
+			if ( this.isCacheable(generation) ) {
+				cache.put(word, misspelled);
+			}
+		}
+
+		return misspelled.booleanValue();
+	}
+
+	@Override
+	public BitSet misspelled(List<String> words) {
+		Generation generation = this.getGeneration();
+		BoundedCache<String, Boolean> cache = this.getCache(generation.locale);
+		BitSet misspelled = new BitSet(words.size());
+
+		// Answer what we can from the cache, and collect the rest so that they can be
+		// passed on to the delegate as a single batch.
+		Map<String, List<Integer>> uncached = new HashMap<String, List<Integer>>();
+		for (int i = 0; i < words.size(); i++) {
+			String word = words.get(i);
+			Boolean verdict = cache.get(word);
+
+			if ( verdict == null ) {
+				List<Integer> indices = uncached.get(word);
+				if ( indices == null ) {
+					indices = new ArrayList<Integer>(1);
+					uncached.put(word, indices);
+				}
+				indices.add(i);
+			} else if ( verdict.booleanValue() ) {
+				misspelled.set(i);
+			}
+		}
+
+		if ( !uncached.isEmpty() ) {
+			List<String> toCheck = new ArrayList<String>(uncached.keySet());
+			BitSet verdicts = AbstractSpellchecker.misspelled(this.delegate, toCheck);
+			boolean cacheable = this.isCacheable(generation);
+
+			for (int i = 0; i < toCheck.size(); i++) {
+				String word = toCheck.get(i);
+				boolean wordMisspelled = verdicts.get(i);
+
+				if ( cacheable ) {
+					cache.put(word, Boolean.valueOf(wordMisspelled));
+				}
+				if ( wordMisspelled ) {
+					for (Integer index : uncached.get(word)) {
+						misspelled.set(index);
+					}
+				}
+			}
+		}
+
+		return misspelled;
+	}
+
+	@Override
+	public List<String> suggest(String word) {
+		return this.delegate.suggest(word);
+	}
+
+	@Override
+	public void setDictionary(Locale locale) throws IllegalArgumentException {
+		this.delegate.setDictionary(locale);
+		// The delegate may only tell us once the dictionary has loaded, but it is in use already
+		this.generation.set(new Generation(this.delegate.getCurrentDictionary()));
+	}
+
+	@Override
+	public List<Locale> getAvailableDictionaries() {
+		return this.delegate.getAvailableDictionaries();
+	}
+
+	@Override
+	public Locale getCurrentDictionary() {
+		return this.delegate.getCurrentDictionary();
+	}
+
+	/**
+	 * Forgets all the verdicts that were cached for the given dictionary.  This should be
+	 * called whenever words are added to or removed from that dictionary.
+	 *
+	 * @param locale the locale of the dictionary that changed
+	 */
+	public void invalidate(Locale locale) {
+		BoundedCache<String, Boolean> cache = this.verdicts.get(locale);
+
+		if ( cache != null ) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Forgets all the verdicts for all of the dictionaries.
+	 */
+	public void invalidateAll() {
+		this.verdicts.clear();
+	}
+
+	/**
+	 * Returns the fraction of the words checked that were answered from the cache, across all
+	 * dictionaries.
+	 *
+	 * @return the hit rate, between 0 and 1 (0 if no words have been checked yet)
+	 */
+	public double getHitRate() {
+		long hits = 0;
+		long lookups = 0;
+
+		for (BoundedCache<String, Boolean> cache : this.verdicts.values()) {
+			hits += cache.getHits();
+			lookups += cache.getHits() + cache.getMisses();
+		}
+
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public void dictionaryChanged() {
+		Locale locale = this.delegate.getCurrentDictionary();
+		Generation previous = this.generation.getAndSet(new Generation(locale));
+
+		// If the dictionary was not switched, it was loaded or its words changed
+		if ( previous != null && locale.equals(previous.locale) ) {
+			this.invalidate(locale);
+		}
+
+		this.fireDictionaryChange();
+	}
+
+	/**
+	 * Checks whether a verdict may be cached, which it may not if the dictionary changed while it
+	 * was being made, since we can't be sure which dictionary it came from.
+	 *
+	 * @param generation the generation the verdict was asked for in
+	 * @return true if the verdict may be cached
+	 */
+	private boolean isCacheable(Generation generation) {
+		return this.generation.get() == generation && generation.locale.equals(this.delegate.getCurrentDictionary());
+	}
+
+	private Generation getGeneration() {
+		Generation generation = this.generation.get();
+
+		if ( generation == null ) {
+			this.generation.compareAndSet(null, new Generation(this.delegate.getCurrentDictionary()));
+			generation = this.generation.get();
+		}
+
+		return generation;
+	}
+
+	private BoundedCache<String, Boolean> getCache(Locale locale) {
+		BoundedCache<String, Boolean> cache = this.verdicts.get(locale);
+
+		if ( cache == null ) {
+			BoundedCache<String, Boolean> created = new BoundedCache<String, Boolean>(this.capacity);
+			cache = this.verdicts.putIfAbsent(locale, created);
+
+			if ( cache == null ) {
+				cache = created;
+			}
+		}
+
+		return cache;
+	}
+
+	/**
+	 * The dictionary in use between two changes.
+	 */
+	private static final class Generation {
+		final Locale locale;
+
+		Generation(Locale locale) {
+			this.locale = locale;
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This is a {@link Spellchecker} that uses a different {@link Spellchecker} for each dictionary,
+ * so that, for example, the languages that have been compiled ahead of time can be checked by an
+ * {@link com.atlascopco.literumilo.spellchecker.automaton.AutomatonSpellchecker} and the rest by a
+ * {@link com.atlascopco.literumilo.spellchecker.hunspell.HunspellSpellchecker}.
+ *
+ * When a dictionary is selected, it is selected in the {@link Spellchecker} it belongs to as
+ * well, and the listeners are told about the change when that {@link Spellchecker} tells us.
+ * Adding a dictionary never selects it in its {@link Spellchecker}, since that may load it.  The
+ * first dictionary added is current until another is selected, but it is only selected in its
+ * {@link Spellchecker} once {@link #setDictionary(Locale)} is called, or once a word is checked
+ * before that.
+ *
+ * @author Thomas Joiner
+ */
+public class CompositeSpellchecker extends AbstractSpellchecker {
+
+	private final Map<Locale, Spellchecker> spellcheckers = new ConcurrentHashMap<Locale, Spellchecker>();
+	/**
+	 * The listener registered with each of the spellcheckers.  The spellcheckers only hold weak
+	 * references to them, so they are held here for as long as we are around.
+	 */
+	private final Map<Spellchecker, DelegateListener> listeners = new IdentityHashMap<Spellchecker, DelegateListener>();
+	private volatile Locale currentLocale;
+	private volatile Spellchecker currentSpellchecker;
+	/**
+	 * Whether or not the current dictionary has been selected in its {@link Spellchecker}.
+	 */
+	private volatile boolean currentSelected;
+
+	/**
+	 * Adds a dictionary, checked by the given {@link Spellchecker}.  The {@link Spellchecker} must
+	 * have a dictionary for the locale.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param spellchecker the {@link Spellchecker} to check words in the locale with
+	 * @throws IllegalArgumentException if the {@link Spellchecker} has no dictionary for the locale
+	 */
+	public synchronized void addDictionary(Locale locale, Spellchecker spellchecker) throws IllegalArgumentException {
+		if ( !spellchecker.getAvailableDictionaries().contains(locale) ) {
+			throw new IllegalArgumentException("The spellchecker has no dictionary for locale: "+locale);
+		}
+
+		if ( this.currentSpellchecker == null ) {
+			// Only routed to, it is selected when it is first used
+			this.currentLocale = locale;
+			this.currentSpellchecker = spellchecker;
+		}
+
+		if ( !this.listeners.containsKey(spellchecker) ) {
+			DelegateListener listener = new DelegateListener(spellchecker);
+			this.listeners.put(spellchecker, listener);
+			spellchecker.addDictionaryChangeListener(listener);
+		}
+
+		this.spellcheckers.put(locale, spellchecker);
+	}
+
+	/**
+	 * Adds all of the dictionaries of the given {@link Spellchecker}.
+	 *
+	 * @param spellchecker the {@link Spellchecker} to add the dictionaries of
+	 */
+	public void addDictionaries(Spellchecker spellchecker) {
+		for (Locale locale : spellchecker.getAvailableDictionaries()) {
+			this.addDictionary(locale, spellchecker);
+		}
+	}
+
+	@Override
+	public boolean misspelled(String word) {
+		return this.getSelectedSpellchecker().misspelled(word);
+	}
+
+	@Override
+	public BitSet misspelled(List<String> words) {
+		return AbstractSpellchecker.misspelled(this.getSelectedSpellchecker(), words);
+	}
+
+	@Override
+	public List<String> suggest(String word) {
+		return this.getSelectedSpellchecker().suggest(word);
+	}
+
+	@Override
+	public void setDictionary(Locale locale) throws IllegalArgumentException {
+		Spellchecker spellchecker;
+
+		synchronized (this) {
+			spellchecker = this.spellcheckers.get(locale);
+			if ( spellchecker == null ) {
+				throw new IllegalArgumentException("No dictionary registered for locale: "+locale);
+			}
+
+			this.currentLocale = locale;
+			this.currentSpellchecker = spellchecker;
+			this.currentSelected = true;
+		}
+
+		// It tells us once the dictionary is ready, which we pass on
+		spellchecker.setDictionary(locale);
+	}
+
+	@Override
+	public List<Locale> getAvailableDictionaries() {
+		return new ArrayList<Locale>(this.spellcheckers.keySet());
+	}
+
+	@Override
+	public Locale getCurrentDictionary() {
+		Locale locale = this.currentLocale;
+
+		if ( locale == null || !this.spellcheckers.containsKey(locale) ) {
+			throw new IllegalStateException("Currently selected dictionary no longer exists.");
+		}
+
+		return locale;
+	}
+
+	/**
+	 * Retrieves the {@link Spellchecker} of the current dictionary, selecting the dictionary in it
+	 * if that has not been done yet.
+	 *
+	 * @return the {@link Spellchecker} to check words with
+	 */
+	private Spellchecker getSelectedSpellchecker() {
+		if ( !this.currentSelected ) {
+			Locale locale;
+			Spellchecker spellchecker;
+
+			synchronized (this) {
+				if ( this.currentSelected ) {
+					return this.currentSpellchecker;
+				}
+
+				locale = this.currentLocale;
+				spellchecker = this.currentSpellchecker;
+				this.currentSelected = true;
+			}
+
+			spellchecker.setDictionary(locale);
+			return spellchecker;
+		}
+
+		return this.currentSpellchecker;
+	}
+
+	/**
+	 * Passes on the dictionary changes of the {@link Spellchecker} currently in use.  Changes in
+	 * the others (such as a dictionary they finished loading after another one was selected) do
+	 * not affect us.
+	 */
+	private final class DelegateListener implements DictionaryChangeListener {
+		private final Spellchecker spellchecker;
+
+		public DelegateListener(Spellchecker spellchecker) {
+			this.spellchecker = spellchecker;
+		}
+
+		@Override
+		public void dictionaryChanged() {
+			if ( CompositeSpellchecker.this.currentSpellchecker == this.spellchecker ) {
+				CompositeSpellchecker.this.fireDictionaryChange();
+			}
+		}
+	}
+}
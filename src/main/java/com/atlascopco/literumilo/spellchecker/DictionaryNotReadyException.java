@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.util.Locale;
+import java.util.concurrent.Future;
+
+/**
+ * This exception is thrown when a word is checked against a dictionary that can not be used yet,
+ * either because it is still being loaded or because loading it failed (in which case the failure
+ * is the cause).  Rather than the word being taken to be spelled either way, the check is left to
+ * the caller to make again: the {@link Spellchecker} tells its listeners once the dictionary has
+ * loaded (or has failed to), and {@link #getReady()} is done at the same point.
+ *
+ * @author Thomas Joiner
+ */
+public class DictionaryNotReadyException extends IllegalStateException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Locale locale;
+	private final transient Future<Void> ready;
+
+	/**
+	 * Creates a {@link DictionaryNotReadyException} for a dictionary that is still loading.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param ready a {@link Future} that is done once the dictionary is ready to be used
+	 */
+	public DictionaryNotReadyException(Locale locale, Future<Void> ready) {
+		super("The dictionary for "+locale+" is still loading.");
+
+		this.locale = locale;
+		this.ready = ready;
+	}
+
+	/**
+	 * Creates a {@link DictionaryNotReadyException} for a dictionary that failed to load.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param cause the reason loading the dictionary failed
+	 */
+	public DictionaryNotReadyException(Locale locale, Throwable cause) {
+		super("The dictionary for "+locale+" failed to load.", cause);
+
+		this.locale = locale;
+		this.ready = null;
+	}
+
+	public Locale getLocale() {
+		return this.locale;
+	}
+
+	/**
+	 * @return a {@link Future} that is done once the dictionary is ready to be used, or null if
+	 *         loading it failed
+	 */
+	public Future<Void> getReady() {
+		return this.ready;
+	}
+
+	/**
+	 * @return true if loading the dictionary failed, rather than still being under way
+	 */
+	public boolean isLoadFailed() {
+		return this.getCause() != null;
+	}
+}
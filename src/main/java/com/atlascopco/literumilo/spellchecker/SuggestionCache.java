@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This class remembers the suggestions that a {@link Spellchecker} made for misspelled words, so
+ * that they only have to be computed once no matter how many times (or in how many components) the
+ * word shows up.  Since coming up with suggestions can take a while, this can be shared between
+ * components and filled in the background before the suggestions are needed.
+ *
+ * The suggestions are kept per {@link Spellchecker} and {@link Locale}, since they depend on the
+ * dictionary that made them, and two spellcheckers can have different dictionaries for the same
+ * locale.  The cache holds on to the spellcheckers it has been used with.
+ *
+ * @author Thomas Joiner
+ */
+public class SuggestionCache {
+
+	/**
+	 * The default number of words that suggestions will be cached for per dictionary.
+	 */
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	private final int capacity;
+	private final ConcurrentMap<Key, BoundedCache<String, List<String>>> suggestions;
+
+	/**
+	 * Creates a {@link SuggestionCache} that will cache the suggestions for up to
+	 * {@link #DEFAULT_CAPACITY} words per dictionary.
+	 */
+	public SuggestionCache() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a {@link SuggestionCache}.
+	 *
+	 * @param capacity the maximum number of words to cache the suggestions for per dictionary
+	 */
+	public SuggestionCache(int capacity) {
+		if ( capacity <= 0 ) {
+			throw new IllegalArgumentException("capacity must be positive (was "+capacity+").");
+		}
+
+		this.capacity = capacity;
+		this.suggestions = new ConcurrentHashMap<Key, BoundedCache<String, List<String>>>();
+	}
+
+	/**
+	 * Retrieves the suggestions for a word from the dictionary currently in use by the given
+	 * {@link Spellchecker}, asking it for them if they have not been cached yet.
+	 *
+	 * @param spellchecker the {@link Spellchecker} to get the suggestions from
+	 * @param word the misspelled word
+	 * @return the suggestions for the word (unmodifiable)
+	 */
+	public List<String> get(Spellchecker spellchecker, String word) {
+		Locale locale = spellchecker.getCurrentDictionary();
+		BoundedCache<String, List<String>> cache = this.getCache(new Key(spellchecker, locale));
+
+		List<String> wordSuggestions = cache.get(word);
+
+		if ( wordSuggestions == null ) {
+			wordSuggestions = Collections.unmodifiableList(new ArrayList<String>(spellchecker.suggest(word)));
+
+			// If the dictionary was switched while the suggestions were being made, we can't
+			// be sure which dictionary they came from.
+			if ( locale.equals(spellchecker.getCurrentDictionary()) ) {
+				cache.put(word, wordSuggestions);
+			}
+		}
+
+		return wordSuggestions;
+	}
+
+	/**
+	 * Checks whether the suggestions for a word from the given dictionary have been cached.
+	 *
+	 * @param spellchecker the {@link Spellchecker} the dictionary belongs to
+	 * @param locale the locale of the dictionary
+	 * @param word the misspelled word
+	 * @return true if the suggestions are cached
+	 */
+	public boolean contains(Spellchecker spellchecker, Locale locale, String word) {
+		BoundedCache<String, List<String>> cache = this.suggestions.get(new Key(spellchecker, locale));
+
+		return cache != null && cache.containsKey(word);
+	}
+
+	/**
+	 * Forgets all the suggestions that were cached for the given dictionary.  This should be
+	 * called whenever words are added to or removed from that dictionary.
+	 *
+	 * @param spellchecker the {@link Spellchecker} the dictionary belongs to
+	 * @param locale the locale of the dictionary that changed
+	 */
+	public void invalidate(Spellchecker spellchecker, Locale locale) {
+		BoundedCache<String, List<String>> cache = this.suggestions.get(new Key(spellchecker, locale));
+
+		if ( cache != null ) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Forgets all the suggestions that were cached for the given locale, whichever
+	 * {@link Spellchecker} made them.
+	 *
+	 * @param locale the locale of the dictionaries that changed
+	 */
+	public void invalidate(Locale locale) {
+		for (Map.Entry<Key, BoundedCache<String, List<String>>> entry : this.suggestions.entrySet()) {
+			if ( entry.getKey().locale.equals(locale) ) {
+				entry.getValue().clear();
+			}
+		}
+	}
+
+	/**
+	 * Forgets all the suggestions for all of the dictionaries.
+	 */
+	public void invalidateAll() {
+		this.suggestions.clear();
+	}
+
+	private BoundedCache<String, List<String>> getCache(Key key) {
+		BoundedCache<String, List<String>> cache = this.suggestions.get(key);
+
+		if ( cache == null ) {
+			BoundedCache<String, List<String>> created = new BoundedCache<String, List<String>>(this.capacity);
+			cache = this.suggestions.putIfAbsent(key, created);
+
+			if ( cache == null ) {
+				cache = created;
+			}
+		}
+
+		return cache;
+	}
+
+	/**
+	 * Identifies a dictionary by the {@link Spellchecker} it belongs to (compared by identity) and
+	 * its {@link Locale}.
+	 */
+	private static final class Key {
+		private final Spellchecker spellchecker;
+		private final Locale locale;
+
+		Key(Spellchecker spellchecker, Locale locale) {
+			this.spellchecker = spellchecker;
+			this.locale = locale;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( !(obj instanceof Key) ) {
+				return false;
+			}
+
+			Key other = (Key) obj;
+			return this.spellchecker == other.spellchecker && this.locale.equals(other.locale);
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(this.spellchecker) * 31 + this.locale.hashCode();
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.util.List;
+
+/**
+ * This interface defines something that comes up with suggestions for misspelled words,
+ * separately from the {@link Spellchecker} that decides whether they are misspelled.  A
+ * {@link Spellchecker} that supports it can be given one per dictionary to use instead of its own
+ * way of making suggestions.
+ *
+ * Implementations must allow any number of threads to ask for suggestions at the same time.
+ *
+ * @author Thomas Joiner
+ * @see SymmetricDeleteSuggestionEngine
+ */
+public interface SuggestionEngine {
+	/**
+	 * This method will return a list of suggestions of words an incorrectly
+	 * spelled word could be, the most likely first.
+	 * @param word the word to get suggestions for
+	 * @return a {@link List} of correctly spelled words that the user may have intended
+	 */
+	public List<String> suggest(String word);
+}
@@ -0,0 +1,426 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class suggests the words of a dictionary that are within a small edit distance of a
+ * misspelled word, using a symmetric-delete index of the dictionary.
+ *
+ * Rather than trying every edit of the misspelled word, which is what makes suggestions slow, the
+ * index is built ahead of time from every string that can be made by deleting up to
+ * {@code maxEditDistance} characters from the beginning (the first {@code prefixLength} characters)
+ * of each word.  A word is then a candidate for a misspelled word if deleting characters from the
+ * beginning of the misspelled word makes one of those strings, which takes a handful of lookups.
+ * The candidates are checked against the whole of the misspelled word, counting insertions,
+ * deletions, substitutions and transpositions of adjacent characters as one edit each.
+ *
+ * The suggestions are ordered by their edit distance, then by how frequent the word is, if the
+ * frequent words of the dictionary were given.  Like hunspell, the case of the words is ignored
+ * when comparing them, and the suggestions for a capitalized or upper case word are capitalized or
+ * put in upper case to match.
+ *
+ * With the default settings each word has up to 29 deletes of 8 bytes each, so the index takes
+ * about 230 bytes per word on top of the words themselves (see {@link #getMemorySize()}).  It also
+ * takes a while to build for a large dictionary, so it should be built in the background.  Once
+ * built it is immutable, so any number of threads can ask for suggestions at the same time.
+ *
+ * @author Thomas Joiner
+ */
+public final class SymmetricDeleteSuggestionEngine implements SuggestionEngine {
+
+	/**
+	 * The default largest edit distance of the suggestions.
+	 */
+	public static final int DEFAULT_MAX_EDIT_DISTANCE = 2;
+	/**
+	 * The default number of characters at the beginning of each word that are indexed.
+	 */
+	public static final int DEFAULT_PREFIX_LENGTH = 7;
+
+	/**
+	 * The most suggestions to return for a word.
+	 */
+	private static final int MAX_SUGGESTIONS = 10;
+	/**
+	 * Words longer than this are neither indexed nor given suggestions.
+	 */
+	private static final int MAX_WORD_LENGTH = 256;
+
+	private final String[] words;
+	/**
+	 * The position of each word in the list of frequent words, or {@link Integer#MAX_VALUE} if it
+	 * is not in it.
+	 */
+	private final int[] ranks;
+	/**
+	 * The index, which has the hash code of each string made by deleting characters from the
+	 * beginning of a word in the upper half, and the index of the word in the lower half, sorted.
+	 */
+	private final long[] deletes;
+	private final int maxEditDistance;
+	private final int prefixLength;
+
+	/**
+	 * Creates a {@link SymmetricDeleteSuggestionEngine} that suggests words within
+	 * {@link #DEFAULT_MAX_EDIT_DISTANCE} edits, in no particular order of frequency.
+	 *
+	 * @param words the words of the dictionary
+	 */
+	public SymmetricDeleteSuggestionEngine(Collection<String> words) {
+		this(words, Collections.<String>emptyList());
+	}
+
+	/**
+	 * Creates a {@link SymmetricDeleteSuggestionEngine} that suggests words within
+	 * {@link #DEFAULT_MAX_EDIT_DISTANCE} edits.
+	 *
+	 * @param words the words of the dictionary
+	 * @param frequentWords the most frequent words of the dictionary, most frequent first
+	 */
+	public SymmetricDeleteSuggestionEngine(Collection<String> words, List<String> frequentWords) {
+		this(words, frequentWords, DEFAULT_MAX_EDIT_DISTANCE, DEFAULT_PREFIX_LENGTH);
+	}
+
+	/**
+	 * Creates a {@link SymmetricDeleteSuggestionEngine}.  The longer the prefix, the more of the
+	 * words within the edit distance are found, but the larger the index is.
+	 *
+	 * @param words the words of the dictionary
+	 * @param frequentWords the most frequent words of the dictionary, most frequent first
+	 * @param maxEditDistance the largest edit distance of the suggestions
+	 * @param prefixLength the number of characters at the beginning of each word to index, which
+	 *        must be more than {@code maxEditDistance}
+	 */
+	public SymmetricDeleteSuggestionEngine(Collection<String> words, List<String> frequentWords, int maxEditDistance, int prefixLength) {
+		if ( maxEditDistance <= 0 ) {
+			throw new IllegalArgumentException("maxEditDistance must be positive (was "+maxEditDistance+").");
+		}
+		if ( prefixLength <= maxEditDistance ) {
+			throw new IllegalArgumentException("prefixLength must be more than maxEditDistance (was "+prefixLength+").");
+		}
+
+		this.maxEditDistance = maxEditDistance;
+		this.prefixLength = prefixLength;
+
+		Set<String> unique = new LinkedHashSet<String>();
+		for (String word : words) {
+			if ( word.length() > 0 && word.length() <= MAX_WORD_LENGTH ) {
+				unique.add(word);
+			}
+		}
+		this.words = unique.toArray(new String[unique.size()]);
+
+		Map<String, Integer> rankOf = new HashMap<String, Integer>();
+		for (int i = 0; i < frequentWords.size(); i++) {
+			String folded = fold(frequentWords.get(i));
+			if ( !rankOf.containsKey(folded) ) {
+				rankOf.put(folded, i);
+			}
+		}
+
+		this.ranks = new int[this.words.length];
+		long[] deletes = new long[Math.max(16, this.words.length * 8)];
+		int deleteCount = 0;
+
+		for (int i = 0; i < this.words.length; i++) {
+			String folded = fold(this.words[i]);
+			Integer rank = rankOf.get(folded);
+			this.ranks[i] = rank == null ? Integer.MAX_VALUE : rank;
+
+			for (String delete : this.getDeletes(folded)) {
+				if ( deleteCount == deletes.length ) {
+					deletes = Arrays.copyOf(deletes, deletes.length + (deletes.length >>> 1));
+				}
+
+				deletes[deleteCount++] = ((long) delete.hashCode() << 32) | i;
+			}
+		}
+
+		this.deletes = Arrays.copyOf(deletes, deleteCount);
+		Arrays.sort(this.deletes);
+	}
+
+	@Override
+	public List<String> suggest(String word) {
+		List<String> suggestions = new ArrayList<String>();
+		if ( word.length() == 0 || word.length() > MAX_WORD_LENGTH ) {
+			return suggestions;
+		}
+
+		String folded = fold(word);
+		Set<Integer> seen = new HashSet<Integer>();
+		List<Candidate> candidates = new ArrayList<Candidate>();
+		int[][] rows = new int[3][word.length() + this.maxEditDistance + 1];
+
+		for (String delete : this.getDeletes(folded)) {
+			int hash = delete.hashCode();
+
+			for (int i = this.findFirst(hash); i < this.deletes.length && (int) (this.deletes[i] >>> 32) == hash; i++) {
+				int index = (int) this.deletes[i];
+
+				// The same word is usually reached through several of the deletes
+				if ( !seen.add(index) ) {
+					continue;
+				}
+
+				String candidate = this.words[index];
+				if ( Math.abs(candidate.length() - word.length()) > this.maxEditDistance ) {
+					continue;
+				}
+
+				// The hash codes may have collided, or the word may only be close at the beginning
+				int distance = distance(folded, candidate, this.maxEditDistance, rows);
+				if ( distance <= this.maxEditDistance ) {
+					candidates.add(new Candidate(candidate, distance, this.ranks[index]));
+				}
+			}
+		}
+
+		Collections.sort(candidates);
+
+		for (Candidate candidate : candidates) {
+			String suggestion = matchCase(word, candidate.word);
+
+			if ( !suggestion.equals(word) && !suggestions.contains(suggestion) ) {
+				suggestions.add(suggestion);
+
+				if ( suggestions.size() == MAX_SUGGESTIONS ) {
+					break;
+				}
+			}
+		}
+
+		return suggestions;
+	}
+
+	/**
+	 * @return the number of words in the dictionary
+	 */
+	public int getWordCount() {
+		return this.words.length;
+	}
+
+	/**
+	 * @return the largest edit distance of the suggestions
+	 */
+	public int getMaxEditDistance() {
+		return this.maxEditDistance;
+	}
+
+	/**
+	 * @return roughly how much memory the index and the words take up, in bytes
+	 */
+	public long getMemorySize() {
+		long size = 8L * this.deletes.length + 4L * this.ranks.length;
+
+		for (String word : this.words) {
+			// The string, its array and the reference to it
+			size += 48 + 2L * word.length();
+		}
+
+		return size;
+	}
+
+	/**
+	 * Makes every string that can be made by deleting up to {@link #maxEditDistance} characters
+	 * from the beginning of a word, including the beginning of the word itself.
+	 *
+	 * @param word the word, with its case folded
+	 * @return the strings
+	 */
+	private Set<String> getDeletes(String word) {
+		Set<String> deletes = new HashSet<String>();
+		List<String> level = new ArrayList<String>();
+		level.add(word.length() > this.prefixLength ? word.substring(0, this.prefixLength) : word);
+		deletes.addAll(level);
+
+		for (int distance = 1; distance <= this.maxEditDistance; distance++) {
+			List<String> next = new ArrayList<String>();
+
+			for (String string : level) {
+				for (int i = 0; i < string.length(); i++) {
+					String delete = string.substring(0, i) + string.substring(i+1);
+
+					if ( deletes.add(delete) ) {
+						next.add(delete);
+					}
+				}
+			}
+
+			level = next;
+		}
+
+		return deletes;
+	}
+
+	/**
+	 * @param hash the hash code of a string
+	 * @return the index of the first entry of the index for the hash code, or where it would be
+	 */
+	private int findFirst(int hash) {
+		long key = (long) hash << 32;
+		int low = 0;
+		int high = this.deletes.length;
+
+		while ( low < high ) {
+			int middle = (low + high) >>> 1;
+
+			if ( this.deletes[middle] < key ) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+
+		return low;
+	}
+
+	/**
+	 * Works out the edit distance between two words, ignoring the case of the second one, counting
+	 * the transposition of two adjacent characters as a single edit, and giving up once it is over
+	 * a maximum.
+	 *
+	 * @param a one of the words, in lower case
+	 * @param b the other word
+	 * @param max the largest distance of interest
+	 * @param rows three arrays longer than {@code b} to work out the distance in
+	 * @return the distance, or {@code max + 1} if it is more than {@code max}
+	 */
+	private static int distance(String a, String b, int max, int[][] rows) {
+		int n = a.length();
+		int m = b.length();
+
+		if ( Math.abs(n - m) > max ) {
+			return max + 1;
+		}
+
+		// The last three rows of the distance matrix
+		int[] beforePrevious = rows[0];
+		int[] previous = rows[1];
+		int[] current = rows[2];
+
+		for (int j = 0; j <= m; j++) {
+			previous[j] = j;
+		}
+
+		for (int i = 1; i <= n; i++) {
+			char c = a.charAt(i-1);
+			current[0] = i;
+			int rowMinimum = i;
+
+			for (int j = 1; j <= m; j++) {
+				int cost = c == Character.toLowerCase(b.charAt(j-1)) ? 0 : 1;
+				int value = Math.min(Math.min(previous[j] + 1, current[j-1] + 1), previous[j-1] + cost);
+
+				if ( i > 1 && j > 1 && c == Character.toLowerCase(b.charAt(j-2)) && a.charAt(i-2) == Character.toLowerCase(b.charAt(j-1)) ) {
+					value = Math.min(value, beforePrevious[j-2] + 1);
+				}
+
+				current[j] = value;
+				rowMinimum = Math.min(rowMinimum, value);
+			}
+
+			if ( rowMinimum > max ) {
+				return max + 1;
+			}
+
+			int[] recycled = beforePrevious;
+			beforePrevious = previous;
+			previous = current;
+			current = recycled;
+		}
+
+		return Math.min(previous[m], max + 1);
+	}
+
+	/**
+	 * @param word a word
+	 * @return the word in lower case, character by character so that its length does not change
+	 */
+	private static String fold(String word) {
+		char[] chars = word.toCharArray();
+
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(chars[i]);
+		}
+
+		return new String(chars);
+	}
+
+	/**
+	 * Capitalizes a suggestion or puts it in upper case if the misspelled word is.
+	 *
+	 * @param word the misspelled word
+	 * @param suggestion the suggestion, as it is in the dictionary
+	 * @return the suggestion in the case of the misspelled word
+	 */
+	private static String matchCase(String word, String suggestion) {
+		boolean upper = word.length() > 1;
+		for (int i = 0; i < word.length() && upper; i++) {
+			upper = !Character.isLowerCase(word.charAt(i));
+		}
+
+		char[] chars = suggestion.toCharArray();
+		if ( upper ) {
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = Character.toUpperCase(chars[i]);
+			}
+		} else if ( Character.isUpperCase(word.charAt(0)) ) {
+			chars[0] = Character.toUpperCase(chars[0]);
+		}
+
+		return new String(chars);
+	}
+
+	/**
+	 * A word that is within the edit distance of the misspelled word.
+	 */
+	private static final class Candidate implements Comparable<Candidate> {
+		private final String word;
+		private final int distance;
+		private final int rank;
+
+		public Candidate(String word, int distance, int rank) {
+			this.word = word;
+			this.distance = distance;
+			this.rank = rank;
+		}
+
+		@Override
+		public int compareTo(Candidate other) {
+			if ( this.distance != other.distance ) {
+				return this.distance < other.distance ? -1 : 1;
+			}
+
+			if ( this.rank != other.rank ) {
+				return this.rank < other.rank ? -1 : 1;
+			}
+
+			return this.word.compareTo(other.word);
+		}
+	}
+}
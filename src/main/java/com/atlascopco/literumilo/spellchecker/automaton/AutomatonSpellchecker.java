@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker.automaton;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.atlascopco.literumilo.spellchecker.AbstractSpellchecker;
+import com.atlascopco.literumilo.spellchecker.Spellchecker;
+import com.atlascopco.literumilo.spellchecker.SuggestionEngine;
+import com.atlascopco.literumilo.spellchecker.SymmetricDeleteSuggestionEngine;
+
+/**
+ * This is an implementation of the {@link Spellchecker} interface that checks words against a
+ * {@link WordAutomaton} for each dictionary, entirely in Java.
+ *
+ * Since the automata are immutable, any number of threads can check words at the same time
+ * without taking turns, and checking a word does not allocate anything.  Like hunspell, a word
+ * that is in the dictionary in lower case is also accepted capitalized or in upper case, and a
+ * capitalized word is also accepted in upper case.
+ *
+ * This spellchecker does not make any suggestions of its own, but a {@link SuggestionEngine} can
+ * be given for each dictionary, such as a {@link SymmetricDeleteSuggestionEngine} built from the
+ * {@link WordAutomaton#getWords() words} of the automaton.
+ *
+ * @author Thomas Joiner
+ */
+public class AutomatonSpellchecker extends AbstractSpellchecker {
+
+	/**
+	 * Look the word up as it is.
+	 */
+	private static final int AS_IS = 0;
+	/**
+	 * Look the word up with its first character in lower case.
+	 */
+	private static final int LOWER_FIRST = 1;
+	/**
+	 * Look the word up with all but its first character in lower case.
+	 */
+	private static final int LOWER_REST = 2;
+	/**
+	 * Look the word up in lower case.
+	 */
+	private static final int LOWER_ALL = 3;
+
+	private final Map<Locale, WordAutomaton> dictionaries = new ConcurrentHashMap<Locale, WordAutomaton>();
+	private volatile Locale currentLocale;
+	private volatile WordAutomaton currentDictionary;
+	private final Map<Locale, SuggestionEngine> suggestionEngines = new ConcurrentHashMap<Locale, SuggestionEngine>();
+
+	/**
+	 * Adds a dictionary.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param dictionary the automaton accepting the words of the dictionary
+	 */
+	public synchronized void addDictionary(Locale locale, WordAutomaton dictionary) {
+		if ( this.currentDictionary == null ) {
+			this.currentLocale = locale;
+			this.currentDictionary = dictionary;
+		}
+
+		this.dictionaries.put(locale, dictionary);
+	}
+
+	/**
+	 * Adds a dictionary from a hunspell .dic file and its .aff file.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param dic the .dic file
+	 * @param aff the .aff file
+	 * @throws IOException if the files could not be read
+	 * @see HunspellDictionaryReader
+	 */
+	public void addDictionary(Locale locale, File dic, File aff) throws IOException {
+		this.addDictionary(locale, HunspellDictionaryReader.read(dic, aff));
+	}
+
+	/**
+	 * Adds a dictionary that was compiled by the {@link DictionaryCompiler}.  The file is mapped
+	 * into memory rather than read, so this takes next to no time or heap.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param compiled the compiled dictionary
+	 * @throws IOException if the file could not be mapped
+	 * @see WordAutomaton#map(File)
+	 */
+	public void addDictionary(Locale locale, File compiled) throws IOException {
+		this.addDictionary(locale, WordAutomaton.map(compiled));
+	}
+
+	/**
+	 * Sets the {@link SuggestionEngine} that makes the suggestions for a dictionary.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param suggestionEngine the engine, or null for the dictionary to make no suggestions
+	 */
+	public void setSuggestionEngine(Locale locale, SuggestionEngine suggestionEngine) {
+		if ( suggestionEngine == null ) {
+			this.suggestionEngines.remove(locale);
+		} else {
+			this.suggestionEngines.put(locale, suggestionEngine);
+		}
+	}
+
+	@Override
+	public boolean misspelled(String word) {
+		return !accepts(this.currentDictionary, word);
+	}
+
+	/**
+	 * Checks whether the automaton accepts the word, allowing for it to be capitalized or in
+	 * upper case.
+	 *
+	 * @param automaton the automaton
+	 * @param word the word
+	 * @return true if the word is correctly spelled
+	 */
+	static boolean accepts(WordAutomaton automaton, String word) {
+		if ( lookUp(automaton, word, AS_IS) ) {
+			return true;
+		}
+
+		int upper = 0;
+		for (int i = 0; i < word.length(); i++) {
+			if ( Character.isUpperCase(word.charAt(i)) ) {
+				upper++;
+			}
+		}
+
+		if ( upper == 0 ) {
+			return false;
+		}
+
+		boolean capitalized = Character.isUpperCase(word.charAt(0));
+		if ( capitalized && upper == 1 ) {
+			return lookUp(automaton, word, LOWER_FIRST);
+		}
+
+		boolean allUpper = true;
+		for (int i = 0; i < word.length() && allUpper; i++) {
+			allUpper = !Character.isLowerCase(word.charAt(i));
+		}
+
+		if ( allUpper ) {
+			return lookUp(automaton, word, LOWER_ALL) || lookUp(automaton, word, LOWER_REST);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Looks a word up, changing the case of some of its characters on the way.
+	 *
+	 * @param automaton the automaton
+	 * @param word the word
+	 * @param mode which characters to put in lower case
+	 * @return true if the automaton accepts the word
+	 */
+	private static boolean lookUp(WordAutomaton automaton, String word, int mode) {
+		int state = WordAutomaton.ROOT;
+
+		for (int i = 0; i < word.length() && state != WordAutomaton.REJECT; i++) {
+			char c = word.charAt(i);
+
+			if ( mode == LOWER_ALL || (mode == LOWER_FIRST && i == 0) || (mode == LOWER_REST && i > 0) ) {
+				c = Character.toLowerCase(c);
+			}
+
+			state = automaton.step(state, c);
+		}
+
+		return automaton.isFinal(state);
+	}
+
+	@Override
+	public List<String> suggest(String word) {
+		Locale locale = this.currentLocale;
+		SuggestionEngine suggestionEngine = locale == null ? null : this.suggestionEngines.get(locale);
+
+		if ( suggestionEngine == null ) {
+			return new ArrayList<String>();
+		}
+
+		return suggestionEngine.suggest(word);
+	}
+
+	@Override
+	public void setDictionary(Locale locale) throws IllegalArgumentException {
+		synchronized (this) {
+			if ( !this.dictionaries.containsKey(locale) ) {
+				throw new IllegalArgumentException("No dictionary registered for locale: "+locale);
+			}
+
+			this.currentLocale = locale;
+			this.currentDictionary = this.dictionaries.get(locale);
+		}
+
+		this.fireDictionaryChange();
+	}
+
+	@Override
+	public List<Locale> getAvailableDictionaries() {
+		return new ArrayList<Locale>(this.dictionaries.keySet());
+	}
+
+	@Override
+	public Locale getCurrentDictionary() {
+		Locale locale = this.currentLocale;
+
+		if ( locale == null || !this.dictionaries.containsKey(locale) ) {
+			throw new IllegalStateException("Currently selected dictionary no longer exists.");
+		}
+
+		return locale;
+	}
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker.automaton;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class compiles dictionaries into {@link WordAutomaton} files ahead of time, so that all
+ * that is left to do at runtime is to {@link WordAutomaton#map(File) map} them.
+ *
+ * It can be run from the command line:
+ *
+ * <pre>
+ * java com.atlascopco.literumilo.spellchecker.automaton.DictionaryCompiler en_US.dic en_US.aff en_US.dawg
+ * java com.atlascopco.literumilo.spellchecker.automaton.DictionaryCompiler words.txt en_US.dawg
+ * </pre>
+ *
+ * The first form compiles a hunspell dictionary, the second a plain UTF-8 list of words, one per
+ * line.
+ *
+ * @author Thomas Joiner
+ */
+public class DictionaryCompiler {
+
+	private DictionaryCompiler() {
+		// Only static methods
+	}
+
+	/**
+	 * Compiles a hunspell dictionary.
+	 *
+	 * @param dic the .dic file
+	 * @param aff the .aff file
+	 * @param output the file to write the automaton to
+	 * @return the automaton that was written
+	 * @throws IOException if a file could not be read or written
+	 */
+	public static WordAutomaton compile(File dic, File aff, File output) throws IOException {
+		WordAutomaton automaton = HunspellDictionaryReader.read(dic, aff);
+		automaton.write(output);
+		return automaton;
+	}
+
+	/**
+	 * Compiles a list of words.
+	 *
+	 * @param words a UTF-8 file with one word on each line
+	 * @param output the file to write the automaton to
+	 * @return the automaton that was written
+	 * @throws IOException if a file could not be read or written
+	 */
+	public static WordAutomaton compile(File words, File output) throws IOException {
+		List<String> list = new ArrayList<String>();
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(words), "UTF-8"));
+		try {
+			for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+				line = line.trim();
+				if ( line.length() > 0 ) {
+					list.add(line);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+
+		Collections.sort(list);
+
+		WordAutomatonBuilder builder = new WordAutomatonBuilder();
+		for (String word : list) {
+			builder.add(word);
+		}
+
+		WordAutomaton automaton = builder.build();
+		automaton.write(output);
+		return automaton;
+	}
+
+	public static void main(String[] args) throws IOException {
+		long start = System.currentTimeMillis();
+		WordAutomaton automaton;
+
+		if ( args.length == 3 ) {
+			automaton = compile(new File(args[0]), new File(args[1]), new File(args[2]));
+		} else if ( args.length == 2 ) {
+			automaton = compile(new File(args[0]), new File(args[1]));
+		} else {
+			System.err.println("Usage: DictionaryCompiler <dic> <aff> <output>");
+			System.err.println("       DictionaryCompiler <word list> <output>");
+			System.exit(1);
+			return;
+		}
+
+		System.out.println("Compiled " + automaton.getWordCount() + " words into " + automaton.getStateCount()
+				+ " states and " + automaton.getTransitionCount() + " transitions (" + automaton.getMemorySize()
+				+ " bytes) in " + (System.currentTimeMillis() - start) + " ms.");
+	}
+}
@@ -0,0 +1,547 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker.automaton;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * This class reads a hunspell dictionary (a .dic file and its .aff file) and spells out every
+ * form of every word in it, by applying the prefixes and suffixes that each word is flagged with,
+ * so that the words can be put into a {@link WordAutomaton}.
+ *
+ * The prefixes and suffixes ({@code PFX} and {@code SFX}), including combining the two where
+ * both allow it, the {@code SET}, {@code FLAG} and {@code AF} settings, and the
+ * {@code NEEDAFFIX}, {@code FORBIDDENWORD} and {@code ONLYINCOMPOUND} flags are understood.
+ * Compound words, affixes that are themselves flagged with further affixes, and the
+ * morphological data are not, so a dictionary that relies on them accepts fewer words than
+ * hunspell itself would.
+ *
+ * @author Thomas Joiner
+ */
+public class HunspellDictionaryReader {
+
+	private enum FlagType {
+		/**
+		 * Each character is a flag.
+		 */
+		SINGLE,
+		/**
+		 * Each pair of characters is a flag.
+		 */
+		LONG,
+		/**
+		 * The flags are numbers, separated by commas.
+		 */
+		NUMERIC
+	}
+
+	private Charset charset = Charset.forName("ISO-8859-1");
+	private FlagType flagType = FlagType.SINGLE;
+	private final List<int[]> aliases = new ArrayList<int[]>();
+	private final List<Affix> prefixes = new ArrayList<Affix>();
+	private final List<Affix> suffixes = new ArrayList<Affix>();
+	private int needAffix = -1;
+	private int forbidden = -1;
+	private int onlyInCompound = -1;
+
+	/**
+	 * Creates a {@link HunspellDictionaryReader} that applies the affixes in the given file.
+	 *
+	 * @param aff the .aff file
+	 * @throws IOException if the file could not be read
+	 */
+	public HunspellDictionaryReader(File aff) throws IOException {
+		byte[] bytes = readFully(aff);
+
+		// The encoding is given in the file itself, so look for it before anything else
+		String text = new String(bytes, "ISO-8859-1");
+		for (String line : text.split("\r?\n")) {
+			String[] fields = split(line);
+			if ( fields.length >= 2 && fields[0].equals("SET") ) {
+				this.charset = toCharset(fields[1]);
+				text = new String(bytes, this.charset.name());
+				break;
+			}
+		}
+
+		this.parseAffixes(text.split("\r?\n"));
+	}
+
+	/**
+	 * Reads a hunspell dictionary into a {@link WordAutomaton}.
+	 *
+	 * @param dic the .dic file
+	 * @param aff the .aff file
+	 * @return the automaton accepting every form of every word in the dictionary
+	 * @throws IOException if the files could not be read
+	 */
+	public static WordAutomaton read(File dic, File aff) throws IOException {
+		return new HunspellDictionaryReader(aff).read(dic);
+	}
+
+	/**
+	 * Reads the words of a .dic file into a {@link WordAutomaton}.
+	 *
+	 * @param dic the .dic file
+	 * @return the automaton accepting every form of every word in the dictionary
+	 * @throws IOException if the file could not be read
+	 */
+	public WordAutomaton read(File dic) throws IOException {
+		WordAutomatonBuilder builder = new WordAutomatonBuilder();
+
+		for (String word : this.expand(dic)) {
+			builder.add(word);
+		}
+
+		return builder.build();
+	}
+
+	/**
+	 * Spells out every form of every word of a .dic file.
+	 *
+	 * @param dic the .dic file
+	 * @return the words, sorted and without duplicates
+	 * @throws IOException if the file could not be read
+	 */
+	public List<String> expand(File dic) throws IOException {
+		List<String> words = new ArrayList<String>();
+		Set<String> forbiddenWords = new HashSet<String>();
+
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(dic), this.charset));
+		try {
+			String line = reader.readLine();
+
+			// The first line is the (approximate) number of words
+			if ( line != null && line.trim().matches("\\d+") ) {
+				line = reader.readLine();
+			}
+
+			for (; line != null; line = reader.readLine()) {
+				this.expandLine(line, words, forbiddenWords);
+			}
+		} finally {
+			reader.close();
+		}
+
+		Collections.sort(words);
+
+		// Remove the duplicates and the forbidden words, in place
+		int kept = 0;
+		for (int i = 0; i < words.size(); i++) {
+			String word = words.get(i);
+
+			if ( (kept == 0 || !words.get(kept-1).equals(word)) && !forbiddenWords.contains(word) ) {
+				words.set(kept++, word);
+			}
+		}
+		words.subList(kept, words.size()).clear();
+
+		return words;
+	}
+
+	/**
+	 * Adds all the forms of the word on a line of a .dic file.
+	 *
+	 * @param line the line
+	 * @param words the list to add the forms to
+	 * @param forbiddenWords the set to add the word to if it is forbidden
+	 */
+	private void expandLine(String line, List<String> words, Set<String> forbiddenWords) {
+		// Anything after the first space or tab is morphological data
+		line = line.trim();
+		for (int i = 0; i < line.length(); i++) {
+			if ( Character.isWhitespace(line.charAt(i)) ) {
+				line = line.substring(0, i);
+				break;
+			}
+		}
+		if ( line.length() == 0 ) {
+			return;
+		}
+
+		// The flags come after the first slash that is not escaped (and not the first character)
+		String word = line;
+		int[] flags = new int[0];
+		for (int i = 1; i < line.length(); i++) {
+			if ( line.charAt(i) == '/' && line.charAt(i-1) != '\\' ) {
+				word = line.substring(0, i);
+				flags = this.parseFlags(line.substring(i+1));
+				break;
+			}
+		}
+
+		word = word.replace("\\/", "/");
+
+		if ( hasFlag(flags, this.forbidden) ) {
+			forbiddenWords.add(word);
+			return;
+		}
+
+		if ( !hasFlag(flags, this.needAffix) && !hasFlag(flags, this.onlyInCompound) ) {
+			words.add(word);
+		}
+
+		List<String> crossable = new ArrayList<String>();
+		for (Affix suffix : this.suffixes) {
+			if ( hasFlag(flags, suffix.flag) && suffix.matches(word) ) {
+				String form = suffix.apply(word);
+				words.add(form);
+
+				if ( suffix.cross ) {
+					crossable.add(form);
+				}
+			}
+		}
+
+		for (Affix prefix : this.prefixes) {
+			if ( hasFlag(flags, prefix.flag) ) {
+				if ( prefix.matches(word) ) {
+					words.add(prefix.apply(word));
+				}
+
+				if ( prefix.cross ) {
+					for (String form : crossable) {
+						if ( prefix.matches(form) ) {
+							words.add(prefix.apply(form));
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses the lines of a .aff file.
+	 *
+	 * @param lines the lines
+	 * @throws IOException if the file is malformed
+	 */
+	private void parseAffixes(String[] lines) throws IOException {
+		// The affix class that the next lines belong to, and how many lines it has left
+		String currentType = null;
+		int currentFlag = -1;
+		boolean currentCross = false;
+		int remaining = 0;
+		boolean aliasHeader = true;
+
+		for (String line : lines) {
+			String[] fields = split(line);
+			if ( fields.length == 0 || fields[0].startsWith("#") ) {
+				continue;
+			}
+
+			String keyword = fields[0];
+
+			if ( keyword.equals("FLAG") && fields.length >= 2 ) {
+				if ( fields[1].equals("long") ) {
+					this.flagType = FlagType.LONG;
+				} else if ( fields[1].equals("num") ) {
+					this.flagType = FlagType.NUMERIC;
+				} else {
+					// UTF-8 flags are single characters once the file is decoded
+					this.flagType = FlagType.SINGLE;
+				}
+			} else if ( keyword.equals("AF") && fields.length >= 2 ) {
+				// The first line gives the number of aliases, which are then numbered from 1
+				if ( aliasHeader ) {
+					aliasHeader = false;
+				} else {
+					this.aliases.add(this.parseFlagList(fields[1]));
+				}
+			} else if ( (keyword.equals("NEEDAFFIX") || keyword.equals("PSEUDOROOT")) && fields.length >= 2 ) {
+				this.needAffix = this.parseFlag(fields[1]);
+			} else if ( keyword.equals("FORBIDDENWORD") && fields.length >= 2 ) {
+				this.forbidden = this.parseFlag(fields[1]);
+			} else if ( keyword.equals("ONLYINCOMPOUND") && fields.length >= 2 ) {
+				this.onlyInCompound = this.parseFlag(fields[1]);
+			} else if ( (keyword.equals("PFX") || keyword.equals("SFX")) && fields.length >= 4 ) {
+				int flag = this.parseFlag(fields[1]);
+
+				if ( remaining == 0 || !keyword.equals(currentType) || flag != currentFlag ) {
+					// The header of a new class: PFX flag cross count
+					currentType = keyword;
+					currentFlag = flag;
+					currentCross = fields[2].equals("Y");
+					try {
+						remaining = Integer.parseInt(fields[3]);
+					} catch (NumberFormatException e) {
+						throw new IOException("Malformed affix header: "+line);
+					}
+				} else {
+					// A rule of the class: PFX flag strip add condition
+					String strip = fields[2].equals("0") ? "" : fields[2];
+					String add = fields[3];
+
+					// The affix may be flagged with further affixes, which are not supported
+					int slash = add.indexOf('/');
+					if ( slash >= 0 ) {
+						add = add.substring(0, slash);
+					}
+					if ( add.equals("0") ) {
+						add = "";
+					}
+
+					String condition = fields.length >= 5 ? fields[4] : ".";
+					boolean prefix = keyword.equals("PFX");
+					Affix affix = new Affix(flag, prefix, currentCross, strip, add, condition);
+
+					if ( prefix ) {
+						this.prefixes.add(affix);
+					} else {
+						this.suffixes.add(affix);
+					}
+					remaining--;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Parses the flags written after a word, which may be given by the number of an alias.
+	 *
+	 * @param text the flags
+	 * @return the flags, sorted
+	 */
+	private int[] parseFlags(String text) {
+		if ( this.aliases.size() > 0 && text.matches("\\d+") ) {
+			int alias = Integer.parseInt(text);
+			return alias >= 1 && alias <= this.aliases.size() ? this.aliases.get(alias-1) : new int[0];
+		}
+
+		return this.parseFlagList(text);
+	}
+
+	/**
+	 * Parses a set of flags that are written out.
+	 *
+	 * @param text the flags
+	 * @return the flags, sorted
+	 */
+	private int[] parseFlagList(String text) {
+		int[] flags;
+
+		switch ( this.flagType ) {
+		case LONG:
+			flags = new int[text.length() / 2];
+			for (int i = 0; i < flags.length; i++) {
+				flags[i] = (text.charAt(2*i) << 16) | text.charAt(2*i+1);
+			}
+			break;
+		case NUMERIC:
+			String[] numbers = text.split(",");
+			flags = new int[numbers.length];
+			for (int i = 0; i < numbers.length; i++) {
+				flags[i] = parseNumber(numbers[i]);
+			}
+			break;
+		default:
+			flags = new int[text.length()];
+			for (int i = 0; i < flags.length; i++) {
+				flags[i] = text.charAt(i);
+			}
+		}
+
+		Arrays.sort(flags);
+		return flags;
+	}
+
+	/**
+	 * Parses a single flag.
+	 *
+	 * @param text the flag
+	 * @return the flag
+	 */
+	private int parseFlag(String text) {
+		switch ( this.flagType ) {
+		case LONG:
+			return text.length() >= 2 ? (text.charAt(0) << 16) | text.charAt(1) : text.charAt(0);
+		case NUMERIC:
+			return parseNumber(text);
+		default:
+			return text.charAt(0);
+		}
+	}
+
+	private static int parseNumber(String text) {
+		try {
+			return Integer.parseInt(text.trim());
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
+
+	private static boolean hasFlag(int[] flags, int flag) {
+		return flag >= 0 && Arrays.binarySearch(flags, flag) >= 0;
+	}
+
+	private static String[] split(String line) {
+		String trimmed = line.trim();
+		return trimmed.length() == 0 ? new String[0] : trimmed.split("\\s+");
+	}
+
+	/**
+	 * Converts the name of an encoding, as hunspell knows it, to a {@link Charset}.
+	 *
+	 * @param name the name of the encoding
+	 * @return the charset
+	 * @throws IOException if the encoding is not supported
+	 */
+	private static Charset toCharset(String name) throws IOException {
+		String javaName = name;
+
+		if ( name.startsWith("ISO8859-") ) {
+			javaName = "ISO-8859-" + name.substring("ISO8859-".length());
+		} else if ( name.startsWith("microsoft-cp") ) {
+			javaName = "windows-" + name.substring("microsoft-cp".length());
+		}
+
+		try {
+			return Charset.forName(javaName);
+		} catch (IllegalCharsetNameException e) {
+			throw new IOException("Unsupported encoding: "+name);
+		} catch (UnsupportedCharsetException e) {
+			throw new IOException("Unsupported encoding: "+name);
+		}
+	}
+
+	private static byte[] readFully(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+
+			while ( (read = in.read(buffer)) != -1 ) {
+				out.write(buffer, 0, read);
+			}
+
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * A single prefix or suffix rule.
+	 */
+	private static final class Affix {
+		private final int flag;
+		private final boolean prefix;
+		private final boolean cross;
+		private final String strip;
+		private final String add;
+		/**
+		 * The characters allowed at each position of the condition.
+		 */
+		private final String[] condition;
+		/**
+		 * Whether the characters at each position of the condition are those that are not allowed.
+		 */
+		private final boolean[] negated;
+
+		public Affix(int flag, boolean prefix, boolean cross, String strip, String add, String condition) {
+			this.flag = flag;
+			this.prefix = prefix;
+			this.cross = cross;
+			this.strip = strip;
+			this.add = add;
+
+			List<String> sets = new ArrayList<String>();
+			List<Boolean> negations = new ArrayList<Boolean>();
+			for (int i = 0; i < condition.length(); i++) {
+				char c = condition.charAt(i);
+
+				if ( c == '[' ) {
+					int end = condition.indexOf(']', i);
+					if ( end < 0 ) {
+						end = condition.length();
+					}
+
+					boolean negation = i + 1 < end && condition.charAt(i+1) == '^';
+					sets.add(condition.substring(negation ? i+2 : i+1, end));
+					negations.add(Boolean.valueOf(negation));
+					i = end;
+				} else if ( c == '.' ) {
+					// Anything but nothing
+					sets.add("");
+					negations.add(Boolean.TRUE);
+				} else {
+					sets.add(String.valueOf(c));
+					negations.add(Boolean.FALSE);
+				}
+			}
+
+			this.condition = sets.toArray(new String[sets.size()]);
+			this.negated = new boolean[negations.size()];
+			for (int i = 0; i < this.negated.length; i++) {
+				this.negated[i] = negations.get(i).booleanValue();
+			}
+		}
+
+		/**
+		 * @param word the word
+		 * @return true if the affix can be applied to the word
+		 */
+		public boolean matches(String word) {
+			if ( word.length() <= this.strip.length() || word.length() < this.condition.length ) {
+				return false;
+			}
+
+			if ( this.prefix ? !word.startsWith(this.strip) : !word.endsWith(this.strip) ) {
+				return false;
+			}
+
+			// A prefix's condition applies to the start of the word, a suffix's to the end
+			int start = this.prefix ? 0 : word.length() - this.condition.length;
+			for (int i = 0; i < this.condition.length; i++) {
+				boolean inSet = this.condition[i].indexOf(word.charAt(start + i)) >= 0;
+
+				if ( inSet == this.negated[i] ) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		/**
+		 * @param word a word that the affix {@link #matches(String)}
+		 * @return the word with the affix applied
+		 */
+		public String apply(String word) {
+			if ( this.prefix ) {
+				return this.add + word.substring(this.strip.length());
+			} else {
+				return word.substring(0, word.length() - this.strip.length()) + this.add;
+			}
+		}
+	}
+}
@@ -0,0 +1,397 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker.automaton;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.atlascopco.literumilo.spellchecker.SuggestionEngine;
+
+/**
+ * This class is a minimal acyclic automaton that accepts a fixed set of words.  Words that share
+ * a prefix share the states for it, and so do words that share a suffix, so even a dictionary
+ * with every inflected form of every word spelled out takes up little memory.
+ *
+ * The automaton is stored in a few flat buffers rather than as objects: the transitions of each
+ * state are kept together, sorted by their label, so that looking a word up is a binary search
+ * per character.  Instances are immutable, so they can be used by any number of threads at once,
+ * and looking a word up does not allocate anything.
+ *
+ * Instances are created by a {@link WordAutomatonBuilder}, or {@link #map(File) mapped} from a file
+ * written by {@link #write(File)}.  A mapped automaton is not loaded onto the heap at all: it is
+ * read straight out of the operating system's page cache, which is shared by every process that
+ * maps the same file.
+ *
+ * The file starts with a header of six big-endian ints: the magic number, the version of the
+ * format, the number of states, the number of transitions, the number of words, and a reserved
+ * int.  It is followed by the final state bits (as longs), the index of the first transition of
+ * each state and the target of each transition (as ints), and lastly the label of each
+ * transition (as chars).  Mapping a file checks that all of these are consistent, so that a
+ * corrupt file is rejected rather than sending lookups outside of the automaton.
+ *
+ * @author Thomas Joiner
+ */
+public final class WordAutomaton {
+
+	/**
+	 * The state that every word starts in.
+	 */
+	public static final int ROOT = 0;
+	/**
+	 * The state that a word is in once it has left the automaton; it accepts nothing.
+	 */
+	public static final int REJECT = -1;
+
+	/**
+	 * The number that files in the format start with ("LTDA").
+	 */
+	private static final int MAGIC = 0x4C544441;
+	/**
+	 * The version of the format that is written, and the only one that can be read.
+	 */
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 6 * 4;
+
+	/**
+	 * The index of the first transition of each state; the transitions of state {@code s} are
+	 * those from {@code firstTransition[s]} up to {@code firstTransition[s+1]}.
+	 */
+	private final IntBuffer firstTransition;
+	private final CharBuffer labels;
+	private final IntBuffer targets;
+	/**
+	 * Whether each state ends a word, one bit per state.
+	 */
+	private final LongBuffer finals;
+	private final int stateCount;
+	private final int transitionCount;
+	private final int wordCount;
+
+	WordAutomaton(int[] firstTransition, char[] labels, int[] targets, long[] finals, int wordCount) {
+		this(IntBuffer.wrap(firstTransition), CharBuffer.wrap(labels), IntBuffer.wrap(targets), LongBuffer.wrap(finals), wordCount);
+	}
+
+	private WordAutomaton(IntBuffer firstTransition, CharBuffer labels, IntBuffer targets, LongBuffer finals, int wordCount) {
+		// Only absolute gets are ever used, so the buffers can be shared between threads
+		this.firstTransition = firstTransition;
+		this.labels = labels;
+		this.targets = targets;
+		this.finals = finals;
+		this.stateCount = firstTransition.capacity() - 1;
+		this.transitionCount = labels.capacity();
+		this.wordCount = wordCount;
+	}
+
+	/**
+	 * Maps an automaton written by {@link #write(File)} into memory, read-only.  The file must not
+	 * be changed while the automaton is in use.
+	 *
+	 * @param file the file to map
+	 * @return the automaton
+	 * @throws IOException if the file could not be mapped, is not in a supported format, or is
+	 *         corrupt
+	 */
+	public static WordAutomaton map(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		MappedByteBuffer buffer;
+		try {
+			if ( randomAccessFile.length() > Integer.MAX_VALUE ) {
+				throw new IOException("Word automaton is too large to map ("+randomAccessFile.length()+" bytes): "+file);
+			}
+
+			// The mapping stays valid once the file is closed
+			buffer = randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, randomAccessFile.length());
+		} finally {
+			randomAccessFile.close();
+		}
+
+		if ( buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC ) {
+			throw new IOException("Not a word automaton: "+file);
+		}
+
+		int version = buffer.getInt(4);
+		if ( version != VERSION ) {
+			throw new IOException("Unsupported word automaton version "+version+" (expected "+VERSION+"): "+file);
+		}
+
+		int stateCount = buffer.getInt(8);
+		int transitionCount = buffer.getInt(12);
+		int wordCount = buffer.getInt(16);
+		if ( stateCount < 1 || transitionCount < 0 || wordCount < 0 ) {
+			throw new IOException("Corrupt word automaton header ("+stateCount+" states, "+transitionCount+" transitions, "+wordCount+" words): "+file);
+		}
+		int finalsLength = (int) (((long) stateCount + 63) >>> 6);
+
+		long size = HEADER_SIZE + 8L * finalsLength + 4L * ((long) stateCount + 1) + 4L * transitionCount + 2L * transitionCount;
+		if ( buffer.capacity() < size ) {
+			throw new IOException("Truncated word automaton: "+file);
+		}
+
+		int position = HEADER_SIZE;
+		LongBuffer finals = slice(buffer, position, 8 * finalsLength).asLongBuffer();
+		position += 8 * finalsLength;
+		IntBuffer firstTransition = slice(buffer, position, 4 * (stateCount + 1)).asIntBuffer();
+		position += 4 * (stateCount + 1);
+		IntBuffer targets = slice(buffer, position, 4 * transitionCount).asIntBuffer();
+		position += 4 * transitionCount;
+		CharBuffer labels = slice(buffer, position, 2 * transitionCount).asCharBuffer();
+
+		validate(file, firstTransition, labels, targets);
+
+		return new WordAutomaton(firstTransition, labels, targets, finals, wordCount);
+	}
+
+	/**
+	 * Checks that the transitions of each state lie within the transitions, in order of their
+	 * labels, and that every transition leads to a state, so that {@link #step(int, char)} can
+	 * never be sent outside of the buffers.
+	 *
+	 * @throws IOException if the automaton is corrupt
+	 */
+	private static void validate(File file, IntBuffer firstTransition, CharBuffer labels, IntBuffer targets) throws IOException {
+		int stateCount = firstTransition.capacity() - 1;
+		int transitionCount = labels.capacity();
+
+		if ( firstTransition.get(0) != 0 || firstTransition.get(stateCount) != transitionCount ) {
+			throw new IOException("Corrupt word automaton, the transitions do not add up: "+file);
+		}
+
+		for (int state = 0; state < stateCount; state++) {
+			int start = firstTransition.get(state);
+			int end = firstTransition.get(state+1);
+
+			if ( end < start ) {
+				throw new IOException("Corrupt word automaton, state "+state+" has transitions "+start+" to "+end+": "+file);
+			}
+			for (int transition = start + 1; transition < end; transition++) {
+				if ( labels.get(transition - 1) >= labels.get(transition) ) {
+					throw new IOException("Corrupt word automaton, the transitions of state "+state+" are not sorted: "+file);
+				}
+			}
+		}
+
+		for (int transition = 0; transition < transitionCount; transition++) {
+			int target = targets.get(transition);
+
+			if ( target < 0 || target >= stateCount ) {
+				throw new IOException("Corrupt word automaton, transition "+transition+" leads to state "+target+": "+file);
+			}
+		}
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+		ByteBuffer duplicate = buffer.duplicate();
+		duplicate.position(position);
+		duplicate.limit(position + length);
+		return duplicate.slice();
+	}
+
+	/**
+	 * Writes the automaton to a file, which can then be {@link #map(File) mapped} back in.
+	 *
+	 * @param file the file to write to
+	 * @throws IOException if the file could not be written, or the automaton is too large for
+	 *         the format
+	 */
+	public void write(File file) throws IOException {
+		int finalsLength = (this.stateCount + 63) >>> 6;
+		long size = HEADER_SIZE + 8L * finalsLength + 4L * (this.stateCount + 1) + 6L * this.transitionCount;
+		if ( size > Integer.MAX_VALUE ) {
+			throw new IOException("The word automaton is too large to write ("+size+" bytes).");
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(this.stateCount);
+		buffer.putInt(this.transitionCount);
+		buffer.putInt(this.wordCount);
+		buffer.putInt(0);
+
+		for (int i = 0; i < finalsLength; i++) {
+			buffer.putLong(this.finals.get(i));
+		}
+		for (int i = 0; i <= this.stateCount; i++) {
+			buffer.putInt(this.firstTransition.get(i));
+		}
+		for (int i = 0; i < this.transitionCount; i++) {
+			buffer.putInt(this.targets.get(i));
+		}
+		for (int i = 0; i < this.transitionCount; i++) {
+			buffer.putChar(this.labels.get(i));
+		}
+		buffer.flip();
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(0);
+			FileChannel channel = randomAccessFile.getChannel();
+			while ( buffer.hasRemaining() ) {
+				channel.write(buffer);
+			}
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * @param word the word to look up
+	 * @return true if the word is one of the words of the automaton
+	 */
+	public boolean contains(CharSequence word) {
+		int state = ROOT;
+
+		for (int i = 0; i < word.length() && state != REJECT; i++) {
+			state = this.step(state, word.charAt(i));
+		}
+
+		return this.isFinal(state);
+	}
+
+	/**
+	 * Spells out every word that the automaton accepts, for example to build a
+	 * {@link SuggestionEngine} for it.  This puts all of the words on the heap, so it takes far
+	 * more memory than the automaton itself.
+	 *
+	 * @return the words, in the order of their characters
+	 */
+	public List<String> getWords() {
+		List<String> words = new ArrayList<String>(this.wordCount);
+		this.collectWords(ROOT, new StringBuilder(), words);
+		return words;
+	}
+
+	private void collectWords(int state, StringBuilder prefix, List<String> words) {
+		if ( this.isFinal(state) ) {
+			words.add(prefix.toString());
+		}
+
+		for (int transition = this.getFirstTransition(state); transition < this.getEndTransition(state); transition++) {
+			prefix.append(this.getLabel(transition));
+			this.collectWords(this.getTarget(transition), prefix, words);
+			prefix.setLength(prefix.length() - 1);
+		}
+	}
+
+	/**
+	 * Follows the transition for a character out of a state.
+	 *
+	 * @param state the state to start in
+	 * @param c the character
+	 * @return the state that the transition leads to, or {@link #REJECT} if there is none
+	 */
+	public int step(int state, char c) {
+		if ( state == REJECT ) {
+			return REJECT;
+		}
+
+		int low = this.firstTransition.get(state);
+		int high = this.firstTransition.get(state+1) - 1;
+
+		while ( low <= high ) {
+			int middle = (low + high) >>> 1;
+			char label = this.labels.get(middle);
+
+			if ( label < c ) {
+				low = middle + 1;
+			} else if ( label > c ) {
+				high = middle - 1;
+			} else {
+				return this.targets.get(middle);
+			}
+		}
+
+		return REJECT;
+	}
+
+	/**
+	 * @param state the state
+	 * @return true if a word ends in the state
+	 */
+	public boolean isFinal(int state) {
+		return state != REJECT && (this.finals.get(state >>> 6) & (1L << state)) != 0;
+	}
+
+	/**
+	 * @return the number of states
+	 */
+	public int getStateCount() {
+		return this.stateCount;
+	}
+
+	/**
+	 * @return the number of transitions
+	 */
+	public int getTransitionCount() {
+		return this.transitionCount;
+	}
+
+	/**
+	 * @return the number of words that the automaton accepts
+	 */
+	public int getWordCount() {
+		return this.wordCount;
+	}
+
+	/**
+	 * @return how much memory the automaton takes up, in bytes (which is not on the heap if it
+	 *         was mapped)
+	 */
+	public long getMemorySize() {
+		return 4L * (this.stateCount + 1) + 6L * this.transitionCount + 8L * ((this.stateCount + 63) >>> 6);
+	}
+
+	/**
+	 * @return true if the automaton was mapped from a file rather than built on the heap
+	 */
+	public boolean isMapped() {
+		return this.labels.isDirect();
+	}
+
+	/**
+	 * @param state the state
+	 * @return the index of the first transition of the state
+	 */
+	int getFirstTransition(int state) {
+		return this.firstTransition.get(state);
+	}
+
+	/**
+	 * @param state the state
+	 * @return the index just past the last transition of the state
+	 */
+	int getEndTransition(int state) {
+		return this.firstTransition.get(state+1);
+	}
+
+	char getLabel(int transition) {
+		return this.labels.get(transition);
+	}
+
+	int getTarget(int transition) {
+		return this.targets.get(transition);
+	}
+}
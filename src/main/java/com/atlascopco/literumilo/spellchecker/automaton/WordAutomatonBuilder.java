@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker.automaton;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class builds a {@link WordAutomaton} from a list of words, which must be added in sorted
+ * order (as given by {@link String#compareTo(String)}).
+ *
+ * It uses the incremental algorithm of Daciuk et al., which keeps the automaton minimal as it
+ * goes: once a word has been added, the states for the part of the previous word that it does
+ * not share can no longer change, so they are replaced by an equivalent state that was already
+ * built if there is one.  Only the states for the last word added are ever not yet minimal, so
+ * building needs little more memory than the finished automaton does.
+ *
+ * @author Thomas Joiner
+ */
+public class WordAutomatonBuilder {
+
+	/**
+	 * The states that can no longer change, each of which is distinct from all the others.
+	 */
+	private final Map<State, State> register = new HashMap<State, State>();
+	/**
+	 * The states for the last word added, starting with the root.
+	 */
+	private final List<State> path = new ArrayList<State>();
+	private String previous;
+	private int wordCount;
+	private boolean built;
+
+	public WordAutomatonBuilder() {
+		this.path.add(new State());
+	}
+
+	/**
+	 * Adds a word to the automaton.  Adding the same word more than once has no effect.
+	 *
+	 * @param word the word to add, which must not come before the last word added
+	 * @throws IllegalArgumentException if the word comes before the last word added
+	 * @throws IllegalStateException if the automaton has already been built
+	 */
+	public void add(String word) throws IllegalArgumentException, IllegalStateException {
+		if ( this.built ) {
+			throw new IllegalStateException("The automaton has already been built.");
+		}
+
+		int prefix = 0;
+		if ( this.previous != null ) {
+			int order = word.compareTo(this.previous);
+			if ( order < 0 ) {
+				throw new IllegalArgumentException("Words must be added in sorted order (\""+word+"\" came after \""+this.previous+"\").");
+			} else if ( order == 0 ) {
+				return;
+			}
+
+			int length = Math.min(word.length(), this.previous.length());
+			while ( prefix < length && word.charAt(prefix) == this.previous.charAt(prefix) ) {
+				prefix++;
+			}
+		}
+
+		// The rest of the previous word is done with
+		this.freeze(prefix);
+
+		for (int i = prefix; i < word.length(); i++) {
+			State state = new State();
+			this.path.get(i).addTransition(word.charAt(i), state);
+			this.path.add(state);
+		}
+		this.path.get(word.length()).accepting = true;
+
+		this.previous = word;
+		this.wordCount++;
+	}
+
+	/**
+	 * Builds the automaton out of all of the words that were added.  The builder can not be used
+	 * any more afterwards.
+	 *
+	 * @return the automaton
+	 */
+	public WordAutomaton build() {
+		if ( this.built ) {
+			throw new IllegalStateException("The automaton has already been built.");
+		}
+		this.built = true;
+
+		this.freeze(0);
+		State root = this.path.get(0);
+		this.register.clear();
+
+		// Number the states breadth first, so that the states near the root (which every
+		// lookup goes through) end up close together.
+		Map<State, Integer> numbers = new IdentityHashMap<State, Integer>();
+		List<State> states = new ArrayList<State>();
+		numbers.put(root, Integer.valueOf(0));
+		states.add(root);
+		int transitionCount = 0;
+
+		for (int i = 0; i < states.size(); i++) {
+			State state = states.get(i);
+			transitionCount += state.count;
+
+			for (int t = 0; t < state.count; t++) {
+				State target = state.targets[t];
+				if ( !numbers.containsKey(target) ) {
+					numbers.put(target, Integer.valueOf(states.size()));
+					states.add(target);
+				}
+			}
+		}
+
+		int[] firstTransition = new int[states.size()+1];
+		char[] labels = new char[transitionCount];
+		int[] targets = new int[transitionCount];
+		long[] finals = new long[(states.size() + 63) >>> 6];
+
+		int transition = 0;
+		for (int i = 0; i < states.size(); i++) {
+			State state = states.get(i);
+			firstTransition[i] = transition;
+
+			if ( state.accepting ) {
+				finals[i >>> 6] |= 1L << i;
+			}
+
+			for (int t = 0; t < state.count; t++) {
+				labels[transition] = state.labels[t];
+				targets[transition] = numbers.get(state.targets[t]).intValue();
+				transition++;
+			}
+		}
+		firstTransition[states.size()] = transition;
+
+		return new WordAutomaton(firstTransition, labels, targets, finals, this.wordCount);
+	}
+
+	/**
+	 * Replaces the states of the path past the given depth by their equivalents in the register,
+	 * registering those that have none, from the deepest up.
+	 *
+	 * @param depth the number of characters of the path to leave alone
+	 */
+	private void freeze(int depth) {
+		for (int i = this.path.size() - 1; i > depth; i--) {
+			State state = this.path.remove(i);
+			State equivalent = this.register.get(state);
+
+			if ( equivalent == null ) {
+				this.register.put(state, state);
+				equivalent = state;
+			}
+
+			// The state is always the last one added to its parent, since the words are sorted
+			State parent = this.path.get(i-1);
+			parent.targets[parent.count-1] = equivalent;
+		}
+	}
+
+	/**
+	 * A state of the automaton while it is being built.  Two states are equal if they are both
+	 * final or both not, and have the same transitions to the same (registered) states.
+	 */
+	private static final class State {
+		private char[] labels = new char[2];
+		private State[] targets = new State[2];
+		private int count;
+		private boolean accepting;
+
+		public void addTransition(char label, State target) {
+			if ( this.count == this.labels.length ) {
+				this.labels = Arrays.copyOf(this.labels, this.count * 2);
+				this.targets = Arrays.copyOf(this.targets, this.count * 2);
+			}
+
+			this.labels[this.count] = label;
+			this.targets[this.count] = target;
+			this.count++;
+		}
+
+		@Override
+		public int hashCode() {
+			int hash = this.accepting ? 1 : 0;
+
+			for (int i = 0; i < this.count; i++) {
+				hash = 31 * hash + this.labels[i];
+				hash = 31 * hash + System.identityHashCode(this.targets[i]);
+			}
+
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if ( this == obj ) {
+				return true;
+			}
+			if ( !(obj instanceof State) ) {
+				return false;
+			}
+
+			State other = (State) obj;
+			if ( this.accepting != other.accepting || this.count != other.count ) {
+				return false;
+			}
+
+			for (int i = 0; i < this.count; i++) {
+				// The targets are already registered, so they are only equivalent if identical
+				if ( this.labels[i] != other.labels[i] || this.targets[i] != other.targets[i] ) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker.hunspell;
+
+import java.util.Locale;
+
+/**
+ * This class is a snapshot of how a dictionary registered with a {@link HunspellSpellchecker} is
+ * doing: how much memory it takes up, how long it takes to load and when it was last used.
+ *
+ * @author Thomas Joiner
+ */
+public final class DictionaryStatistics {
+
+	private final Locale locale;
+	private final int instanceCount;
+	private final long estimatedFootprint;
+	private final int loadCount;
+	private final long lastLoadTime;
+	private final long lastUsed;
+
+	DictionaryStatistics(Locale locale, HunspellPool pool) {
+		this.locale = locale;
+		this.instanceCount = pool.getInstanceCount();
+		long footprint = pool.getEstimatedFootprint();
+		this.estimatedFootprint = footprint < 0 ? -1 : footprint * this.instanceCount;
+		this.loadCount = pool.getLoadCount();
+		this.lastLoadTime = pool.getLastLoadTime();
+		this.lastUsed = pool.getLastUsed();
+	}
+
+	public Locale getLocale() {
+		return this.locale;
+	}
+
+	/**
+	 * @return the number of {@link com.atlascopco.hunspell.Hunspell} instances that are loaded
+	 */
+	public int getInstanceCount() {
+		return this.instanceCount;
+	}
+
+	/**
+	 * @return true if at least one instance is loaded
+	 */
+	public boolean isLoaded() {
+		return this.instanceCount > 0;
+	}
+
+	/**
+	 * @return the estimated native memory that the loaded instances take up, in bytes, or -1 if
+	 *         it is not known (it is only known for dictionaries loaded by a {@link FileHunspellLoader}
+	 *         that was given the footprint)
+	 */
+	public long getEstimatedFootprint() {
+		return this.estimatedFootprint;
+	}
+
+	/**
+	 * @return the number of instances that have been loaded, counting those that were unloaded again
+	 */
+	public int getLoadCount() {
+		return this.loadCount;
+	}
+
+	/**
+	 * @return how long the last instance took to load, in milliseconds
+	 */
+	public long getLastLoadTime() {
+		return this.lastLoadTime;
+	}
+
+	/**
+	 * @return when the dictionary was last used, as given by {@link System#currentTimeMillis()}, or 0
+	 *         if it has not been
+	 */
+	public long getLastUsed() {
+		return this.lastUsed;
+	}
+
+	@Override
+	public String toString() {
+		return "DictionaryStatistics [locale=" + this.locale + ", instanceCount=" + this.instanceCount
+				+ ", estimatedFootprint=" + this.estimatedFootprint + ", loadCount=" + this.loadCount
+				+ ", lastLoadTime=" + this.lastLoadTime + ", lastUsed=" + this.lastUsed + "]";
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker.hunspell;
+
+import com.atlascopco.hunspell.Hunspell;
+
+/**
+ * This {@link HunspellLoader} loads a dictionary from its .dic and .aff files.  Registering a
+ * dictionary this way costs nothing until it is first used.
+ *
+ * How much native memory a loaded instance takes up depends on the dictionary and on the version
+ * of hunspell, and has no fixed relation to the size of the files, so it can not be worked out
+ * here.  It can be given to the loader instead (measured, for example, by how much the resident
+ * memory of the process grows when the dictionary is loaded), which lets
+ * {@link HunspellSpellchecker#setMemoryBudget(long)} account for it.
+ *
+ * @author Thomas Joiner
+ */
+public class FileHunspellLoader implements HunspellLoader {
+
+	private final String dicPath;
+	private final String affPath;
+	/**
+	 * The native memory that an instance takes up, in bytes, or -1 if it is not known.
+	 */
+	private final long estimatedFootprint;
+
+	/**
+	 * Creates a {@link FileHunspellLoader} for a dictionary whose footprint is not known, so that
+	 * it does not count towards a memory budget.
+	 *
+	 * @param dicPath the path to the .dic file
+	 * @param affPath the path to the .aff file
+	 */
+	public FileHunspellLoader(String dicPath, String affPath) {
+		this(dicPath, affPath, -1);
+	}
+
+	/**
+	 * Creates a {@link FileHunspellLoader}.
+	 *
+	 * @param dicPath the path to the .dic file
+	 * @param affPath the path to the .aff file
+	 * @param estimatedFootprint the native memory that an instance takes up, in bytes, or -1 if it
+	 *        is not known
+	 */
+	public FileHunspellLoader(String dicPath, String affPath, long estimatedFootprint) {
+		if ( dicPath == null || affPath == null ) {
+			throw new NullPointerException("dicPath and affPath must be non-null.");
+		}
+		if ( estimatedFootprint < -1 ) {
+			throw new IllegalArgumentException("estimatedFootprint must not be negative, other than -1 (was "+estimatedFootprint+").");
+		}
+
+		this.dicPath = dicPath;
+		this.affPath = affPath;
+		this.estimatedFootprint = estimatedFootprint;
+	}
+
+	@Override
+	public Hunspell load() {
+		return new Hunspell(this.dicPath, this.affPath);
+	}
+
+	/**
+	 * @return the native memory that an instance takes up once it is loaded, in bytes, or -1 if
+	 *         it is not known
+	 */
+	public long getEstimatedFootprint() {
+		return this.estimatedFootprint;
+	}
+
+	public String getDicPath() {
+		return this.dicPath;
+	}
+
+	public String getAffPath() {
+		return this.affPath;
+	}
+}
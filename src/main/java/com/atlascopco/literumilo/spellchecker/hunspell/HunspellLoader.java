@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker.hunspell;
+
+import com.atlascopco.hunspell.Hunspell;
+
+/**
+ * This interface is implemented by clients in order to let the {@link HunspellSpellchecker}
+ * create {@link Hunspell} instances for a dictionary whenever it needs them.
+ *
+ * @author Thomas Joiner
+ */
+public interface HunspellLoader {
+	/**
+	 * Loads a new {@link Hunspell} instance for the dictionary.  Each call must return a
+	 * separate instance, since each one will only ever be used by one thread at a time.
+	 *
+	 * @return a newly loaded {@link Hunspell} instance
+	 */
+	public Hunspell load();
+}
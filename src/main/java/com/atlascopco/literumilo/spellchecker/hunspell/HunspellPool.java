@@ -0,0 +1,379 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.spellchecker.hunspell;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.atlascopco.hunspell.Hunspell;
+import com.atlascopco.literumilo.spellchecker.BloomFilter;
+
+/**
+ * This class holds the {@link Hunspell} instances for a single dictionary.  Since a {@link Hunspell}
+ * instance may not be used by more than one thread at a time, each of them is leased out to one
+ * thread at a time.  At most {@code size} instances are ever created; they are loaded as they are
+ * needed, and once all of them are leased, further leases wait for one to be released.
+ *
+ * Nothing is loaded until the pool is first used, unless it is asked to {@link #preload(Executor)}.
+ * While the first instance is being loaded, leases wait for it rather than loading instances of
+ * their own.
+ *
+ * A pool that has a loader can also be {@link #unload() unloaded} while none of its instances are
+ * leased, in which case it is loaded again the next time it is used.
+ *
+ * @author Thomas Joiner
+ */
+final class HunspellPool {
+
+	private final HunspellLoader loader;
+	private final int size;
+	/**
+	 * One permit for each instance that may be leased.
+	 */
+	private final Semaphore permits;
+	/**
+	 * The number of instances that are currently loaded.
+	 */
+	private final AtomicInteger instances = new AtomicInteger();
+	private final AtomicInteger loadCount = new AtomicInteger();
+	/**
+	 * How long the last instance took to load, in nanoseconds.
+	 */
+	private volatile long lastLoadTime;
+	/**
+	 * When an instance was last leased, as given by {@link System#currentTimeMillis()}.
+	 */
+	private volatile long lastUsed;
+	/**
+	 * The words that are known to be spelled correctly in the dictionary, or null.
+	 */
+	private volatile BloomFilter knownWords;
+	private final BlockingQueue<Hunspell> idle = new LinkedBlockingQueue<Hunspell>();
+	/**
+	 * Whether the first instance has been loaded.
+	 */
+	private volatile boolean loaded;
+	/**
+	 * Why the last attempt to load the first instance failed, or null if it did not.
+	 */
+	private volatile RuntimeException loadFailure;
+	/**
+	 * Held while the first instance is being loaded.
+	 */
+	private final Object loadLock = new Object();
+	/**
+	 * The task preloading the first instance, or null if it has not been asked for.
+	 */
+	private FutureTask<Void> preloading;
+
+	/**
+	 * Creates a pool consisting of just the given instance.
+	 *
+	 * @param dictionary the only instance in the pool
+	 */
+	public HunspellPool(Hunspell dictionary) {
+		this.loader = null;
+		this.size = 1;
+		this.permits = new Semaphore(1, true);
+		this.idle.add(dictionary);
+		this.instances.set(1);
+		this.loaded = true;
+	}
+
+	/**
+	 * Creates a pool that loads up to {@code size} instances using the loader.
+	 *
+	 * @param loader the {@link HunspellLoader} to load the instances with
+	 * @param size the maximum number of instances
+	 */
+	public HunspellPool(HunspellLoader loader, int size) {
+		if ( loader == null ) {
+			throw new NullPointerException("loader must be non-null.");
+		}
+		if ( size <= 0 ) {
+			throw new IllegalArgumentException("size must be positive (was "+size+").");
+		}
+
+		this.loader = loader;
+		this.size = size;
+		this.permits = new Semaphore(size, true);
+	}
+
+	/**
+	 * Leases an instance out to the calling thread, waiting for one to become available if
+	 * necessary.  The instance must be given back through {@link #release(Hunspell)}.
+	 *
+	 * @return an instance that no other thread is using
+	 */
+	public Hunspell lease() {
+		this.awaitLoaded();
+		this.permits.acquireUninterruptibly();
+		this.lastUsed = System.currentTimeMillis();
+
+		Hunspell dictionary = this.idle.poll();
+		if ( dictionary == null ) {
+			// Holding a permit and finding no idle instance means fewer than size
+			// instances have been loaded so far (or the pool was unloaded meanwhile).
+			try {
+				dictionary = this.load();
+			} catch (RuntimeException e) {
+				this.permits.release();
+				throw e;
+			}
+			this.loaded = true;
+		}
+
+		return dictionary;
+	}
+
+	/**
+	 * Leases an instance out to the calling thread like {@link #lease()}, but only if the pool is
+	 * loaded.  If it is not (even if it was unloaded since {@link #isLoaded()} was last asked),
+	 * nothing is loaded and null is returned.  More instances are still loaded as they are needed
+	 * once the first one has been.
+	 *
+	 * @return an instance that no other thread is using, or null if the pool is not loaded
+	 */
+	public Hunspell leaseIfLoaded() {
+		if ( !this.loaded ) {
+			return null;
+		}
+
+		this.permits.acquireUninterruptibly();
+
+		Hunspell dictionary = this.idle.poll();
+		if ( dictionary == null ) {
+			// While we hold a permit the pool can not be unloaded, so if it is still loaded,
+			// fewer than size instances have been loaded so far
+			if ( !this.loaded ) {
+				this.permits.release();
+				return null;
+			}
+
+			try {
+				dictionary = this.load();
+			} catch (RuntimeException e) {
+				this.permits.release();
+				throw e;
+			}
+		}
+		this.lastUsed = System.currentTimeMillis();
+
+		return dictionary;
+	}
+
+	/**
+	 * Loads the first instance if that has not happened yet, waiting for it if another thread is
+	 * already loading it.
+	 */
+	public void awaitLoaded() {
+		if ( this.loaded ) {
+			return;
+		}
+
+		synchronized (this.loadLock) {
+			if ( !this.loaded ) {
+				this.permits.acquireUninterruptibly();
+				try {
+					// A lease that got past this before the pool was unloaded may have loaded an
+					// instance itself while we waited for the permit.  Holding a permit and finding
+					// no idle instance means fewer than size instances are loaded, so loading one
+					// here never makes more than size of them.
+					if ( this.idle.isEmpty() ) {
+						this.idle.add(this.load());
+					}
+				} catch (RuntimeException e) {
+					this.loadFailure = e;
+					throw e;
+				} finally {
+					this.permits.release();
+				}
+				this.loadFailure = null;
+				this.loaded = true;
+			}
+		}
+	}
+
+	/**
+	 * Starts loading the first instance on the given executor, if that has not happened yet.
+	 * Asking again while it is loading returns the same {@link Future}; if loading failed, it
+	 * is tried again.
+	 *
+	 * @param executor the executor to load the instance on
+	 * @return a {@link Future} that is done once the pool is ready to be used
+	 */
+	public synchronized Future<Void> preload(Executor executor) {
+		if ( this.preloading == null || (this.preloading.isDone() && !this.loaded) ) {
+			this.preloading = new FutureTask<Void>(new Runnable() {
+				@Override
+				public void run() {
+					HunspellPool.this.awaitLoaded();
+				}
+			}, null);
+
+			if ( this.loaded ) {
+				this.preloading.run();
+			} else {
+				executor.execute(this.preloading);
+			}
+		}
+
+		return this.preloading;
+	}
+
+	/**
+	 * Closes all of the instances, if none of them are leased, so that they no longer take up
+	 * any memory.  They are loaded again the next time the pool is used.  A pool that was
+	 * created with just an instance, rather than a loader, can not be unloaded.
+	 *
+	 * @return true if the pool was unloaded
+	 */
+	public boolean unload() {
+		if ( this.loader == null ) {
+			return false;
+		}
+
+		synchronized (this.loadLock) {
+			// Holding every permit means that no instance is leased
+			if ( !this.permits.tryAcquire(this.size) ) {
+				return false;
+			}
+
+			try {
+				this.loaded = false;
+
+				Hunspell dictionary;
+				while ( (dictionary = this.idle.poll()) != null ) {
+					dictionary.close();
+					this.instances.decrementAndGet();
+				}
+			} finally {
+				this.permits.release(this.size);
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Loads a new instance, keeping track of how long that took.
+	 *
+	 * @return the new instance
+	 */
+	private Hunspell load() {
+		long start = System.nanoTime();
+		Hunspell dictionary = this.loader.load();
+
+		this.lastLoadTime = System.nanoTime() - start;
+		this.loadCount.incrementAndGet();
+		this.instances.incrementAndGet();
+
+		return dictionary;
+	}
+
+	/**
+	 * @return true if the pool can be leased from without waiting for an instance to load
+	 */
+	public boolean isLoaded() {
+		return this.loaded;
+	}
+
+	/**
+	 * @return true if the last attempt to load the first instance failed
+	 */
+	public boolean isLoadFailed() {
+		return this.loadFailure != null;
+	}
+
+	/**
+	 * @return why the last attempt to load the first instance failed, or null if it did not
+	 */
+	public RuntimeException getLoadFailure() {
+		return this.loadFailure;
+	}
+
+	/**
+	 * @return true if the pool can be unloaded
+	 */
+	public boolean isUnloadable() {
+		return this.loader != null;
+	}
+
+	/**
+	 * @return the number of instances that are currently loaded
+	 */
+	public int getInstanceCount() {
+		return this.instances.get();
+	}
+
+	/**
+	 * @return the number of instances that have been loaded, including those that were unloaded since
+	 */
+	public int getLoadCount() {
+		return this.loadCount.get();
+	}
+
+	/**
+	 * @return how long the last instance took to load, in milliseconds, or 0 if none has been loaded
+	 */
+	public long getLastLoadTime() {
+		return TimeUnit.MILLISECONDS.convert(this.lastLoadTime, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * @return when an instance was last leased, as given by {@link System#currentTimeMillis()}, or
+	 *         0 if none has been
+	 */
+	public long getLastUsed() {
+		return this.lastUsed;
+	}
+
+	/**
+	 * @return the estimated native memory that each instance takes up, in bytes, or -1 if it is
+	 *         not known
+	 */
+	public long getEstimatedFootprint() {
+		if ( this.loader instanceof FileHunspellLoader ) {
+			return ((FileHunspellLoader) this.loader).getEstimatedFootprint();
+		}
+
+		return -1;
+	}
+
+	public BloomFilter getKnownWords() {
+		return this.knownWords;
+	}
+
+	public void setKnownWords(BloomFilter knownWords) {
+		this.knownWords = knownWords;
+	}
+
+	/**
+	 * Gives back an instance that was leased through {@link #lease()}.
+	 *
+	 * @param dictionary the instance to give back
+	 */
+	public void release(Hunspell dictionary) {
+		this.idle.add(dictionary);
+		this.permits.release();
+	}
+}
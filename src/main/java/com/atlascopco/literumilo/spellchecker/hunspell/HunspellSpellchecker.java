@@ -15,77 +15,433 @@
  ******************************************************************************/
 package com.atlascopco.literumilo.spellchecker.hunspell;
 
-import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.atlascopco.hunspell.Hunspell;
+import com.atlascopco.literumilo.spellchecker.AbstractSpellchecker;
+import com.atlascopco.literumilo.spellchecker.BloomFilter;
+import com.atlascopco.literumilo.spellchecker.DictionaryNotReadyException;
 import com.atlascopco.literumilo.spellchecker.Spellchecker;
+import com.atlascopco.literumilo.spellchecker.SuggestionEngine;
+import com.atlascopco.literumilo.spellchecker.SymmetricDeleteSuggestionEngine;
 
 /**
  * This is an implementation of the {@link Spellchecker} interface that uses HunspellJNA
  * in order to perform the spell-checking.
  *
+ * A {@link Hunspell} instance may only be used by one thread at a time, so each dictionary is
+ * backed by a pool of instances which are leased out for each check (or batch of checks).
+ * A dictionary added through {@link #addDictionary(Locale, Hunspell)} has just the one instance,
+ * so checks against it from several threads take turns.  A dictionary added through
+ * {@link #addDictionary(Locale, HunspellLoader, int)} loads up to the given number of instances,
+ * allowing that many threads to check against it at the same time.
+ *
+ * Dictionaries added with a {@link HunspellLoader} (such as a {@link FileHunspellLoader}) are not
+ * loaded until they are first used, or until they are asked to be {@link #preload(Locale) preloaded}
+ * on a background thread.  {@link #setDictionary(Locale)} does not wait for the dictionary to load,
+ * and neither do checks: until it has loaded, they throw a {@link DictionaryNotReadyException}
+ * holding a {@link Future} that is done once it has, rather than guessing at the word.  The
+ * listeners are told about the change once it has loaded (or once loading it has failed), so that
+ * the text can be checked again.  If loading it failed, checks throw a
+ * {@link DictionaryNotReadyException} with the failure as its cause, until the dictionary is
+ * selected or preloaded again, which tries loading it again.  Suggestions wait for the dictionary
+ * to load.
+ *
+ * Dictionaries added with a {@link HunspellLoader} can also be unloaded again to save native
+ * memory, either once they have not been used for a while ({@link #setIdleTimeout(long, TimeUnit)})
+ * or when the loaded dictionaries would take up more than a budget ({@link #setMemoryBudget(long)}),
+ * in which case the ones used least recently are unloaded first.  They are loaded again the next
+ * time they are used.  The current dictionary is never unloaded.  How much memory each dictionary
+ * takes up and how long it takes to load is reported by {@link #getStatistics(Locale)}.
+ *
+ * Most of the words in a document are common words that are spelled correctly, so a
+ * {@link BloomFilter} of known words can be put in front of each dictionary (see
+ * {@link #setKnownWordFilter(int, double)}), which answers for them without crossing over into
+ * hunspell.  It starts out with the {@link #setFrequentWords(Locale, Collection) frequent words}
+ * of the dictionary and learns every word that hunspell accepts, until a dictionary is selected
+ * (even the same one again), at which point the filter of that dictionary starts over.  Words that
+ * it does not know
+ * are checked by hunspell as usual, but since it is probabilistic, a small fraction of misspelled
+ * words will be taken to be correct.
+ *
+ * Asking hunspell for suggestions can take hundreds of milliseconds for some words.  A
+ * {@link SuggestionEngine} can be given for a dictionary to make its suggestions instead (see
+ * {@link #setSuggestionEngine(Locale, SuggestionEngine)}), such as a
+ * {@link SymmetricDeleteSuggestionEngine} built from the words of the dictionary, which takes
+ * microseconds.
+ *
  * @author Thomas Joiner
  */
-public class HunspellSpellchecker implements Spellchecker {
+public class HunspellSpellchecker extends AbstractSpellchecker {
+
+	/**
+	 * hunspell has a maximum word length of 256
+	 */
+	private static final int MAX_WORD_LENGTH = 256;
+
+	/**
+	 * The number of frequent words that a known word filter is seeded with at a time.
+	 */
+	private static final int SEED_BATCH_SIZE = 256;
+
+	private static final Logger log = LoggerFactory.getLogger(HunspellSpellchecker.class);
+
+	/**
+	 * The executor that dictionaries are loaded on in the background, created the first time
+	 * one is.
+	 */
+	private static ScheduledExecutorService loadingExecutor;
 
-	private final Map<Locale, Hunspell> dictionaries;
-	private Hunspell currentDictionary;
+	private final Map<Locale, HunspellPool> dictionaries;
+	private volatile Locale currentLocale;
+	private volatile HunspellPool currentDictionary;
+	/**
+	 * The most native memory that the loaded dictionaries should take up, in bytes, or 0 for no limit.
+	 */
+	private volatile long memoryBudget = 0;
+	/**
+	 * How long a dictionary may go unused before it is unloaded, in milliseconds, or 0 to never
+	 * unload them.
+	 */
+	private long idleTimeout = 0;
+	/**
+	 * The task that periodically unloads the dictionaries that have not been used for a while.
+	 */
+	private ScheduledFuture<?> idleSweep;
 	/**
-	 * We hold only weak references to the listeners since the lifetime of the {@link Spellchecker}
-	 * will ostensibly last the whole program, however more than likely, the components it spell-checks
-	 * will be created and destroyed.
+	 * The number of words that each known word filter holds, or 0 if there are none.
 	 */
-	private final List<WeakReference<DictionaryChangeListener>> listeners;
+	private int knownWordCapacity = 0;
+	private double knownWordFalsePositiveRate;
+	private final Map<Locale, Collection<String>> frequentWords = new ConcurrentHashMap<Locale, Collection<String>>();
+	private final Map<Locale, SuggestionEngine> suggestionEngines = new ConcurrentHashMap<Locale, SuggestionEngine>();
+	/**
+	 * The dictionaries that are being loaded in the background for the listeners to be told about,
+	 * with the {@link Future}s that are done once they have.
+	 */
+	private final ConcurrentMap<HunspellPool, Future<Void>> loading = new ConcurrentHashMap<HunspellPool, Future<Void>>();
 
 	public HunspellSpellchecker() {
-		this.dictionaries = new HashMap<Locale, Hunspell>();
-		this.listeners = new ArrayList<WeakReference<DictionaryChangeListener>>();
+		this.dictionaries = new ConcurrentHashMap<Locale, HunspellPool>();
 	}
 
+	/**
+	 * Adds a dictionary that consists of a single {@link Hunspell} instance.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param dictionary the {@link Hunspell} instance for the dictionary
+	 */
 	public void addDictionary(Locale locale, Hunspell dictionary) {
+		this.addDictionary(locale, new HunspellPool(dictionary));
+	}
+
+	/**
+	 * Adds a dictionary that can be checked against by up to {@code poolSize} threads at the same
+	 * time.  The {@link Hunspell} instances are loaded using the {@code loader} as they are needed.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param loader the {@link HunspellLoader} that loads the instances for the dictionary
+	 * @param poolSize the maximum number of instances to load
+	 */
+	public void addDictionary(Locale locale, HunspellLoader loader, int poolSize) {
+		this.addDictionary(locale, new HunspellPool(loader, poolSize));
+	}
+
+	/**
+	 * Adds a dictionary that is loaded using the {@code loader} when it is first needed, and
+	 * which is checked against by one thread at a time.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param loader the {@link HunspellLoader} that loads the dictionary
+	 */
+	public void addDictionary(Locale locale, HunspellLoader loader) {
+		this.addDictionary(locale, loader, 1);
+	}
+
+	private synchronized void addDictionary(Locale locale, HunspellPool pool) {
 		if ( this.currentDictionary == null ) {
-			this.currentDictionary = dictionary;
+			this.currentLocale = locale;
+			this.currentDictionary = pool;
 		}
 		
-		this.dictionaries.put(locale, dictionary);
+		this.dictionaries.put(locale, pool);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws DictionaryNotReadyException if the dictionary has not loaded yet, or failed to load
+	 */
 	@Override
-	public boolean misspelled(String word) {
-		// hunspell has a maximum word length of 256
-		if (word.length() > 256) {
+	public boolean misspelled(String word) throws DictionaryNotReadyException {
+		if (word.length() > MAX_WORD_LENGTH) {
 			return false;
 		}
 		
-		return !this.currentDictionary.spell(word);
+		HunspellPool pool = this.currentDictionary;
+		if ( !pool.isLoaded() ) {
+			throw this.notReady(pool);
+		}
+
+		BloomFilter knownWords = pool.getKnownWords();
+		if ( knownWords != null && knownWords.mightContain(word) ) {
+			return false;
+		}
+
+		Hunspell dictionary = this.leaseIfLoaded(pool);
+		if ( dictionary == null ) {
+			// It was unloaded since we looked
+			throw this.notReady(pool);
+		}
+
+		try {
+			boolean misspelled = !dictionary.spell(word);
+
+			if ( !misspelled && knownWords != null ) {
+				knownWords.add(word);
+			}
+
+			return misspelled;
+		} finally {
+			pool.release(dictionary);
+		}
+	}
+
+	/**
+	 * Checks the words of the batch against the same dictionary, crossing over into hunspell only
+	 * once for each distinct word in the batch that the known word filter does not know.  An
+	 * instance is only leased if there is such a word.
+	 *
+	 * @throws DictionaryNotReadyException if the dictionary has not loaded yet, or failed to load
+	 */
+	@Override
+	public BitSet misspelled(List<String> words) throws DictionaryNotReadyException {
+		BitSet misspelled = new BitSet(words.size());
+
+		HunspellPool pool = this.currentDictionary;
+		if ( !pool.isLoaded() ) {
+			throw this.notReady(pool);
+		}
+
+		// The words that hunspell has to check, with the indexes they appear at
+		BloomFilter knownWords = pool.getKnownWords();
+		Map<String, List<Integer>> unknown = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < words.size(); i++) {
+			String word = words.get(i);
+
+			if ( word.length() > MAX_WORD_LENGTH || (knownWords != null && knownWords.mightContain(word)) ) {
+				continue;
+			}
+
+			List<Integer> indexes = unknown.get(word);
+			if ( indexes == null ) {
+				indexes = new ArrayList<Integer>(1);
+				unknown.put(word, indexes);
+			}
+			indexes.add(Integer.valueOf(i));
+		}
+
+		if ( unknown.isEmpty() ) {
+			return misspelled;
+		}
+
+		Hunspell dictionary = this.leaseIfLoaded(pool);
+		if ( dictionary == null ) {
+			// It was unloaded since we looked
+			throw this.notReady(pool);
+		}
+
+		try {
+			for (Map.Entry<String, List<Integer>> entry : unknown.entrySet()) {
+				if ( dictionary.spell(entry.getKey()) ) {
+					if ( knownWords != null ) {
+						knownWords.add(entry.getKey());
+					}
+				} else {
+					for (Integer index : entry.getValue()) {
+						misspelled.set(index.intValue());
+					}
+				}
+			}
+		} finally {
+			pool.release(dictionary);
+		}
+
+		return misspelled;
 	}
 
 	@Override
 	public List<String> suggest(String word) {
-		// hunspell has a maximum word length of 256
-		if (word.length() > 256) {
+		if (word.length() > MAX_WORD_LENGTH) {
 			return new ArrayList<String>();
 		}
-		
-		return this.currentDictionary.suggest(word);
+
+		Locale locale = this.currentLocale;
+		SuggestionEngine suggestionEngine = locale == null ? null : this.suggestionEngines.get(locale);
+		if ( suggestionEngine != null ) {
+			return suggestionEngine.suggest(word);
+		}
+
+		HunspellPool pool = this.currentDictionary;
+		Hunspell dictionary = this.lease(pool);
+		try {
+			return dictionary.suggest(word);
+		} finally {
+			pool.release(dictionary);
+		}
 	}
 
 	@Override
 	public void setDictionary(Locale locale) throws IllegalArgumentException {
-		if ( !this.dictionaries.containsKey(locale) ) {
+		synchronized (this) {
+			if ( !this.dictionaries.containsKey(locale) ) {
+				throw new IllegalArgumentException("No dictionary registered for locale: "+locale);
+			}
+
+			this.currentLocale = locale;
+			this.currentDictionary = this.dictionaries.get(locale);
+			// Even if it was already selected
+			this.rebuildKnownWordFilter(locale, this.currentDictionary);
+		}
+
+		HunspellPool pool = this.currentDictionary;
+		if ( pool.isLoaded() ) {
+			this.fireDictionaryChange();
+			return;
+		}
+
+		this.loadInBackground(pool, true);
+	}
+
+	/**
+	 * Creates the exception for a check made against a dictionary that is not loaded, starting to
+	 * load it unless loading it failed.
+	 *
+	 * @param pool the dictionary
+	 * @return the exception to throw
+	 */
+	private DictionaryNotReadyException notReady(HunspellPool pool) {
+		Locale locale = this.currentLocale;
+		RuntimeException failure = pool.getLoadFailure();
+
+		if ( failure != null ) {
+			return new DictionaryNotReadyException(locale, failure);
+		}
+
+		return new DictionaryNotReadyException(locale, this.loadInBackground(pool, false));
+	}
+
+	/**
+	 * Loads a dictionary on the loading executor, and tells the listeners about it once it has
+	 * loaded (or failed to) if it is still the current dictionary by then.
+	 *
+	 * @param pool the dictionary to load
+	 * @param retry whether to try again if loading the dictionary failed before; otherwise it is
+	 *        only tried again once it is selected or preloaded
+	 * @return a {@link Future} that is done once the dictionary has loaded, or null if it is not
+	 *         loaded because it failed to before
+	 */
+	private Future<Void> loadInBackground(final HunspellPool pool, boolean retry) {
+		if ( !retry && pool.isLoadFailed() ) {
+			return null;
+		}
+
+		// Asking again while it is loading returns the same Future
+		final Future<Void> ready = pool.preload(getLoadingExecutor());
+
+		// Every check made while it is loading would otherwise queue up a notification
+		if ( this.loading.putIfAbsent(pool, ready) != null ) {
+			return ready;
+		}
+
+		// The loading executor has a single thread, so this runs once the preload is done
+		getLoadingExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					ready.get();
+					HunspellSpellchecker.this.enforceMemoryBudget();
+				} catch (ExecutionException e) {
+					// The listeners are told anyway, so that they do not wait for it forever
+					log.error("An error occurred when loading the dictionary.", e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					HunspellSpellchecker.this.loading.remove(pool);
+				}
+
+				// Unless another dictionary was selected in the meantime
+				if ( HunspellSpellchecker.this.currentDictionary == pool ) {
+					HunspellSpellchecker.this.fireDictionaryChange();
+				}
+			}
+		});
+
+		return ready;
+	}
+
+	/**
+	 * Starts loading the dictionary for the given locale on a background thread, if it has not
+	 * been loaded yet.
+	 *
+	 * @param locale the locale of the dictionary to load
+	 * @return a {@link Future} that is done once the dictionary is ready to be used
+	 * @throws IllegalArgumentException if no dictionary is registered for the locale
+	 */
+	public Future<Void> preload(Locale locale) throws IllegalArgumentException {
+		HunspellPool pool = this.dictionaries.get(locale);
+
+		if ( pool == null ) {
 			throw new IllegalArgumentException("No dictionary registered for locale: "+locale);
 		}
 
-		this.currentDictionary = this.dictionaries.get(locale);
+		Future<Void> ready = pool.preload(getLoadingExecutor());
+
+		// Runs once the preload is done, since the loading executor has a single thread
+		getLoadingExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				HunspellSpellchecker.this.enforceMemoryBudget();
+			}
+		});
+
+		return ready;
+	}
+
+	/**
+	 * @param locale the locale of the dictionary
+	 * @return true if the dictionary for the locale can be used without waiting for it to load
+	 * @throws IllegalArgumentException if no dictionary is registered for the locale
+	 */
+	public boolean isLoaded(Locale locale) throws IllegalArgumentException {
+		HunspellPool pool = this.dictionaries.get(locale);
+
+		if ( pool == null ) {
+			throw new IllegalArgumentException("No dictionary registered for locale: "+locale);
+		}
 
-		this.fireDictionaryChange();
+		return pool.isLoaded();
 	}
 
 	@Override
@@ -95,40 +451,365 @@ public class HunspellSpellchecker implements Spellchecker {
 
 	@Override
 	public Locale getCurrentDictionary() {
-		for (Entry<Locale, Hunspell> entry : this.dictionaries.entrySet()) {
-			if ( entry.getValue() == this.currentDictionary ) {
-				return entry.getKey();
+		Locale locale = this.currentLocale;
+
+		if ( locale == null || !this.dictionaries.containsKey(locale) ) {
+			throw new IllegalStateException("Currently selected dictionary no longer exists.");
+		}
+
+		return locale;
+	}
+
+	/**
+	 * Sets the most native memory that the loaded dictionaries should take up.  Whenever a
+	 * dictionary is loaded and the budget is exceeded, the dictionaries that were used least
+	 * recently are unloaded until it no longer is.  Only the memory of dictionaries loaded by a
+	 * {@link FileHunspellLoader} that was given their footprint is known, so only those count
+	 * towards the budget.
+	 *
+	 * @param memoryBudget the budget, in bytes, or 0 for no limit (the default)
+	 */
+	public void setMemoryBudget(long memoryBudget) {
+		if ( memoryBudget < 0 ) {
+			throw new IllegalArgumentException("memoryBudget must not be negative (was "+memoryBudget+").");
+		}
+
+		this.memoryBudget = memoryBudget;
+		this.enforceMemoryBudget();
+	}
+
+	public long getMemoryBudget() {
+		return this.memoryBudget;
+	}
+
+	/**
+	 * Sets how long a dictionary may go unused before it is unloaded.
+	 *
+	 * @param timeout how long a dictionary may go unused, or 0 to never unload them (the default)
+	 * @param unit the unit of the timeout
+	 */
+	public synchronized void setIdleTimeout(long timeout, TimeUnit unit) {
+		if ( timeout < 0 ) {
+			throw new IllegalArgumentException("timeout must not be negative (was "+timeout+").");
+		}
+
+		this.idleTimeout = unit.toMillis(timeout);
+
+		if ( this.idleSweep != null ) {
+			this.idleSweep.cancel(false);
+			this.idleSweep = null;
+		}
+
+		if ( this.idleTimeout > 0 ) {
+			// A dictionary is unloaded at most a quarter of the timeout late
+			long period = Math.max(1000, this.idleTimeout / 4);
+			this.idleSweep = getLoadingExecutor().scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					HunspellSpellchecker.this.unloadIdleDictionaries();
+				}
+			}, period, period, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * @param unit the unit to return the timeout in
+	 * @return how long a dictionary may go unused before it is unloaded, or 0 if they never are
+	 */
+	public synchronized long getIdleTimeout(TimeUnit unit) {
+		return unit.convert(this.idleTimeout, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Reports how much memory the dictionary for the given locale takes up, how long it took to
+	 * load and when it was last used.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @return the statistics for the dictionary
+	 * @throws IllegalArgumentException if no dictionary is registered for the locale
+	 */
+	public DictionaryStatistics getStatistics(Locale locale) throws IllegalArgumentException {
+		HunspellPool pool = this.dictionaries.get(locale);
+
+		if ( pool == null ) {
+			throw new IllegalArgumentException("No dictionary registered for locale: "+locale);
+		}
+
+		return new DictionaryStatistics(locale, pool);
+	}
+
+	/**
+	 * @return the statistics for all of the registered dictionaries
+	 * @see #getStatistics(Locale)
+	 */
+	public List<DictionaryStatistics> getStatistics() {
+		List<DictionaryStatistics> statistics = new ArrayList<DictionaryStatistics>();
+
+		for (Map.Entry<Locale, HunspellPool> entry : this.dictionaries.entrySet()) {
+			statistics.add(new DictionaryStatistics(entry.getKey(), entry.getValue()));
+		}
+
+		return statistics;
+	}
+
+	/**
+	 * Puts a {@link BloomFilter} of known words in front of each dictionary as it is selected,
+	 * including the current one.
+	 *
+	 * @param capacity the number of words that each filter holds
+	 * @param falsePositiveRate the fraction of the words that a full filter does not hold, which it
+	 *        nevertheless takes to be known
+	 * @see BloomFilter
+	 */
+	public synchronized void setKnownWordFilter(int capacity, double falsePositiveRate) {
+		// Fail before changing anything if the arguments are out of range
+		new BloomFilter(capacity, falsePositiveRate);
+
+		this.knownWordCapacity = capacity;
+		this.knownWordFalsePositiveRate = falsePositiveRate;
+
+		if ( this.currentDictionary != null ) {
+			this.rebuildKnownWordFilter(this.currentLocale, this.currentDictionary);
+		}
+	}
+
+	/**
+	 * Removes the {@link BloomFilter}s of known words, so that every word is checked by hunspell.
+	 */
+	public synchronized void disableKnownWordFilter() {
+		this.knownWordCapacity = 0;
+
+		for (HunspellPool pool : this.dictionaries.values()) {
+			pool.setKnownWords(null);
+		}
+	}
+
+	/**
+	 * Sets the most frequent words of a dictionary, which its known word filter starts out with
+	 * whenever it is rebuilt.  The words that hunspell does not accept are left out.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param words the most frequent words, most frequent first
+	 */
+	public void setFrequentWords(Locale locale, Collection<String> words) {
+		this.frequentWords.put(locale, new ArrayList<String>(words));
+	}
+
+	/**
+	 * Sets the {@link SuggestionEngine} that makes the suggestions for a dictionary instead of
+	 * hunspell.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param suggestionEngine the engine, or null for hunspell to make the suggestions again
+	 */
+	public void setSuggestionEngine(Locale locale, SuggestionEngine suggestionEngine) {
+		if ( suggestionEngine == null ) {
+			this.suggestionEngines.remove(locale);
+		} else {
+			this.suggestionEngines.put(locale, suggestionEngine);
+		}
+	}
+
+	/**
+	 * Retrieves the known word filter of a dictionary, which tells how many words it knows, what
+	 * its rate of false positives is and how much memory it takes up.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @return the filter, or null if the dictionary has none
+	 * @throws IllegalArgumentException if no dictionary is registered for the locale
+	 */
+	public BloomFilter getKnownWordFilter(Locale locale) throws IllegalArgumentException {
+		HunspellPool pool = this.dictionaries.get(locale);
+
+		if ( pool == null ) {
+			throw new IllegalArgumentException("No dictionary registered for locale: "+locale);
+		}
+
+		return pool.getKnownWords();
+	}
+
+	/**
+	 * Replaces the known word filter of a dictionary with a new one, which is filled with the
+	 * frequent words of the dictionary in the background.
+	 *
+	 * @param locale the locale of the dictionary
+	 * @param pool the dictionary
+	 */
+	private synchronized void rebuildKnownWordFilter(Locale locale, final HunspellPool pool) {
+		if ( this.knownWordCapacity <= 0 ) {
+			return;
+		}
+
+		final BloomFilter knownWords = new BloomFilter(this.knownWordCapacity, this.knownWordFalsePositiveRate);
+		pool.setKnownWords(knownWords);
+
+		final Collection<String> words = this.frequentWords.get(locale);
+		if ( words == null ) {
+			return;
+		}
+
+		getLoadingExecutor().execute(new Runnable() {
+			@Override
+			public void run() {
+				Iterator<String> iterator = words.iterator();
+
+				while ( iterator.hasNext() ) {
+					// The instance is given back between batches, so that checks made meanwhile
+					// (on the EDT, among others) do not have to wait for all of the words
+					Hunspell dictionary;
+					try {
+						dictionary = HunspellSpellchecker.this.lease(pool);
+					} catch (RuntimeException e) {
+						log.error("An error occurred when loading the dictionary.", e);
+						return;
+					}
+
+					try {
+						for (int i = 0; i < SEED_BATCH_SIZE && iterator.hasNext(); i++) {
+							// Stop if the filter is full, or has been replaced since
+							if ( pool.getKnownWords() != knownWords || knownWords.getCount() >= knownWords.getCapacity() ) {
+								return;
+							}
+
+							String word = iterator.next();
+							if ( word.length() <= MAX_WORD_LENGTH && dictionary.spell(word) ) {
+								knownWords.add(word);
+							}
+						}
+					} finally {
+						pool.release(dictionary);
+					}
+				}
 			}
+		});
+	}
+
+	/**
+	 * Leases an instance from the pool, enforcing the memory budget if that meant loading one.
+	 *
+	 * @param pool the pool to lease from
+	 * @return the leased instance
+	 */
+	private Hunspell lease(HunspellPool pool) {
+		int loadCount = pool.getLoadCount();
+		Hunspell dictionary = pool.lease();
+
+		if ( pool.getLoadCount() != loadCount ) {
+			this.enforceMemoryBudget();
 		}
-		throw new IllegalStateException("Currently selected dictionary no longer exists.");
+
+		return dictionary;
 	}
 
-	@Override
-	public void addDictionaryChangeListener(DictionaryChangeListener listener) {
-		this.listeners.add(new WeakReference<DictionaryChangeListener>(listener));
+	/**
+	 * Leases an instance from the pool if it is loaded, without ever loading the first instance,
+	 * and enforces the memory budget if another instance had to be loaded.
+	 *
+	 * @param pool the pool to lease from
+	 * @return the leased instance, or null if the pool is not loaded
+	 */
+	private Hunspell leaseIfLoaded(HunspellPool pool) {
+		int loadCount = pool.getLoadCount();
+		Hunspell dictionary = pool.leaseIfLoaded();
+
+		if ( dictionary != null && pool.getLoadCount() != loadCount ) {
+			this.enforceMemoryBudget();
+		}
+
+		return dictionary;
 	}
 
-	@Override
-	public void removeDictionaryChangeListener(DictionaryChangeListener listener) {
-		for (Iterator<WeakReference<DictionaryChangeListener>> iterator = this.listeners.iterator(); iterator.hasNext();) {
-			WeakReference<DictionaryChangeListener> weakReference = iterator.next();
+	/**
+	 * Unloads the dictionaries that were used least recently until the loaded dictionaries fit
+	 * in the memory budget.
+	 */
+	private synchronized void enforceMemoryBudget() {
+		long budget = this.memoryBudget;
+		if ( budget <= 0 ) {
+			return;
+		}
+
+		long total = 0;
+		List<HunspellPool> candidates = new ArrayList<HunspellPool>();
+
+		for (HunspellPool pool : this.dictionaries.values()) {
+			long footprint = pool.getEstimatedFootprint();
 
-			if ( weakReference.get() == null || weakReference.get().equals(listener) ) {
-				iterator.remove();
+			if ( footprint >= 0 && pool.getInstanceCount() > 0 ) {
+				total += footprint * pool.getInstanceCount();
+
+				if ( pool.isUnloadable() && pool != this.currentDictionary ) {
+					candidates.add(pool);
+				}
 			}
 		}
+
+		Collections.sort(candidates, new Comparator<HunspellPool>() {
+			@Override
+			public int compare(HunspellPool o1, HunspellPool o2) {
+				long lastUsed1 = o1.getLastUsed();
+				long lastUsed2 = o2.getLastUsed();
+				return lastUsed1 < lastUsed2 ? -1 : (lastUsed1 == lastUsed2 ? 0 : 1);
+			}
+		});
+
+		for (HunspellPool pool : candidates) {
+			if ( total <= budget ) {
+				break;
+			}
+
+			long footprint = pool.getEstimatedFootprint() * pool.getInstanceCount();
+			if ( pool.unload() ) {
+				total -= footprint;
+			}
+		}
+
+		if ( total > budget ) {
+			log.debug("The loaded dictionaries take up {} bytes, over the budget of {} bytes.", total, budget);
+		}
 	}
 
-	private void fireDictionaryChange() {
-		for (Iterator<WeakReference<DictionaryChangeListener>> iterator = this.listeners.iterator(); iterator.hasNext();) {
-			WeakReference<DictionaryChangeListener> weakReference = iterator.next();
+	/**
+	 * Unloads the dictionaries that have not been used for longer than the idle timeout.
+	 */
+	private synchronized void unloadIdleDictionaries() {
+		if ( this.idleTimeout <= 0 ) {
+			return;
+		}
+
+		long cutoff = System.currentTimeMillis() - this.idleTimeout;
 
-			if ( weakReference.get() == null ) {
-				iterator.remove();
-			} else {
-				weakReference.get().dictionaryChanged();
+		for (Map.Entry<Locale, HunspellPool> entry : this.dictionaries.entrySet()) {
+			HunspellPool pool = entry.getValue();
+
+			if ( pool.isUnloadable() && pool != this.currentDictionary && pool.getInstanceCount() > 0 && pool.getLastUsed() < cutoff ) {
+				if ( pool.unload() ) {
+					log.debug("Unloaded the idle dictionary for {}.", entry.getKey());
+				}
 			}
 		}
 	}
 
+	/**
+	 * Retrieves the executor that dictionaries are loaded on, creating it if necessary.  It has
+	 * a single daemon thread, so that dictionaries are loaded one at a time and do not keep the
+	 * application alive.  The idle dictionaries are unloaded on it as well.
+	 *
+	 * @return the executor to load dictionaries on
+	 */
+	private static synchronized ScheduledExecutorService getLoadingExecutor() {
+		if ( loadingExecutor == null ) {
+			loadingExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "literumilo-dictionary-loader");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return loadingExecutor;
+	}
+
 }
@@ -32,17 +32,56 @@ import org.slf4j.LoggerFactory;
  * just need to implement {@link #isWordBreakCharacter(char)} and the implementation will handle
  * all the rest.
  *
+ * Since the list is non-contextual, it is only consulted once per character value in order to
+ * build a {@link CharClassTable}, which is what is actually used while tokenizing.  Implementers
+ * that already have such a table can return it from {@link #createWordBreakTable()}.
+ *
  * @author Thomas Joiner
  */
 public abstract class AbstractTokenizer implements Tokenizer {
 
 	private static final Logger log = LoggerFactory.getLogger(AbstractTokenizer.class);
 
+	/**
+	 * The number of characters on either side of the text to tokenize that are initially
+	 * retrieved in order to find the boundaries of the words at its ends.
+	 */
+	private static final int WINDOW_PADDING = 64;
+
+	/**
+	 * The table of word-break characters, created the first time it is needed.
+	 */
+	private volatile CharClassTable wordBreaks;
+
+	/**
+	 * Retrieves the table of word-break characters, creating it if this is the first time
+	 * it has been needed.
+	 *
+	 * @return the table of word-break characters
+	 */
+	private CharClassTable getWordBreaks() {
+		CharClassTable table = this.wordBreaks;
+
+		if ( table == null ) {
+			// If two threads get here at the same time they will just both build
+			// an identical table.
+			table = this.createWordBreakTable();
+			this.wordBreaks = table;
+		}
+
+		return table;
+	}
+
 	@Override
 	public Iterable<WordToken> tokenize(final Document document, final int offset, final int length) throws BadLocationException {
 		return new TokenizingIterable(document, offset, length);
 	}
 
+	@Override
+	public TokenCursor cursor(final Document document, final int offset, final int length) throws BadLocationException {
+		return new TokenizingIterable(document, offset, length).cursor();
+	}
+
 	/**
 	 * This class provides an iterable that will produce {@link Iterator}s that will lazily
 	 * tokenize the string.  Take note that each iterator will independently tokenize the
@@ -56,12 +95,21 @@ public abstract class AbstractTokenizer implements Tokenizer {
 		private final int offset;
 		private final int length;
 		private final Segment segment;
-		private final int firstCharacterOffset;
-		private final int lastCharacterOffset;
+		/**
+		 * The offset in the document of the first character in {@link #segment}.
+		 */
+		private int windowStart;
+		private int firstCharacterOffset;
+		private int lastCharacterOffset;
 
 		/**
 		 * Creates a {@link TokenizingIterable}.  The text from {@code offset} to {@code offset+length}
 		 * will be tokenized.
+		 *
+		 * Only the text to be tokenized (plus the rest of the words at either end of it) is retrieved
+		 * from the document, so the cost of tokenizing depends on the size of the text being tokenized
+		 * rather than on the size of the document.
+		 *
 		 * @param document the document to tokenize the text of
 		 * @param offset the offset to start the tokenization from
 		 * @param length the length of the text to tokenize
@@ -72,63 +120,122 @@ public abstract class AbstractTokenizer implements Tokenizer {
 			this.offset = offset;
 			this.length = length;
 			this.segment = new Segment();
-			this.document.getText(0, this.document.getLength(), this.segment);
-			this.firstCharacterOffset = this.findFirstCharacter(this.segment);
-			this.lastCharacterOffset = this.findLastCharacter(this.segment);
+
+			// Retrieve a window around the text to tokenize, widening it until it contains the
+			// word-breaks on both sides (or the ends of the document).
+			int documentLength = this.document.getLength();
+			int padding = WINDOW_PADDING;
+			while (true) {
+				this.windowStart = Math.max(0, this.offset - padding);
+				int windowEnd = (int) Math.min(documentLength, (long) this.offset + this.length + padding);
+
+				this.fetch(this.windowStart, windowEnd - this.windowStart);
+
+				this.firstCharacterOffset = this.findFirstCharacter();
+				this.lastCharacterOffset = this.findLastCharacter(documentLength);
+
+				if ( this.firstCharacterOffset != -1 && this.lastCharacterOffset != -1 ) {
+					break;
+				}
+
+				padding *= 2;
+			}
 
 			if ( log.isDebugEnabled() ) {
 				log.debug("Tokenizing: \"{}\"", new String(this.segment.array, this.segment.offset, this.segment.count));
 			}
 		}
 
+		/**
+		 * Retrieves the given range of the document into {@link #segment}.  If the range lies entirely
+		 * on one side of the document's gap, this is done without copying the text.
+		 *
+		 * @param start the offset of the range
+		 * @param count the length of the range
+		 * @throws BadLocationException if unable to retrieve the text from the document
+		 */
+		private void fetch(int start, int count) throws BadLocationException {
+			this.segment.setPartialReturn(true);
+			this.document.getText(start, count, this.segment);
+
+			if ( this.segment.count < count ) {
+				this.segment.setPartialReturn(false);
+				this.document.getText(start, count, this.segment);
+			}
+		}
+
+		/**
+		 * Retrieves a character from the window.
+		 *
+		 * @param index the offset of the character in the document
+		 * @return the character
+		 */
+		private char charAt(int index) {
+			return this.segment.array[this.segment.offset + index - this.windowStart];
+		}
 
 		/**
 		 * This method finds the first character that should be tokenized by the
 		 * tokenizer.
 		 *
-		 * @param text the {@link Segment} that contains the text to tokenize
-		 * @return the index from which one should start
+		 * @return the index from which one should start, or -1 if the window does not
+		 *         reach back far enough to tell
 		 */
-		private int findFirstCharacter(Segment text) {
-			for ( int i = this.offset; i > 0; i--) {
-				if (AbstractTokenizer.this.isWordBreakCharacter(text.charAt(i))) {
+		private int findFirstCharacter() {
+			CharClassTable wordBreaks = AbstractTokenizer.this.getWordBreaks();
+			int windowEnd = this.windowStart + this.segment.count;
+
+			for ( int i = Math.min(this.offset, windowEnd - 1); i > 0 && i >= this.windowStart; i--) {
+				if (wordBreaks.contains(this.charAt(i))) {
 					return i + 1;
 				}
 			}
 
-			return 0;
+			return this.windowStart <= 1 ? 0 : -1;
 		}
 
 		/**
 		 * This method finds the last character that should be tokenized by the
 		 * tokenizer.
 		 *
-		 * @param text the {@link Segment} that contains the text to tokenize
-		 * @return the index one should stop at
+		 * @param documentLength the length of the document
+		 * @return the index one should stop at, or -1 if the window does not reach
+		 *         far enough to tell
 		 */
-		private int findLastCharacter(Segment text) {
-			int documentLength = text.count;
-
-			if ( text.count == 0 ) {
+		private int findLastCharacter(int documentLength) {
+			if ( documentLength == 0 ) {
 				return 0;
 			}
 
-			for ( int i = this.offset+this.length-1; i < documentLength; i++ ) {
-				if (AbstractTokenizer.this.isWordBreakCharacter(text.charAt(i))) {
+			CharClassTable wordBreaks = AbstractTokenizer.this.getWordBreaks();
+			int windowEnd = this.windowStart + this.segment.count;
+
+			for ( int i = Math.max(this.offset+this.length-1, this.windowStart); i < windowEnd; i++ ) {
+				if (wordBreaks.contains(this.charAt(i))) {
 					return i-1;
 				}
 			}
 
-			return text.count-1;
+			return windowEnd == documentLength ? documentLength-1 : -1;
 		}
 
 
+		/**
+		 * Creates a cursor over the tokens in the text.
+		 *
+		 * @return a new {@link TokenCursor} positioned before the first token
+		 */
+		public TokenCursor cursor() {
+			return new TokenizingCursor();
+		}
+
 		@Override
 		public Iterator<WordToken> iterator() {
+			final TokenCursor cursor = this.cursor();
+
 			return new Iterator<WordToken>() {
 
 				private WordToken nextToken;
-				private int currentIndex = TokenizingIterable.this.firstCharacterOffset;
 
 				@Override
 				public boolean hasNext() {
@@ -153,53 +260,12 @@ public abstract class AbstractTokenizer implements Tokenizer {
 				}
 
 				private WordToken nextToken() {
-					if ( TokenizingIterable.this.segment.length() == 0 ) {
-						return null;
-					}
+					if ( cursor.next() ) {
+						WordToken wordToken = cursor.toWordToken();
+
+						log.debug("Token found: {}", wordToken);
 
-					try {
-						int offset=-1, length=0;
-						StringBuilder currentToken = new StringBuilder();
-
-						for (int i = this.currentIndex; i <= TokenizingIterable.this.lastCharacterOffset; i++) {
-							if ( !AbstractTokenizer.this.isWordBreakCharacter(TokenizingIterable.this.segment.charAt(i)) ) {
-								if ( offset == -1) {
-									offset = i;
-								}
-								length++;
-								currentToken.append(TokenizingIterable.this.segment.charAt(i));
-							} else {
-								if ( length > 0 ) {
-									WordToken wordToken = new WordToken();
-									wordToken.setStartOffset(TokenizingIterable.this.document.createPosition(offset));
-									wordToken.setEndOffset(TokenizingIterable.this.document.createPosition(i-1));
-									wordToken.setToken(currentToken.toString());
-
-									this.currentIndex = i+1;
-
-									log.debug("Token found: {}", wordToken);
-
-									return wordToken;
-								}
-							}
-						}
-
-						// In case there is a token at the end without a word-break character
-						// after it
-						if ( offset != -1 && length > 0 ) {
-							WordToken wordToken = new WordToken();
-							wordToken.setStartOffset(TokenizingIterable.this.document.createPosition(offset));
-							wordToken.setEndOffset(TokenizingIterable.this.document.createPosition(TokenizingIterable.this.lastCharacterOffset));
-							wordToken.setToken(currentToken.toString());
-
-							this.currentIndex = TokenizingIterable.this.lastCharacterOffset+1;
-
-							log.debug("Token found: {}", wordToken);
-
-							return wordToken;
-						}
-					} catch (BadLocationException e) {
-						log.error("An error occurred in TokenizingIterator.", e);
+						return wordToken;
 					}
 					return null;
 				}
@@ -211,7 +277,117 @@ public abstract class AbstractTokenizer implements Tokenizer {
 			};
 		}
 
+		/**
+		 * This class is the {@link TokenCursor} over the text of a {@link TokenizingIterable}.
+		 * The token is exposed through a view onto the retrieved text, so nothing is copied until
+		 * the caller asks for it.
+		 *
+		 * @author Thomas Joiner
+		 */
+		private final class TokenizingCursor implements TokenCursor, CharSequence {
+
+			private int currentIndex = TokenizingIterable.this.firstCharacterOffset;
+			private int startOffset = -1;
+			private int endOffset = -1;
+
+			@Override
+			public boolean next() {
+				if ( TokenizingIterable.this.segment.count == 0 ) {
+					return false;
+				}
+
+				CharClassTable wordBreaks = AbstractTokenizer.this.getWordBreaks();
+				int lastCharacterOffset = TokenizingIterable.this.lastCharacterOffset;
+				int i = this.currentIndex;
+
+				// Skip any word-break characters before the token
+				while ( i <= lastCharacterOffset && wordBreaks.contains(TokenizingIterable.this.charAt(i)) ) {
+					i++;
+				}
+
+				if ( i > lastCharacterOffset ) {
+					this.currentIndex = i;
+					this.startOffset = -1;
+					this.endOffset = -1;
+					return false;
+				}
+
+				int start = i;
+
+				// The token runs until the next word-break character, or the end of the text
+				while ( i <= lastCharacterOffset && !wordBreaks.contains(TokenizingIterable.this.charAt(i)) ) {
+					i++;
+				}
+
+				this.startOffset = start;
+				this.endOffset = i-1;
+				this.currentIndex = i+1;
+
+				return true;
+			}
+
+			@Override
+			public int getStartOffset() {
+				this.checkPositioned();
+				return this.startOffset;
+			}
+
+			@Override
+			public int getEndOffset() {
+				this.checkPositioned();
+				return this.endOffset;
+			}
+
+			@Override
+			public CharSequence getToken() {
+				this.checkPositioned();
+				return this;
+			}
+
+			@Override
+			public WordToken toWordToken() {
+				this.checkPositioned();
+
+				// The Positions are only created once someone needs them, so that the
+				// document does not have to keep track of every token that was found.
+				return new WordToken(TokenizingIterable.this.document, this.startOffset, this.endOffset, this.toString());
+			}
+
+			@Override
+			public int length() {
+				return this.endOffset - this.startOffset + 1;
+			}
+
+			@Override
+			public char charAt(int index) {
+				if ( index < 0 || index >= this.length() ) {
+					throw new IndexOutOfBoundsException("Index: "+index+", Length: "+this.length());
+				}
+
+				return TokenizingIterable.this.charAt(this.startOffset + index);
+			}
+
+			@Override
+			public CharSequence subSequence(int start, int end) {
+				return this.toString().subSequence(start, end);
+			}
 
+			@Override
+			public String toString() {
+				if ( this.startOffset == -1 ) {
+					return "";
+				}
+
+				Segment segment = TokenizingIterable.this.segment;
+				return new String(segment.array, segment.offset + this.startOffset - TokenizingIterable.this.windowStart, this.length());
+			}
+
+			private void checkPositioned() {
+				if ( this.startOffset == -1 ) {
+					throw new IllegalStateException("The cursor is not positioned on a token.");
+				}
+			}
+		}
 	}
 
 	/**
@@ -222,4 +398,14 @@ public abstract class AbstractTokenizer implements Tokenizer {
 	 */
 	public abstract boolean isWordBreakCharacter(char character);
 
+	/**
+	 * This method creates the table of word-break characters that is used while tokenizing.  By
+	 * default it is built by calling {@link #isWordBreakCharacter(char)} for every character.
+	 *
+	 * @return the table of word-break characters
+	 */
+	protected CharClassTable createWordBreakTable() {
+		return CharClassTable.forWordBreaks(this);
+	}
+
 }
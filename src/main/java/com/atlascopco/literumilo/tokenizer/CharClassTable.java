@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.tokenizer;
+
+/**
+ * This class is a set of {@code char}s, stored as one bit per character, that can be
+ * tested for membership without any boxing or hashing.  It is meant to be built once
+ * and then used to classify every character that gets tokenized.
+ *
+ * @author Thomas Joiner
+ */
+public final class CharClassTable {
+
+	/**
+	 * One bit for each of the 65536 possible {@code char} values.
+	 */
+	private final long[] bits = new long[(Character.MAX_VALUE + 1) >>> 6];
+
+	/**
+	 * Creates a table containing the given characters.
+	 *
+	 * @param characters the characters that should be in the table
+	 */
+	public CharClassTable(char... characters) {
+		for (char character : characters) {
+			this.add(character);
+		}
+	}
+
+	/**
+	 * Creates a table containing the same characters as another one, which can then be added
+	 * to without changing the other one.
+	 *
+	 * @param table the table to copy
+	 */
+	public CharClassTable(CharClassTable table) {
+		System.arraycopy(table.bits, 0, this.bits, 0, this.bits.length);
+	}
+
+	/**
+	 * Adds a character to the table.
+	 *
+	 * @param character the character to add
+	 */
+	public void add(char character) {
+		this.bits[character >>> 6] |= 1L << character;
+	}
+
+	/**
+	 * Adds all of the whitespace characters (as defined by {@link Character#isWhitespace(char)})
+	 * to the table.
+	 */
+	public void addWhitespace() {
+		for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
+			if ( Character.isWhitespace((char) i) ) {
+				this.add((char) i);
+			}
+		}
+	}
+
+	/**
+	 * Tests whether the character is in the table.
+	 *
+	 * @param character the character to test
+	 * @return true if the character is in the table
+	 */
+	public boolean contains(char character) {
+		return (this.bits[character >>> 6] & (1L << character)) != 0;
+	}
+
+	/**
+	 * Creates a table containing every character that the tokenizer considers to be a
+	 * word-break character.
+	 *
+	 * @param tokenizer the tokenizer to ask
+	 * @return the table of word-break characters
+	 */
+	public static CharClassTable forWordBreaks(AbstractTokenizer tokenizer) {
+		CharClassTable table = new CharClassTable();
+
+		for (int i = Character.MIN_VALUE; i <= Character.MAX_VALUE; i++) {
+			if ( tokenizer.isWordBreakCharacter((char) i) ) {
+				table.add((char) i);
+			}
+		}
+
+		return table;
+	}
+}
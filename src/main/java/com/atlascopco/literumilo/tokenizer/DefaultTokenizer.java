@@ -15,10 +15,6 @@
  ******************************************************************************/
 package com.atlascopco.literumilo.tokenizer;
 
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
-
 /**
  * This is a default implementation of the tokenizer that I have found to work relatively well
  * for US English text.
@@ -27,10 +23,12 @@ import java.util.Set;
  */
 public class DefaultTokenizer extends AbstractTokenizer {
 
-	private static final Set<Character> WORD_BREAK_CHARACTERS;
+	private static final CharClassTable WORD_BREAK_CHARACTERS;
 
 	static {
-		Set<Character> wordBreakCharacters = new HashSet<Character>();
+		CharClassTable wordBreakCharacters = new CharClassTable();
+
+		wordBreakCharacters.addWhitespace();
 
 		wordBreakCharacters.add('\r');
 		wordBreakCharacters.add('\n');
@@ -66,7 +64,7 @@ public class DefaultTokenizer extends AbstractTokenizer {
 		wordBreakCharacters.add('\uFF0E'); // fullwidth full stop
 		wordBreakCharacters.add('\uFF1A'); // fullwidth colon
 
-		WORD_BREAK_CHARACTERS = Collections.unmodifiableSet(wordBreakCharacters);
+		WORD_BREAK_CHARACTERS = wordBreakCharacters;
 	}
 
 	/**
@@ -79,7 +77,22 @@ public class DefaultTokenizer extends AbstractTokenizer {
 	 */
 	@Override
 	public boolean isWordBreakCharacter(char character) {
-		return Character.isWhitespace(character) || WORD_BREAK_CHARACTERS.contains(character);
+		return WORD_BREAK_CHARACTERS.contains(character);
+	}
+
+	/**
+	 * Returns a copy of the word-break characters, so that a subclass can add to the table it is
+	 * given without changing it for every other {@link DefaultTokenizer}.  A subclass may also
+	 * override {@link #isWordBreakCharacter(char)}, so for anything other than a plain
+	 * {@link DefaultTokenizer} the table is built by asking it about every character.
+	 */
+	@Override
+	protected CharClassTable createWordBreakTable() {
+		if ( this.getClass() != DefaultTokenizer.class ) {
+			return CharClassTable.forWordBreaks(this);
+		}
+
+		return new CharClassTable(WORD_BREAK_CHARACTERS);
 	}
 
 }
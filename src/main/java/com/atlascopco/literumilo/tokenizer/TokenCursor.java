@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.tokenizer;
+
+/**
+ * This interface provides a way to step through the tokens of a piece of text without
+ * creating an object for each of them.  The cursor itself represents the current token,
+ * and is moved to the next one by {@link #next()}.
+ *
+ * A {@link WordToken} should only be created (through {@link #toWordToken()}) for the
+ * tokens that need to be kept.
+ *
+ * @author Thomas Joiner
+ */
+public interface TokenCursor {
+	/**
+	 * Moves the cursor to the next token.
+	 *
+	 * @return true if there was another token, false if the end of the text has been reached
+	 */
+	public boolean next();
+	/**
+	 * @return the offset in the document of the first character of the current token
+	 */
+	public int getStartOffset();
+	/**
+	 * @return the offset in the document of the last character of the current token
+	 */
+	public int getEndOffset();
+	/**
+	 * Returns the text of the current token.  The returned {@link CharSequence} is a view
+	 * onto the text of the document, and is only valid until {@link #next()} is called.
+	 *
+	 * @return the text of the current token
+	 */
+	public CharSequence getToken();
+	/**
+	 * Creates a {@link WordToken} for the current token.  The {@link WordToken} does not
+	 * create the {@link javax.swing.text.Position}s for its placement until
+	 * {@link WordToken#anchor()} is called.
+	 *
+	 * @return a {@link WordToken} representing the current token
+	 */
+	public WordToken toWordToken();
+}
@@ -30,4 +30,15 @@ import javax.swing.text.Document;
  */
 public interface Tokenizer {
 	public Iterable<WordToken> tokenize(Document document, int offset, int length) throws BadLocationException;
+	/**
+	 * This method tokenizes the same text as {@link #tokenize(Document, int, int)}, but returns a
+	 * single reusable {@link TokenCursor} rather than creating a {@link WordToken} for every token.
+	 *
+	 * @param document the document to tokenize the text of
+	 * @param offset the offset to start the tokenization from
+	 * @param length the length of the text to tokenize
+	 * @return a {@link TokenCursor} positioned before the first token
+	 * @throws BadLocationException if unable to retrieve the text from the document
+	 */
+	public TokenCursor cursor(Document document, int offset, int length) throws BadLocationException;
 }
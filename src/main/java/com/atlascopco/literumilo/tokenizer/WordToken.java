@@ -17,6 +17,7 @@ package com.atlascopco.literumilo.tokenizer;
 
 import java.util.List;
 
+import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import javax.swing.text.Highlighter.Highlight;
 import javax.swing.text.Position;
@@ -25,6 +26,12 @@ import javax.swing.text.Position;
  * This class represents a token in a {@link Document}. This class
  * provides the placement of the token as well as the token itself.
  *
+ * The placement is tracked through {@link Position}s so that it follows the edits
+ * made to the document.  Since every {@link Position} has to be updated by the
+ * document on every edit, a token created by a {@link Tokenizer} starts out with
+ * just the offsets at which it was found, and only creates its {@link Position}s
+ * when {@link #anchor()} is called or they are first asked for.
+ *
  * @author Thomas Joiner
  *
  */
@@ -34,8 +41,71 @@ public class WordToken {
 	private String token;
 	private List<String> suggestions;
 	private Highlight highlightTag;
+	/**
+	 * The document and the offsets the token was found at, used until the
+	 * {@link Position}s have been created.
+	 */
+	private Document document;
+	private int start;
+	private int end;
+
+	public WordToken() {
+	}
+
+	/**
+	 * Creates a token that has not yet created the {@link Position}s for its placement.
+	 *
+	 * @param document the document the token was found in
+	 * @param start the offset of the first character of the token
+	 * @param end the offset of the last character of the token
+	 * @param token the text of the token
+	 */
+	public WordToken(Document document, int start, int end, String token) {
+		this.document = document;
+		this.start = start;
+		this.end = end;
+		this.token = token;
+	}
+
+	/**
+	 * Creates the {@link Position}s for the placement of the token, if that has not
+	 * already been done.  After this, the placement of the token will follow the edits
+	 * made to the document.
+	 *
+	 * @throws BadLocationException if the offsets of the token are no longer in the document
+	 */
+	public void anchor() throws BadLocationException {
+		if ( this.startOffset == null && this.document != null ) {
+			this.startOffset = this.document.createPosition(this.start);
+		}
+		if ( this.endOffset == null && this.document != null ) {
+			this.endOffset = this.document.createPosition(this.end);
+		}
+	}
+
+	/**
+	 * @return true if the {@link Position}s for the placement of the token have been created
+	 */
+	public boolean isAnchored() {
+		return this.startOffset != null && this.endOffset != null;
+	}
+
+	/**
+	 * @return the current offset of the first character of the token
+	 */
+	public int getStart() {
+		return this.startOffset != null ? this.startOffset.getOffset() : this.start;
+	}
+
+	/**
+	 * @return the current offset of the last character of the token
+	 */
+	public int getEnd() {
+		return this.endOffset != null ? this.endOffset.getOffset() : this.end;
+	}
 
 	public Position getStartOffset() {
+		this.anchorQuietly();
 		return this.startOffset;
 	}
 
@@ -44,6 +114,7 @@ public class WordToken {
 	}
 
 	public Position getEndOffset() {
+		this.anchorQuietly();
 		return this.endOffset;
 	}
 
@@ -71,14 +142,26 @@ public class WordToken {
 		this.suggestions = suggestions;
 	}
 
+	/**
+	 * @return the tag set by {@link #setHighlightTag(Object)}
+	 * @deprecated Misspellings are no longer given a highlight of their own, they are all painted
+	 *             by a single highlight, so this is never set by the library.
+	 */
+	@Deprecated
 	public Highlight getHighlightTag() {
 		return this.highlightTag;
 	}
 
 	public boolean hasChanged() {
-		return this.getEndOffset().getOffset() - this.getStartOffset().getOffset() + 1 != this.token.length();
+		return this.getEnd() - this.getStart() + 1 != this.token.length();
 	}
 
+	/**
+	 * @param highlightTag the tag of the highlight of the token
+	 * @deprecated Misspellings are no longer given a highlight of their own, they are all painted
+	 *             by a single highlight, so this is never used by the library.
+	 */
+	@Deprecated
 	public void setHighlightTag(Object highlightTag) {
 		if ( highlightTag instanceof Highlight ) {
 			this.highlightTag = (Highlight) highlightTag;
@@ -92,7 +175,7 @@ public class WordToken {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + this.getLength();
-		result = prime * result + ((this.startOffset == null) ? 0 : this.startOffset.getOffset());
+		result = prime * result + this.getStart();
 		result = prime * result + ((this.token == null) ? 0 : this.token.hashCode());
 		return result;
 	}
@@ -112,7 +195,7 @@ public class WordToken {
 		if (this.getLength() != other.getLength()) {
 			return false;
 		}
-		if (this.startOffset.getOffset() != other.startOffset.getOffset()) {
+		if (this.getStart() != other.getStart()) {
 			return false;
 		}
 		if (this.token == null) {
@@ -127,11 +210,17 @@ public class WordToken {
 
 	@Override
 	public String toString() {
-		return "WordToken [offset=" + this.startOffset + ", length=" + this.getLength()
+		return "WordToken [offset=" + this.getStart() + ", length=" + this.getLength()
 				+ ", token=" + this.token + "]";
 	}
 
-
-
-
+	private void anchorQuietly() {
+		if ( !this.isAnchored() ) {
+			try {
+				this.anchor();
+			} catch (BadLocationException e) {
+				throw new IllegalStateException("Token is no longer in the document: "+this, e);
+			}
+		}
+	}
 }
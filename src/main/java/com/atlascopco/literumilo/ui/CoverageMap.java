@@ -0,0 +1,161 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Position;
+
+/**
+ * This class keeps track of which parts of a document have been checked, so that only the parts
+ * that have not been can be checked when they are scrolled to.
+ *
+ * The ranges are kept as {@link Position}s, so that they follow the edits made to the document.
+ * They are kept in document order and never overlap, which does not change as the document is
+ * edited, since at most some of them end up empty or touching.
+ *
+ * @author Thomas Joiner
+ */
+final class CoverageMap {
+
+	private final Document document;
+	private final List<Position[]> ranges = new ArrayList<Position[]>();
+
+	/**
+	 * Creates an empty {@link CoverageMap}.
+	 *
+	 * @param document the document whose coverage is tracked
+	 */
+	public CoverageMap(Document document) {
+		this.document = document;
+	}
+
+	/**
+	 * Marks a range as checked.
+	 *
+	 * @param from the start of the range (inclusive)
+	 * @param to the end of the range (exclusive)
+	 * @throws BadLocationException if the range is not within the document
+	 */
+	public void add(int from, int to) throws BadLocationException {
+		if ( to <= from ) {
+			return;
+		}
+
+		int index = 0;
+		while ( index < this.ranges.size() && end(this.ranges.get(index)) < from ) {
+			index++;
+		}
+
+		// Absorb all the ranges that overlap or touch the new one
+		while ( index < this.ranges.size() && start(this.ranges.get(index)) <= to ) {
+			Position[] range = this.ranges.remove(index);
+			from = Math.min(from, start(range));
+			to = Math.max(to, end(range));
+		}
+
+		this.ranges.add(index, this.range(from, to));
+	}
+
+	/**
+	 * Marks a range as not checked, for example because new text was inserted there.
+	 *
+	 * @param from the start of the range (inclusive)
+	 * @param to the end of the range (exclusive)
+	 * @throws BadLocationException if the range is not within the document
+	 */
+	public void remove(int from, int to) throws BadLocationException {
+		if ( to <= from ) {
+			return;
+		}
+
+		for (int i = 0; i < this.ranges.size(); i++) {
+			Position[] range = this.ranges.get(i);
+			int start = start(range);
+			int end = end(range);
+
+			if ( end <= from || start >= to ) {
+				continue;
+			}
+
+			this.ranges.remove(i);
+
+			// Keep whatever sticks out on either side
+			if ( end > to ) {
+				this.ranges.add(i, this.range(to, end));
+			}
+			if ( start < from ) {
+				this.ranges.add(i, this.range(start, from));
+				i++;
+			}
+			i--;
+		}
+	}
+
+	/**
+	 * Finds the parts of a range that have not been checked.
+	 *
+	 * @param from the start of the range (inclusive)
+	 * @param to the end of the range (exclusive)
+	 * @return the start (inclusive) and end (exclusive) of each unchecked part, in document order
+	 */
+	public List<int[]> getUncovered(int from, int to) {
+		List<int[]> uncovered = new ArrayList<int[]>();
+		int current = from;
+
+		for (Position[] range : this.ranges) {
+			if ( current >= to ) {
+				break;
+			}
+
+			int start = start(range);
+			int end = end(range);
+
+			if ( end <= current ) {
+				continue;
+			}
+			if ( start > current ) {
+				uncovered.add(new int[] { current, Math.min(start, to) });
+			}
+			current = Math.max(current, end);
+		}
+
+		if ( current < to ) {
+			uncovered.add(new int[] { current, to });
+		}
+
+		return uncovered;
+	}
+
+	public void clear() {
+		this.ranges.clear();
+	}
+
+	private Position[] range(int from, int to) throws BadLocationException {
+		return new Position[] { this.document.createPosition(from), this.document.createPosition(to) };
+	}
+
+	private static int start(Position[] range) {
+		return range[0].getOffset();
+	}
+
+	private static int end(Position[] range) {
+		return range[1].getOffset();
+	}
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.ui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Position;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This class collects the regions of a document that have been edited, so that they can be checked
+ * together once the edits stop coming, instead of once per edit.
+ *
+ * The regions are kept as {@link Position}s, so that they follow the edits made to the document
+ * while they wait.  Regions that overlap (or touch) are merged, so a burst of typing in one place
+ * ends up as a single region.  The regions are handed to the {@link Listener} once no edit has
+ * been made for the idle delay, or once the oldest of them has waited for the maximum latency,
+ * whichever comes first.  All of this happens on the EDT.
+ *
+ * @author Thomas Joiner
+ */
+final class DirtyRegionScheduler {
+
+	private static final Logger log = LoggerFactory.getLogger(DirtyRegionScheduler.class);
+
+	/**
+	 * This interface is notified of the regions that need to be checked.
+	 */
+	public interface Listener {
+		/**
+		 * Called on the EDT for each region that needs to be checked.
+		 *
+		 * @param offset the offset of the region
+		 * @param length the length of the region
+		 */
+		void regionDirty(int offset, int length);
+	}
+
+	private final Document document;
+	private final Listener listener;
+	private final int maximumLatency;
+	private final Timer timer;
+
+	private final List<Position[]> regions = new ArrayList<Position[]>();
+	/**
+	 * The time at which the oldest region was marked, or -1 if there are no regions.
+	 */
+	private long firstMarked = -1;
+
+	/**
+	 * Creates a {@link DirtyRegionScheduler}.
+	 *
+	 * @param document the document that the regions are in
+	 * @param delay the number of milliseconds without an edit to wait before flushing the regions
+	 * @param maximumLatency the maximum number of milliseconds a region will wait to be flushed
+	 * @param listener the listener to flush the regions to
+	 */
+	public DirtyRegionScheduler(Document document, int delay, int maximumLatency, Listener listener) {
+		this.document = document;
+		this.listener = listener;
+		this.maximumLatency = maximumLatency;
+		this.timer = new Timer(delay, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				DirtyRegionScheduler.this.flush();
+			}
+		});
+		this.timer.setRepeats(false);
+	}
+
+	/**
+	 * Marks a region as needing to be checked, and (re)starts the idle delay.
+	 *
+	 * @param offset the offset of the region
+	 * @param length the length of the region
+	 */
+	public void markDirty(int offset, int length) {
+		int start = offset;
+		int end = offset + length;
+
+		// Absorb all the regions that overlap or touch the new one
+		for (Iterator<Position[]> iterator = this.regions.iterator(); iterator.hasNext();) {
+			Position[] region = iterator.next();
+
+			if ( region[0].getOffset() <= end && region[1].getOffset() >= start ) {
+				start = Math.min(start, region[0].getOffset());
+				end = Math.max(end, region[1].getOffset());
+				iterator.remove();
+			}
+		}
+
+		try {
+			this.regions.add(new Position[] { this.document.createPosition(start), this.document.createPosition(end) });
+		} catch (BadLocationException e) {
+			log.error("An error occurred when marking a region as dirty.", e);
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		if ( this.firstMarked == -1 ) {
+			this.firstMarked = now;
+		}
+
+		// Never let the idle delay push the check past the deadline
+		long untilDeadline = this.firstMarked + this.maximumLatency - now;
+		this.timer.setInitialDelay((int) Math.max(0, Math.min(this.timer.getDelay(), untilDeadline)));
+		this.timer.restart();
+	}
+
+	/**
+	 * Hands all the regions waiting to be checked to the {@link Listener} right away.
+	 */
+	public void flush() {
+		this.timer.stop();
+
+		List<Position[]> regions = new ArrayList<Position[]>(this.regions);
+		this.clear();
+
+		int documentLength = this.document.getLength();
+		for (Position[] region : regions) {
+			int start = Math.min(region[0].getOffset(), documentLength);
+			int end = Math.min(region[1].getOffset(), documentLength);
+
+			this.listener.regionDirty(start, Math.max(0, end - start));
+		}
+	}
+
+	/**
+	 * Forgets all the regions waiting to be checked.
+	 */
+	public void clear() {
+		this.timer.stop();
+		this.regions.clear();
+		this.firstMarked = -1;
+	}
+
+	/**
+	 * @return true if there are regions waiting to be checked
+	 */
+	public boolean isPending() {
+		return !this.regions.isEmpty();
+	}
+}
@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.ui;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class records the edits made to a document so that offsets that were found while checking
+ * the document in the background can be brought up to date with the edits that were made in
+ * the mean time.
+ *
+ * Each edit increments the generation of the document.  Work done in the background notes the
+ * generation of the text it read, and when its results come back they are moved past every
+ * edit made since that generation.
+ *
+ * @author Thomas Joiner
+ */
+final class EditLog {
+
+	private final List<Edit> edits = new ArrayList<Edit>();
+	/**
+	 * The generation that the first edit in {@link #edits} produced.
+	 */
+	private int firstGeneration = 1;
+	private int generation = 0;
+
+	/**
+	 * @return the current generation of the document
+	 */
+	public synchronized int getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Records that text was inserted into the document.
+	 *
+	 * @param offset the offset the text was inserted at
+	 * @param length the length of the inserted text
+	 */
+	public synchronized void recordInsert(int offset, int length) {
+		this.record(new Edit(offset, length));
+	}
+
+	/**
+	 * Records that text was removed from the document.
+	 *
+	 * @param offset the offset the text was removed from
+	 * @param length the length of the removed text
+	 */
+	public synchronized void recordRemove(int offset, int length) {
+		this.record(new Edit(offset, -length));
+	}
+
+	/**
+	 * Forgets all of the edits recorded so far.  This should be called whenever there is no
+	 * work in progress that could still need them.
+	 */
+	public synchronized void trim() {
+		this.edits.clear();
+		this.firstGeneration = this.generation + 1;
+	}
+
+	/**
+	 * Moves an offset past all the edits made since the given generation.
+	 *
+	 * @param offset the offset in the given generation
+	 * @param endBias true if text inserted at the offset should end up before it, as is the case
+	 *                for the end of a range
+	 * @param since the generation the offset is from
+	 * @return the offset in the current generation
+	 */
+	public synchronized int map(int offset, boolean endBias, int since) {
+		for (int i = this.indexOf(since); i < this.edits.size(); i++) {
+			Edit edit = this.edits.get(i);
+
+			if ( edit.length > 0 ) {
+				if ( offset > edit.offset || (offset == edit.offset && endBias) ) {
+					offset += edit.length;
+				}
+			} else {
+				int removedEnd = edit.offset - edit.length;
+
+				if ( offset >= removedEnd ) {
+					offset += edit.length;
+				} else if ( offset > edit.offset ) {
+					offset = edit.offset;
+				}
+			}
+		}
+
+		return offset;
+	}
+
+	/**
+	 * Moves a word past all the edits made since the given generation.  If any of the edits
+	 * touched the word (or the characters right next to it) then the word may no longer be
+	 * the same, so it can not be moved.
+	 *
+	 * @param range the offsets of the first and last characters of the word, updated in place
+	 * @param since the generation the offsets are from
+	 * @return true if the word was moved, false if it was affected by one of the edits
+	 */
+	public synchronized boolean rebase(int[] range, int since) {
+		if ( since < this.firstGeneration - 1 ) {
+			// The edits needed have been forgotten
+			return false;
+		}
+
+		for (int i = this.indexOf(since); i < this.edits.size(); i++) {
+			Edit edit = this.edits.get(i);
+			int affectedEnd = edit.length > 0 ? edit.offset : edit.offset - edit.length;
+
+			if ( edit.offset > range[1] + 1 ) {
+				// Entirely after the word
+				continue;
+			} else if ( affectedEnd < range[0] ) {
+				// Entirely before the word
+				range[0] += edit.length;
+				range[1] += edit.length;
+			} else {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private void record(Edit edit) {
+		this.edits.add(edit);
+		this.generation++;
+	}
+
+	/**
+	 * @param since a generation
+	 * @return the index in {@link #edits} of the first edit made after the generation
+	 */
+	private int indexOf(int since) {
+		return Math.max(0, since - this.firstGeneration + 1);
+	}
+
+	/**
+	 * A single insertion (positive length) or removal (negative length).
+	 */
+	private static final class Edit {
+		private final int offset;
+		private final int length;
+
+		public Edit(int offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+}
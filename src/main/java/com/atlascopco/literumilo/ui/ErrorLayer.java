@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.ui;
+
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Highlighter;
+import javax.swing.text.Highlighter.HighlightPainter;
+import javax.swing.text.JTextComponent;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.atlascopco.literumilo.tokenizer.WordToken;
+import com.atlascopco.literumilo.ui.painters.SquigglyUnderlineHighlightPainter;
+import com.atlascopco.literumilo.ui.painters.SquigglyUnderlineHighlightPainter.PaintCache;
+
+/**
+ * This class paints all of the misspelled words in a component as a single highlight, rather than
+ * adding a highlight to the component's {@link Highlighter} for each of them.
+ *
+ * The highlight covers the whole document, and when it is painted, only the words in the
+ * {@link HighlightIndex} that intersect the area being painted are looked up and painted (using
+ * the {@link HighlightPainter} that was given for them).  The cost of painting therefore depends
+ * on how many misspelled words are on the screen, not on how many there are in the document.
+ * Since it is an ordinary highlight, it coexists with any other highlights (such as the selection)
+ * that the component has.
+ *
+ * Adding and removing words only repaints the area that they cover.  If the words are painted with
+ * a {@link SquigglyUnderlineHighlightPainter}, the layer keeps the cache that the painter works
+ * with for this component, so that the painter itself can be shared.  All of this must happen on
+ * the EDT.
+ *
+ * @author Thomas Joiner
+ */
+final class ErrorLayer implements HighlightPainter {
+
+	private static final Logger log = LoggerFactory.getLogger(ErrorLayer.class);
+
+	private final JTextComponent component;
+	private final HighlightIndex index;
+	private HighlightPainter painter;
+	/**
+	 * The cache that the painter paints with, or null if it does not use one or has not painted yet.
+	 */
+	private PaintCache paintCache;
+	/**
+	 * The tag of the highlight that covers the document, or null if it has not been installed.
+	 */
+	private Object tag;
+
+	/**
+	 * Creates an {@link ErrorLayer}.
+	 *
+	 * @param component the component to paint the misspelled words of
+	 * @param index the index that the misspelled words are kept in
+	 * @param painter the painter to paint each misspelled word with
+	 */
+	public ErrorLayer(JTextComponent component, HighlightIndex index, HighlightPainter painter) {
+		this.component = component;
+		this.index = index;
+		this.painter = painter;
+	}
+
+	/**
+	 * Adds the highlight that the misspelled words are painted in to the component.
+	 */
+	public void install() {
+		if ( this.tag == null ) {
+			try {
+				this.tag = this.component.getHighlighter().addHighlight(0, this.component.getDocument().getLength(), this);
+			} catch (BadLocationException e) {
+				log.error("An error occurred when adding highlight.", e);
+			}
+		}
+	}
+
+	/**
+	 * Removes the highlight that the misspelled words are painted in from the component.
+	 */
+	public void uninstall() {
+		if ( this.tag != null ) {
+			this.component.getHighlighter().removeHighlight(this.tag);
+			this.tag = null;
+		}
+		this.disposePaintCache();
+	}
+
+	/**
+	 * Highlights a misspelled word.
+	 *
+	 * @param token the misspelled word
+	 */
+	public void add(WordToken token) {
+		this.index.add(token);
+		this.repaint(token);
+	}
+
+	/**
+	 * Stops highlighting a misspelled word.
+	 *
+	 * @param token the word
+	 */
+	public void remove(WordToken token) {
+		if ( this.index.remove(token) ) {
+			this.repaint(token);
+		}
+	}
+
+	/**
+	 * Stops highlighting all of the misspelled words.
+	 */
+	public void clear() {
+		this.index.clear();
+		this.component.repaint();
+	}
+
+	/**
+	 * @param from the first offset of the range (inclusive)
+	 * @param to the last offset of the range (inclusive)
+	 * @return true if any of the highlighted words has a character in the range
+	 */
+	public boolean isHighlighted(int from, int to) {
+		return !this.index.getIntersecting(from, to).isEmpty();
+	}
+
+	public HighlightPainter getPainter() {
+		return this.painter;
+	}
+
+	/**
+	 * Sets the painter that each misspelled word is painted with.
+	 *
+	 * @param painter the painter
+	 */
+	public void setPainter(HighlightPainter painter) {
+		this.painter = painter;
+		this.disposePaintCache();
+		this.component.repaint();
+	}
+
+	/**
+	 * @return the cache that the painter paints with, or null if there is none
+	 */
+	PaintCache getPaintCache() {
+		return this.paintCache;
+	}
+
+	@Override
+	public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c) {
+		if ( this.index.size() == 0 ) {
+			return;
+		}
+
+		Rectangle alloc = bounds.getBounds();
+		Rectangle clip = g.getClipBounds();
+		if ( clip == null ) {
+			clip = alloc;
+		}
+
+		// Find the range of the document that is being painted, taking whole lines so that
+		// words that only stick into the clip are painted as well.
+		int start = c.viewToModel(new Point(alloc.x, clip.y));
+		int end = c.viewToModel(new Point(alloc.x + alloc.width, clip.y + clip.height));
+
+		if ( start < 0 || end < 0 ) {
+			start = 0;
+			end = c.getDocument().getLength();
+		}
+
+		if ( this.painter instanceof SquigglyUnderlineHighlightPainter ) {
+			SquigglyUnderlineHighlightPainter squigglyPainter = (SquigglyUnderlineHighlightPainter) this.painter;
+			if ( this.paintCache == null ) {
+				this.paintCache = squigglyPainter.createCache(this.component);
+			}
+
+			for (WordToken token : this.index.getIntersecting(Math.min(start, end), Math.max(start, end))) {
+				squigglyPainter.paint(g, token.getStart(), token.getEnd()+1, bounds, c, this.paintCache);
+			}
+		} else {
+			for (WordToken token : this.index.getIntersecting(Math.min(start, end), Math.max(start, end))) {
+				this.painter.paint(g, token.getStart(), token.getEnd()+1, bounds, c);
+			}
+		}
+	}
+
+	private void disposePaintCache() {
+		if ( this.paintCache != null ) {
+			this.paintCache.dispose();
+			this.paintCache = null;
+		}
+	}
+
+	/**
+	 * Repaints the area that a word covers.
+	 *
+	 * @param token the word
+	 */
+	private void repaint(WordToken token) {
+		try {
+			Rectangle first = this.component.modelToView(token.getStart());
+			Rectangle last = this.component.modelToView(Math.min(token.getEnd()+1, this.component.getDocument().getLength()));
+
+			if ( first == null || last == null ) {
+				// Not laid out yet, it will all be painted anyway
+				return;
+			}
+
+			if ( first.y == last.y ) {
+				this.component.repaint(first.union(last));
+			} else {
+				// The word wraps, so repaint the whole of the lines it is on
+				this.component.repaint(0, first.y, this.component.getWidth(), last.y + last.height - first.y);
+			}
+		} catch (BadLocationException e) {
+			this.component.repaint();
+		}
+	}
+}
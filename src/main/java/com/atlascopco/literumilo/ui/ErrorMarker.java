@@ -15,48 +15,105 @@
  ******************************************************************************/
 package com.atlascopco.literumilo.ui;
 
-import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.text.BadLocationException;
-import javax.swing.text.Highlighter;
+import javax.swing.text.Document;
 import javax.swing.text.JTextComponent;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.atlascopco.literumilo.spellchecker.AbstractSpellchecker;
+import com.atlascopco.literumilo.spellchecker.DictionaryNotReadyException;
 import com.atlascopco.literumilo.spellchecker.Spellchecker;
+import com.atlascopco.literumilo.tokenizer.TokenCursor;
 import com.atlascopco.literumilo.tokenizer.Tokenizer;
 import com.atlascopco.literumilo.tokenizer.WordToken;
-import com.atlascopco.literumilo.ui.painters.SquigglyUnderlineHighlightPainter;
 
-final class ErrorMarker extends SwingWorker<List<WordToken>, WordToken> {
+final class ErrorMarker extends SwingWorker<List<WordToken>, ErrorMarker.Slice> {
 
 	private static final Logger log = LoggerFactory.getLogger(ErrorMarker.class);
 
+	/**
+	 * The number of words that are passed to the {@link Spellchecker} at a time.
+	 */
+	private static final int BATCH_SIZE = 256;
+	/**
+	 * The size of the slices that the text is read from the document in.  Each slice is read
+	 * while holding the document's read lock, so this bounds how long an edit can be held up
+	 * by a check running in the background.
+	 */
+	private static final int SLICE_SIZE = 4 * 1024;
+	/**
+	 * The size of the chunks that the document is split into when checking in parallel.
+	 */
+	private static final int PARALLEL_CHUNK_SIZE = 32 * 1024;
+
+	/**
+	 * The executor that the chunks are checked on, created the first time a parallel
+	 * check is performed.
+	 */
+	private static ExecutorService chunkExecutor;
+	/**
+	 * The last failure to load a dictionary that was logged, so that it is not logged again for
+	 * every check made against the dictionary.
+	 */
+	private static volatile Throwable lastLoadFailure;
+
 	private final JTextComponent component;
-	private final List<WordToken> highlights;
+	private final ErrorLayer errorLayer;
+	private final EditLog editLog;
 	private Runnable callback;
 	private final Spellchecker spellchecker;
 	private final Tokenizer tokenizer;
 
 	private final int offset;
 	private final int length;
+	/**
+	 * The generation of the document that {@link #offset} and {@link #length} refer to.
+	 */
+	private final int generation;
 
 	private final List<WordToken> processedItems = new ArrayList<WordToken>();
+	/**
+	 * The number of slices that have been published but not yet processed.  These can still
+	 * be waiting to be processed once the task is done.
+	 */
+	private final AtomicInteger pendingSlices = new AtomicInteger();
+	/**
+	 * Whether the task has been run by {@link #doInForeground()}, which never makes it done.
+	 */
+	private volatile boolean ranInForeground = false;
 
-	public ErrorMarker(int offset, int length, JTextComponent component, List<WordToken> highlights, Spellchecker spellchecker, Tokenizer tokenizer) {
+	/**
+	 * Whether or not large ranges should be split up and checked on several threads.
+	 */
+	private boolean parallel = false;
+
+	public ErrorMarker(int offset, int length, JTextComponent component, ErrorLayer errorLayer, EditLog editLog, Spellchecker spellchecker, Tokenizer tokenizer) {
 		if ( offset < 0 || (offset >= component.getDocument().getLength() && offset != 0) || offset+length > component.getDocument().getLength()) {
 			throw new IllegalArgumentException("Invalid offset and length Event{offset="+offset+", length="+length+"}, Document {length="+component.getDocument().getLength()+"}");
 		}
 		this.offset = offset;
 		this.length = length;
 		this.component = component;
-		this.highlights = highlights;
+		this.errorLayer = errorLayer;
+		this.editLog = editLog;
+		this.generation = editLog.getGeneration();
 		this.spellchecker = spellchecker;
 		this.tokenizer = tokenizer;
 	}
@@ -70,6 +127,7 @@ final class ErrorMarker extends SwingWorker<List<WordToken>, WordToken> {
 	public List<WordToken> doInForeground() {
 		List<WordToken> doInBackground = this.doInBackground();
 
+		this.ranInForeground = true;
 		this.done();
 
 		return doInBackground;
@@ -82,33 +140,32 @@ final class ErrorMarker extends SwingWorker<List<WordToken>, WordToken> {
 			start = System.nanoTime();
 		}
 
-		List<WordToken> tokens = new ArrayList<WordToken>();
+		List<Slice> slices = new ArrayList<Slice>();
 
 		try {
-			for (WordToken word : this.tokenizer.tokenize(this.component.getDocument(), this.offset, this.length)) {
-				if ( this.isCancelled() ) {
-					return tokens;
-				}
-
-				if (this.spellchecker.misspelled(word.getToken())) {
-					tokens.add(word);
-
-					// If we are running on the EDT, then we don't want the normal
-					// processes to happen, because we are running it in the foreground.
-					if ( !SwingUtilities.isEventDispatchThread() ) {
-						this.publish(word);
-					}
-				}
+			if ( this.parallel && this.length > PARALLEL_CHUNK_SIZE ) {
+				this.markErrorsInParallel(slices);
+			} else {
+				// If we are running on the EDT, then we don't want the normal
+				// processes to happen, because we are running it in the foreground.
+				this.markErrors(this.offset, this.length, 0, slices, !SwingUtilities.isEventDispatchThread());
 			}
 
 			// If we are running on the EDT, then we need to manually force it
-			// to process the tokens, because we are running it in the
-			// foreground.
+			// to highlight the tokens, because we are running it in the
+			// foreground.  Nothing was published, so there is nothing to process.
 			if ( SwingUtilities.isEventDispatchThread() ) {
-				this.process(tokens);
+				this.highlight(slices);
 			}
 		} catch (BadLocationException e) {
 			log.error("An error occurred when tokenizing.", e);
+		} catch (DictionaryNotReadyException e) {
+			// The rest of the range is left unchecked.  The spellchecker tells the component once
+			// the dictionary is ready, which checks the document again.
+			if ( SwingUtilities.isEventDispatchThread() ) {
+				this.highlight(slices);
+			}
+			logNotReady(e);
 		}
 
 		if ( log.isDebugEnabled() ) {
@@ -116,29 +173,268 @@ final class ErrorMarker extends SwingWorker<List<WordToken>, WordToken> {
 			log.debug("markErrors: {} ms", TimeUnit.MILLISECONDS.convert(end - start, TimeUnit.NANOSECONDS));
 		}
 
+		List<WordToken> tokens = new ArrayList<WordToken>();
+		for (Slice slice : slices) {
+			tokens.addAll(slice.tokens);
+		}
+
 		return tokens;
 	}
 
+	/**
+	 * Logs that a check could not be made because the dictionary was not ready, logging each
+	 * failure to load one only once.
+	 *
+	 * @param e the exception the check failed with
+	 */
+	private static void logNotReady(DictionaryNotReadyException e) {
+		if ( !e.isLoadFailed() ) {
+			log.debug("Not checking until the dictionary for {} has loaded.", e.getLocale());
+		} else if ( lastLoadFailure != e.getCause() ) {
+			lastLoadFailure = e.getCause();
+			log.error("Not checking, since the dictionary for "+e.getLocale()+" failed to load.", e.getCause());
+		}
+	}
+
+	/**
+	 * Splits the range into chunks and has each of them checked on a separate thread.  The
+	 * misspelled words are published chunk by chunk, in the order they occur in the document.
+	 *
+	 * @param slices the list to add the checked slices to
+	 * @throws BadLocationException if the text could not be retrieved from the document
+	 */
+	private void markErrorsInParallel(List<Slice> slices) throws BadLocationException {
+		List<Future<List<Slice>>> chunks = new ArrayList<Future<List<Slice>>>();
+		ExecutorService executor = getChunkExecutor();
+
+		final int end = this.offset + this.length;
+		for (int chunkStart = this.offset; chunkStart < end; chunkStart += PARALLEL_CHUNK_SIZE) {
+			final int from = chunkStart;
+			final int to = Math.min(end, chunkStart + PARALLEL_CHUNK_SIZE);
+			// Every chunk sees the whole of the words at its ends, so only the first chunk
+			// keeps a word that starts before it; the others leave it to the previous chunk.
+			final int minimumStart = from == this.offset ? 0 : from;
+
+			chunks.add(executor.submit(new Callable<List<Slice>>() {
+				@Override
+				public List<Slice> call() throws BadLocationException {
+					List<Slice> chunkSlices = new ArrayList<Slice>();
+					ErrorMarker.this.markErrors(from, to - from, minimumStart, chunkSlices, false);
+					return chunkSlices;
+				}
+			}));
+		}
+
+		try {
+			for (Future<List<Slice>> chunk : chunks) {
+				if ( this.isCancelled() ) {
+					break;
+				}
+
+				List<Slice> chunkSlices = chunk.get();
+				slices.addAll(chunkSlices);
+
+				if ( !SwingUtilities.isEventDispatchThread() && !chunkSlices.isEmpty() ) {
+					this.pendingSlices.addAndGet(chunkSlices.size());
+					this.publish(chunkSlices.toArray(new Slice[chunkSlices.size()]));
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			if ( e.getCause() instanceof BadLocationException ) {
+				throw (BadLocationException) e.getCause();
+			}
+			if ( e.getCause() instanceof DictionaryNotReadyException ) {
+				throw (DictionaryNotReadyException) e.getCause();
+			}
+			throw new IllegalStateException("An error occurred when checking a chunk of the document.", e.getCause());
+		} finally {
+			for (Future<List<Slice>> chunk : chunks) {
+				chunk.cancel(false);
+			}
+		}
+	}
+
+	/**
+	 * Checks the given range of the document a slice at a time, adding the slices that have
+	 * misspelled words in them to the list.
+	 *
+	 * @param offset the offset of the range
+	 * @param length the length of the range
+	 * @param minimumStart words that start before this offset are skipped
+	 * @param slices the list to add the checked slices to
+	 * @param publish true if each slice should be published as soon as it has been checked
+	 * @throws BadLocationException if the text could not be retrieved from the document
+	 */
+	private void markErrors(int offset, int length, int minimumStart, List<Slice> slices, boolean publish) throws BadLocationException {
+		int end = offset + length;
+		int sliceStart = offset;
+
+		do {
+			int sliceLength = Math.min(SLICE_SIZE, end - sliceStart);
+			// As with the chunks, a word that starts before a slice belongs to the previous one
+			Slice slice = this.markSlice(sliceStart, sliceLength, sliceStart == offset ? minimumStart : sliceStart);
+
+			if ( slice == null ) {
+				return;
+			}
+
+			if ( !slice.tokens.isEmpty() ) {
+				slices.add(slice);
+
+				if ( publish ) {
+					this.pendingSlices.incrementAndGet();
+					this.publish(slice);
+				}
+			}
+
+			sliceStart += sliceLength;
+		} while ( sliceStart < end );
+	}
+
+	/**
+	 * Tokenizes a slice of the document and checks the words in it.
+	 *
+	 * The text is read while holding the document's read lock, and the generation of the document
+	 * is noted at the same time, so that the offsets of the misspelled words can be brought up to
+	 * date with any edits made while they were being checked.  The offsets given are in the
+	 * generation that this {@link ErrorMarker} was created in, so they are brought up to date
+	 * before the text is read.
+	 *
+	 * @param offset the offset of the slice
+	 * @param length the length of the slice
+	 * @param minimumStart words that start before this offset are skipped
+	 * @return the checked slice, or null if this {@link ErrorMarker} has been cancelled
+	 * @throws BadLocationException if the text could not be retrieved from the document
+	 */
+	private Slice markSlice(final int offset, final int length, final int minimumStart) throws BadLocationException {
+		final Document document = this.component.getDocument();
+		final List<String> words = new ArrayList<String>();
+		final int[][] offsets = { new int[16], new int[16] };
+		final int[] readGeneration = new int[1];
+		final BadLocationException[] error = new BadLocationException[1];
+
+		document.render(new Runnable() {
+			@Override
+			public void run() {
+				EditLog editLog = ErrorMarker.this.editLog;
+				int generation = ErrorMarker.this.generation;
+				readGeneration[0] = editLog.getGeneration();
+
+				int documentLength = document.getLength();
+				int from = Math.min(editLog.map(offset, false, generation), documentLength);
+				int to = Math.min(editLog.map(offset + length, true, generation), documentLength);
+				int minimum = minimumStart == 0 ? 0 : editLog.map(minimumStart, false, generation);
+
+				if ( from >= documentLength && from != 0 ) {
+					// Everything in the slice has since been removed
+					return;
+				}
+
+				try {
+					TokenCursor cursor = ErrorMarker.this.tokenizer.cursor(document, from, Math.max(0, to - from));
+
+					while ( cursor.next() ) {
+						if ( cursor.getStartOffset() < minimum ) {
+							continue;
+						}
+
+						int index = words.size();
+						if ( index == offsets[0].length ) {
+							offsets[0] = Arrays.copyOf(offsets[0], index * 2);
+							offsets[1] = Arrays.copyOf(offsets[1], index * 2);
+						}
+
+						offsets[0][index] = cursor.getStartOffset();
+						offsets[1][index] = cursor.getEndOffset();
+						words.add(cursor.getToken().toString());
+					}
+				} catch (BadLocationException e) {
+					error[0] = e;
+				}
+			}
+		});
+
+		if ( error[0] != null ) {
+			throw error[0];
+		}
+
+		List<WordToken> tokens = new ArrayList<WordToken>();
+
+		// The read lock has been released, so the document can be edited while the words
+		// are actually being checked.
+		for (int batchStart = 0; batchStart < words.size(); batchStart += BATCH_SIZE) {
+			if ( this.isCancelled() ) {
+				return null;
+			}
+
+			List<String> batch = words.subList(batchStart, Math.min(words.size(), batchStart + BATCH_SIZE));
+			BitSet misspelled = AbstractSpellchecker.misspelled(this.spellchecker, batch);
+
+			// Only create a WordToken for the words that are going to be highlighted
+			for (int i = misspelled.nextSetBit(0); i >= 0; i = misspelled.nextSetBit(i+1)) {
+				int index = batchStart + i;
+				tokens.add(new WordToken(document, offsets[0][index], offsets[1][index], words.get(index)));
+			}
+		}
+
+		return this.isCancelled() ? null : new Slice(tokens, readGeneration[0]);
+	}
+
 	@Override
-	protected void process(List<WordToken> chunks) {
+	protected void process(List<Slice> chunks) {
+		this.pendingSlices.addAndGet(-chunks.size());
+
+		super.process(chunks);
+
+		this.highlight(chunks);
+	}
+
+	/**
+	 * Highlights the misspelled words found in the given slices, unless this task has been
+	 * cancelled.
+	 *
+	 * @param chunks the slices to highlight the words of
+	 */
+	private void highlight(List<Slice> chunks) {
 		// Don't perform any processing if it has already been cancelled.
 		if ( this.isCancelled() ) {
 			return;
 		}
 
-		super.process(chunks);
+		Document document = this.component.getDocument();
+		int[] range = new int[2];
 
-		for (WordToken wordToken : chunks) {
-			try {
-				Highlighter highlighter = this.component.getHighlighter();
-				Object tag = highlighter.addHighlight(wordToken.getStartOffset().getOffset(),
-								wordToken.getEndOffset().getOffset()+1,
-								new SquigglyUnderlineHighlightPainter(Color.RED));
-				wordToken.setHighlightTag(tag);
-				this.processedItems.add(wordToken);
-				this.highlights.add(wordToken);
-			} catch (BadLocationException e) {
-				log.error("An error occurred when adding highlight.", e);
+		for (Slice slice : chunks) {
+			for (WordToken wordToken : slice.tokens) {
+				// Move the word past any edits made since it was read, dropping it if one
+				// of them touched it; the edit will have had the word re-checked itself.
+				range[0] = wordToken.getStart();
+				range[1] = wordToken.getEnd();
+				if ( !this.editLog.rebase(range, slice.generation) ) {
+					continue;
+				}
+
+				if ( range[0] != wordToken.getStart() ) {
+					wordToken = new WordToken(document, range[0], range[1], wordToken.getToken());
+				}
+
+				// Another check may have already highlighted the word
+				if ( this.errorLayer.isHighlighted(range[0], range[1]) ) {
+					continue;
+				}
+
+				try {
+					// Only now that the word is actually going to be highlighted does it
+					// need to follow the edits made to the document.
+					wordToken.anchor();
+
+					this.processedItems.add(wordToken);
+					this.errorLayer.add(wordToken);
+				} catch (BadLocationException e) {
+					log.error("An error occurred when adding highlight.", e);
+				}
 			}
 		}
 	}
@@ -160,6 +456,41 @@ final class ErrorMarker extends SwingWorker<List<WordToken>, WordToken> {
 		this.callback = callback;
 	}
 
+	/**
+	 * Sets whether or not a large range should be split up into chunks which are checked on
+	 * several threads at the same time.  This requires that the {@link Spellchecker} can be
+	 * used by several threads at once.
+	 *
+	 * @param parallel true to check large ranges in parallel
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Retrieves the executor that chunks are checked on, creating it if necessary.  It has a
+	 * thread for each processor, which are daemon threads so that they do not keep the
+	 * application alive.
+	 *
+	 * @return the executor to check chunks on
+	 */
+	private static synchronized ExecutorService getChunkExecutor() {
+		if ( chunkExecutor == null ) {
+			chunkExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "literumilo-chunk-"+this.count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+
+		return chunkExecutor;
+	}
+
 	public int getOffset() {
 		return this.offset;
 	}
@@ -168,8 +499,41 @@ final class ErrorMarker extends SwingWorker<List<WordToken>, WordToken> {
 		return this.length;
 	}
 
+	/**
+	 * @return the generation of the document that {@link #getOffset()} and {@link #getLength()}
+	 *         refer to
+	 */
+	public int getGeneration() {
+		return this.generation;
+	}
+
+	/**
+	 * Returns whether or not this task is completely finished, which unlike {@link #isDone()}
+	 * also takes into account the misspelled words that are still waiting to be highlighted.
+	 *
+	 * @return true if the task has been canceled, has been run in the foreground, or is done and
+	 *         has highlighted everything it found
+	 */
+	public boolean isFinished() {
+		return this.isCancelled() || this.ranInForeground || (this.isDone() && this.pendingSlices.get() == 0);
+	}
+
 	public List<WordToken> getProcessedItems() {
 		return this.processedItems;
 	}
 
+	/**
+	 * The misspelled words found in one slice of the document, along with the generation of the
+	 * document that their offsets refer to.
+	 */
+	static final class Slice {
+		private final List<WordToken> tokens;
+		private final int generation;
+
+		public Slice(List<WordToken> tokens, int generation) {
+			this.tokens = tokens;
+			this.generation = generation;
+		}
+	}
+
 }
@@ -0,0 +1,281 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.ui;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import javax.swing.text.Position;
+
+import com.atlascopco.literumilo.tokenizer.WordToken;
+
+/**
+ * This class keeps the highlighted {@link WordToken}s ordered by their location in the
+ * document, so that the ones around an edit can be found without looking at all of them.
+ *
+ * The tokens are kept in a treap that is ordered by the offsets of their {@link Position}s.
+ * Those offsets move when the document is edited, but since the highlighted words never
+ * overlap, the order of the tokens never changes, it only happens that some of them end
+ * up sharing an offset when the text between them is removed.  Because of this, the tree
+ * is only ever searched by offset; removals find their node through an identity map
+ * instead, so that they do not depend on the offsets at all.
+ *
+ * @author Thomas Joiner
+ */
+final class HighlightIndex {
+
+	private final Map<WordToken, Node> nodes = new IdentityHashMap<WordToken, Node>();
+	private final Random random = new Random();
+	private Node root;
+
+	/**
+	 * Adds a token to the index.
+	 *
+	 * @param token the token to add
+	 */
+	public void add(WordToken token) {
+		if ( this.nodes.containsKey(token) ) {
+			return;
+		}
+
+		Node node = new Node(token, this.random.nextInt());
+		this.nodes.put(token, node);
+
+		if ( this.root == null ) {
+			this.root = node;
+			return;
+		}
+
+		int start = start(token);
+		Node parent = this.root;
+		while (true) {
+			if ( start < start(parent.token) ) {
+				if ( parent.left == null ) {
+					parent.left = node;
+					break;
+				}
+				parent = parent.left;
+			} else {
+				if ( parent.right == null ) {
+					parent.right = node;
+					break;
+				}
+				parent = parent.right;
+			}
+		}
+		node.parent = parent;
+
+		while ( node.parent != null && node.priority < node.parent.priority ) {
+			this.rotateUp(node);
+		}
+	}
+
+	/**
+	 * Removes a token from the index.
+	 *
+	 * @param token the token to remove
+	 * @return true if the token was in the index
+	 */
+	public boolean remove(WordToken token) {
+		Node node = this.nodes.remove(token);
+
+		if ( node == null ) {
+			return false;
+		}
+
+		// Rotate the node down until it has at most one child, then splice it out.
+		while ( node.left != null && node.right != null ) {
+			this.rotateUp(node.left.priority < node.right.priority ? node.left : node.right);
+		}
+
+		Node child = node.left != null ? node.left : node.right;
+		this.replace(node, child);
+
+		return true;
+	}
+
+	/**
+	 * Finds the token that contains the given offset.
+	 *
+	 * @param offset the offset to look for
+	 * @return the token that contains the offset, or null if there is none
+	 */
+	public WordToken getTokenAt(int offset) {
+		// Find the last token that starts at or before the offset.
+		Node candidate = null;
+		Node node = this.root;
+		while ( node != null ) {
+			if ( start(node.token) <= offset ) {
+				candidate = node;
+				node = node.right;
+			} else {
+				node = node.left;
+			}
+		}
+
+		if ( candidate != null && end(candidate.token) >= offset ) {
+			return candidate.token;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Finds all the tokens that have at least one character in the given range.
+	 *
+	 * @param from the first offset of the range (inclusive)
+	 * @param to the last offset of the range (inclusive)
+	 * @return the intersecting tokens, in document order
+	 */
+	public List<WordToken> getIntersecting(int from, int to) {
+		List<WordToken> intersecting = new ArrayList<WordToken>();
+
+		// Find the first token that ends at or after the start of the range.
+		Node first = null;
+		Node node = this.root;
+		while ( node != null ) {
+			if ( end(node.token) >= from ) {
+				first = node;
+				node = node.left;
+			} else {
+				node = node.right;
+			}
+		}
+
+		for (node = first; node != null && start(node.token) <= to; node = successor(node)) {
+			intersecting.add(node.token);
+		}
+
+		return intersecting;
+	}
+
+	/**
+	 * Returns all of the tokens in the index.
+	 *
+	 * @return all of the tokens, in document order
+	 */
+	public List<WordToken> getAll() {
+		List<WordToken> all = new ArrayList<WordToken>(this.nodes.size());
+
+		if ( this.root != null ) {
+			for (Node node = leftmost(this.root); node != null; node = successor(node)) {
+				all.add(node.token);
+			}
+		}
+
+		return all;
+	}
+
+	public int size() {
+		return this.nodes.size();
+	}
+
+	public void clear() {
+		this.nodes.clear();
+		this.root = null;
+	}
+
+	/**
+	 * Rotates a node above its parent, keeping the in-order sequence intact.
+	 *
+	 * @param node the node to rotate up
+	 */
+	private void rotateUp(Node node) {
+		Node parent = node.parent;
+
+		if ( parent.left == node ) {
+			parent.left = node.right;
+			if ( node.right != null ) {
+				node.right.parent = parent;
+			}
+			node.right = parent;
+		} else {
+			parent.right = node.left;
+			if ( node.left != null ) {
+				node.left.parent = parent;
+			}
+			node.left = parent;
+		}
+
+		this.replace(parent, node);
+		parent.parent = node;
+	}
+
+	/**
+	 * Puts {@code replacement} in the place of {@code node} in the tree.
+	 *
+	 * @param node the node to replace
+	 * @param replacement the node to put in its place (may be null)
+	 */
+	private void replace(Node node, Node replacement) {
+		Node parent = node.parent;
+
+		if ( parent == null ) {
+			this.root = replacement;
+		} else if ( parent.left == node ) {
+			parent.left = replacement;
+		} else {
+			parent.right = replacement;
+		}
+
+		if ( replacement != null ) {
+			replacement.parent = parent;
+		}
+	}
+
+	private static Node leftmost(Node node) {
+		while ( node.left != null ) {
+			node = node.left;
+		}
+		return node;
+	}
+
+	private static Node successor(Node node) {
+		if ( node.right != null ) {
+			return leftmost(node.right);
+		}
+
+		while ( node.parent != null && node.parent.right == node ) {
+			node = node.parent;
+		}
+
+		return node.parent;
+	}
+
+	private static int start(WordToken token) {
+		return token.getStart();
+	}
+
+	private static int end(WordToken token) {
+		return token.getEnd();
+	}
+
+	private static final class Node {
+		private final WordToken token;
+		private final int priority;
+		private Node left;
+		private Node right;
+		private Node parent;
+
+		public Node(WordToken token, int priority) {
+			this.token = token;
+			this.priority = priority;
+		}
+	}
+}
@@ -0,0 +1,213 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.ui;
+
+import java.awt.Component;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.swing.SwingWorker;
+
+/**
+ * This class runs the background spell-checking work for all of the {@link SpellcheckedComponent}s
+ * that share it, on a bounded number of threads.
+ *
+ * Unlike the pool that {@link SwingWorker#execute()} uses, which runs work in the order it was
+ * submitted, the work waiting here is ordered by {@link Priority}, so that the component the user
+ * is typing in is not held up by a component on a hidden tab.  When a component submits new work,
+ * the work it submitted before that has not started yet is dropped, since it has been superseded.
+ *
+ * @author Thomas Joiner
+ */
+public class SpellcheckExecutor {
+
+	/**
+	 * The priority of a piece of work, from highest to lowest.
+	 */
+	public enum Priority {
+		/**
+		 * The work is for the component that has the keyboard focus.
+		 */
+		FOCUSED,
+		/**
+		 * The work is for a component that is showing on the screen.
+		 */
+		VISIBLE,
+		/**
+		 * The work is for a component that can not currently be seen.
+		 */
+		HIDDEN;
+
+		/**
+		 * Determines the priority of work for the given component.
+		 *
+		 * @param component the component the work is for
+		 * @return the priority the work should have
+		 */
+		public static Priority of(Component component) {
+			if ( component.isFocusOwner() ) {
+				return FOCUSED;
+			} else if ( component.isShowing() ) {
+				return VISIBLE;
+			} else {
+				return HIDDEN;
+			}
+		}
+	}
+
+	private static final long KEEP_ALIVE_SECONDS = 30;
+
+	private final ThreadPoolExecutor executor;
+	private final AtomicLong sequence = new AtomicLong();
+	/**
+	 * The last task submitted by each owner.
+	 */
+	private final Map<Object, PrioritizedTask> latest = new IdentityHashMap<Object, PrioritizedTask>();
+
+	/**
+	 * Creates a {@link SpellcheckExecutor} with a thread for each processor.
+	 */
+	public SpellcheckExecutor() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a {@link SpellcheckExecutor}.
+	 *
+	 * @param threads the maximum number of threads to run work on
+	 */
+	public SpellcheckExecutor(int threads) {
+		if ( threads <= 0 ) {
+			throw new IllegalArgumentException("threads must be positive (was "+threads+").");
+		}
+
+		this.executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "literumilo-check-"+this.count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		// The threads are only kept around while there is work to do
+		this.executor.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Submits work to be run, dropping the work previously submitted by the same owner if it has
+	 * not started yet.
+	 *
+	 * @param owner the owner of the work, usually the component it is for
+	 * @param priority the priority of the work
+	 * @param task the work to run; if it is a {@link Future} it will be cancelled if it is dropped
+	 */
+	public void execute(Object owner, Priority priority, Runnable task) {
+		PrioritizedTask prioritizedTask = new PrioritizedTask(owner, priority, this.sequence.getAndIncrement(), task);
+		PrioritizedTask superseded;
+
+		synchronized (this.latest) {
+			superseded = this.latest.put(owner, prioritizedTask);
+		}
+
+		if ( superseded != null && this.executor.remove(superseded) ) {
+			if ( superseded.task instanceof Future ) {
+				((Future<?>) superseded.task).cancel(false);
+			}
+		}
+
+		this.executor.execute(prioritizedTask);
+	}
+
+	/**
+	 * Sets the maximum number of threads that work is run on.
+	 *
+	 * @param threads the number of threads
+	 */
+	public void setThreadCount(int threads) {
+		if ( threads <= 0 ) {
+			throw new IllegalArgumentException("threads must be positive (was "+threads+").");
+		}
+
+		// The maximum can never be less than the core size, so the order matters
+		if ( threads > this.executor.getMaximumPoolSize() ) {
+			this.executor.setMaximumPoolSize(threads);
+			this.executor.setCorePoolSize(threads);
+		} else {
+			this.executor.setCorePoolSize(threads);
+			this.executor.setMaximumPoolSize(threads);
+		}
+	}
+
+	public int getThreadCount() {
+		return this.executor.getMaximumPoolSize();
+	}
+
+	/**
+	 * Stops accepting work; the work that has already been submitted is still run.
+	 */
+	public void shutdown() {
+		this.executor.shutdown();
+	}
+
+	/**
+	 * Wraps a task so that it can be ordered in the queue.
+	 */
+	private final class PrioritizedTask implements Runnable, Comparable<PrioritizedTask> {
+		private final Object owner;
+		private final Priority priority;
+		private final long sequence;
+		private final Runnable task;
+
+		public PrioritizedTask(Object owner, Priority priority, long sequence, Runnable task) {
+			this.owner = owner;
+			this.priority = priority;
+			this.sequence = sequence;
+			this.task = task;
+		}
+
+		@Override
+		public void run() {
+			synchronized (SpellcheckExecutor.this.latest) {
+				if ( SpellcheckExecutor.this.latest.get(this.owner) == this ) {
+					SpellcheckExecutor.this.latest.remove(this.owner);
+				}
+			}
+
+			this.task.run();
+		}
+
+		@Override
+		public int compareTo(PrioritizedTask other) {
+			int byPriority = this.priority.compareTo(other.priority);
+
+			if ( byPriority != 0 ) {
+				return byPriority;
+			}
+
+			// Work of the same priority is run in the order it was submitted
+			return this.sequence < other.sequence ? -1 : (this.sequence == other.sequence ? 0 : 1);
+		}
+	}
+}
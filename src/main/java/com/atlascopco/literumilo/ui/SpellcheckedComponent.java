@@ -15,8 +15,14 @@
  ******************************************************************************/
 package com.atlascopco.literumilo.ui;
 
+import java.awt.Color;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseMotionAdapter;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
@@ -28,13 +34,20 @@ import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
 import javax.swing.JPopupMenu;
+import javax.swing.JViewport;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.event.CaretEvent;
+import javax.swing.event.CaretListener;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
+import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
-import javax.swing.text.Highlighter;
+import javax.swing.text.Highlighter.HighlightPainter;
 import javax.swing.text.JTextComponent;
 
 import org.slf4j.Logger;
@@ -42,20 +55,42 @@ import org.slf4j.LoggerFactory;
 
 import com.atlascopco.literumilo.spellchecker.Spellchecker;
 import com.atlascopco.literumilo.spellchecker.Spellchecker.DictionaryChangeListener;
+import com.atlascopco.literumilo.spellchecker.SuggestionCache;
 import com.atlascopco.literumilo.tokenizer.Tokenizer;
 import com.atlascopco.literumilo.tokenizer.WordToken;
+import com.atlascopco.literumilo.ui.painters.SquigglyUnderlineHighlightPainter;
 
 public class SpellcheckedComponent implements DocumentListener, DictionaryChangeListener {
 	/**
 	 * This is the cutoff for an update to be considered "small".  If an update is considered small
 	 * then it will be executed synchronously.  If it is not considered small, then it will be executed
-	 * asynchronously setting the component uneditable in the mean time. (cutoff arbitrarily chosen)
+	 * asynchronously, setting the component uneditable in the mean time unless asynchronous checking
+	 * is turned on. (cutoff arbitrarily chosen)
 	 */
 	private static final int SMALL_UPDATE_CUTOFF = 1024;
+	/**
+	 * When checks are delayed, this is how many times the delay a check can be put off by
+	 * continuous typing before it is performed anyway.
+	 */
+	private static final int MAXIMUM_LATENCY_FACTOR = 4;
+	/**
+	 * The number of characters on either side of the caret or mouse in which the suggestions for
+	 * misspelled words are prefetched.
+	 */
+	private static final int PREFETCH_DISTANCE = 256;
+	/**
+	 * The maximum number of words to prefetch the suggestions for at a time.
+	 */
+	private static final int MAXIMUM_PREFETCH = 8;
 
 	private static final Logger log = LoggerFactory.getLogger(SpellcheckedComponent.class);
 
-	private final List<WordToken> highlights = new ArrayList<WordToken>();
+	private final HighlightIndex highlights = new HighlightIndex();
+	/**
+	 * Paints the misspelled words in {@link #highlights}, created once the component is known.
+	 */
+	private final ErrorLayer errorLayer;
+	private final EditLog editLog = new EditLog();
 	private final JTextComponent component;
 	private JPopupMenu popupMenu;
 
@@ -76,6 +111,73 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 	private InputTracker inputTracker;
 
 	private ErrorMarker errorMarker;
+	/**
+	 * The executor to run background checks on, or null to use {@link SwingWorker#execute()}.
+	 */
+	private SpellcheckExecutor executor;
+	/**
+	 * The cache of suggestions, or null if suggestions should not be cached or prefetched.
+	 */
+	private SuggestionCache suggestionCache;
+	/**
+	 * Whether or not the suggestions for misspelled words near the caret and mouse should be
+	 * computed before they are asked for.
+	 */
+	private boolean suggestionPrefetching = false;
+	private final PrefetchTrigger prefetchTrigger = new PrefetchTrigger();
+	/**
+	 * Loads the suggestions into the popup menu while it is open, if they were not already known.
+	 */
+	private SuggestionLoader suggestionLoader;
+	/**
+	 * The words that suggestions were last prefetched for.
+	 */
+	private List<String> lastPrefetched = Collections.emptyList();
+
+	/**
+	 * Whether or not large checks should be split up and run on several threads.
+	 */
+	private boolean parallelChecking = false;
+	/**
+	 * Whether or not the component should stay editable while large checks run in the background.
+	 */
+	private boolean asynchronousChecking = false;
+	/**
+	 * The number of milliseconds to wait after an edit before checking it, or 0 to check every
+	 * edit immediately.
+	 */
+	private int checkDelay = 0;
+	/**
+	 * Collects the edited regions while checks are delayed, null if they are not.
+	 */
+	private DirtyRegionScheduler dirtyRegions;
+	/**
+	 * Whether or not the visible part of the document should be checked before the rest of it.
+	 */
+	private boolean viewportFirstChecking = false;
+	/**
+	 * The length above which only the parts of the document that have been scrolled to are checked.
+	 */
+	private int sparseCheckingThreshold = Integer.MAX_VALUE;
+	/**
+	 * The parts of the document that have been checked while checking sparsely, null otherwise.
+	 */
+	private CoverageMap coverage;
+	/**
+	 * The checks of the parts of the document that were scrolled to while checking sparsely that
+	 * may not have finished yet.  Each covers a separate part of the document.
+	 */
+	private final List<ErrorMarker> viewportFills = new ArrayList<ErrorMarker>();
+	/**
+	 * The viewport whose scrolling is being listened to, if any.
+	 */
+	private JViewport viewport;
+	private final ChangeListener viewportListener = new ChangeListener() {
+		@Override
+		public void stateChanged(ChangeEvent e) {
+			SpellcheckedComponent.this.checkUncoveredVisibleRange();
+		}
+	};
 
 	/**
 	 * This will instantiate the listeners for the component necessary in order to spell-check it.
@@ -93,6 +195,7 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		this.spellchecker = spellchecker;
 		this.tokenizer = tokenizer;
 		this.registerMenus = registerMenus;
+		this.errorLayer = new ErrorLayer(component, this.highlights, SquigglyUnderlineHighlightPainter.forColor(Color.RED));
 	}
 
 	/**
@@ -104,6 +207,9 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		if (!this.initialized) {
 			this.component.getDocument().addDocumentListener(this);
 			this.spellchecker.addDictionaryChangeListener(this);
+			this.errorLayer.install();
+			this.component.addCaretListener(this.prefetchTrigger);
+			this.component.addMouseMotionListener(this.prefetchTrigger);
 			if (this.registerMenus) {
 				this.registerMenus();
 			}
@@ -119,13 +225,24 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		if ( !this.initialized ) {
 			log.warn("Calling remove on a SpellcheckedComponent that hasn't been initialized.");
 		} else {
-			Highlighter highlighter = this.component.getHighlighter();
-			for (WordToken token : this.highlights) {
-				highlighter.removeHighlight(token.getHighlightTag());
+			this.errorLayer.clear();
+			this.errorLayer.uninstall();
+
+			if ( this.dirtyRegions != null ) {
+				this.dirtyRegions.clear();
+			}
+
+			if ( this.viewport != null ) {
+				this.viewport.removeChangeListener(this.viewportListener);
+				this.viewport = null;
 			}
+			this.cancelViewportFills();
+			this.coverage = null;
 
 			this.component.getDocument().removeDocumentListener(this);
 			this.spellchecker.removeDictionaryChangeListener(this);
+			this.component.removeCaretListener(this.prefetchTrigger);
+			this.component.removeMouseMotionListener(this.prefetchTrigger);
 
 			if ( this.registerMenus ) {
 				this.component.setComponentPopupMenu(this.oldPopupMenu);
@@ -165,15 +282,7 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 					return;
 				}
 
-				List<Action> spellcheckSuggestions = SpellcheckedComponent.this.getSpellcheckSuggestions(triggerPosition);
-
-				for (Action action : spellcheckSuggestions) {
-					SpellcheckedComponent.this.popupMenu.add(action);
-				}
-
-				if (spellcheckSuggestions.size() > 0) {
-					SpellcheckedComponent.this.popupMenu.addSeparator();
-				}
+				SpellcheckedComponent.this.addSuggestions(triggerPosition);
 
 				JMenu languageMenu = new JMenu("Languages");
 
@@ -186,11 +295,13 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 
 			@Override
 			public void popupMenuWillBecomeInvisible(PopupMenuEvent e) {
+				SpellcheckedComponent.this.abandonSuggestions();
 				SpellcheckedComponent.this.popupMenu.removeAll();
 			}
 
 			@Override
 			public void popupMenuCanceled(PopupMenuEvent e) {
+				SpellcheckedComponent.this.abandonSuggestions();
 				SpellcheckedComponent.this.popupMenu.removeAll();
 			}
 		});
@@ -206,15 +317,14 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		if ( log.isDebugEnabled() ) {
 			start = System.nanoTime();
 		}
-		Highlighter highlighter = this.component.getHighlighter();
-
-		for (Iterator<WordToken> wordIterator = this.highlights.iterator(); wordIterator.hasNext();) {
-			WordToken word = wordIterator.next();
+		this.editLog.recordRemove(e.getOffset(), e.getLength());
+		this.trimEditLog();
 
+		// Only the words touching the edit can have been affected by it
+		for (WordToken word : this.highlights.getIntersecting(e.getOffset() - 1, e.getOffset())) {
 			// If the edit affected the word, then we need to remove the highlight and re-tokenize that portion
 			if ( word.hasChanged() || word.getEndOffset().getOffset() == e.getOffset() - 1 || word.getEndOffset().getOffset() == e.getOffset() || word.getStartOffset().getOffset() == e.getOffset() ) {
-				highlighter.removeHighlight(word.getHighlightTag());
-				wordIterator.remove();
+				this.errorLayer.remove(word);
 			}
 		}
 
@@ -224,10 +334,18 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		}
 		int offset = bound(0, e.getOffset()-1, e.getDocument().getLength()-1);
 		int length = bound(0, 2, e.getDocument().getLength()-offset);
-		this.errorMarker = this.createErrorMarker(offset, length, this.component.getDocument());//new ErrorMarker(offset, length, this.component, this.highlights, this.spellchecker, this.tokenizer);
 
-		this.errorMarker.doInForeground();
-		this.errorMarker = null;
+		if ( this.dirtyRegions != null ) {
+			this.dirtyRegions.markDirty(offset, length);
+		} else if ( this.isCheckingInBackground() ) {
+			// Leave the check that is running alone, it will take care of the edit itself
+			this.newErrorMarker(offset, length).doInForeground();
+		} else {
+			this.errorMarker = this.createErrorMarker(offset, length, this.component.getDocument());//new ErrorMarker(offset, length, this.component, this.highlights, this.spellchecker, this.tokenizer);
+
+			this.errorMarker.doInForeground();
+			this.errorMarker = null;
+		}
 	}
 
 	/**
@@ -254,15 +372,14 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		if ( log.isDebugEnabled() ) {
 			start = System.nanoTime();
 		}
-		Highlighter highlighter = this.component.getHighlighter();
-
-		for (Iterator<WordToken> wordIterator = this.highlights.iterator(); wordIterator.hasNext();) {
-			WordToken word = wordIterator.next();
+		this.editLog.recordInsert(e.getOffset(), e.getLength());
+		this.trimEditLog();
 
+		// Only the words touching the edit can have been affected by it
+		for (WordToken word : this.highlights.getIntersecting(e.getOffset() - 1, e.getOffset() + e.getLength())) {
 			// If the edit affected the word, then we need to remove the highlight and re-tokenize that portion
 			if ( word.hasChanged() || word.getStartOffset().getOffset() == e.getOffset()+e.getLength() || word.getEndOffset().getOffset() == e.getOffset() - 1) {
-				highlighter.removeHighlight(word.getHighlightTag());
-				wordIterator.remove();
+				this.errorLayer.remove(word);
 			}
 		}
 
@@ -273,20 +390,97 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		int offset = bound(0, e.getOffset()-1, e.getDocument().getLength()-1);
 		int length = bound(0, e.getLength()+2, e.getDocument().getLength()-offset);
 
+		if ( this.dirtyRegions != null ) {
+			this.dirtyRegions.markDirty(offset, length);
+		} else {
+			this.check(offset, length);
+		}
+	}
+
+	/**
+	 * This method checks the given range of the document, in the foreground if it is small and in
+	 * the background otherwise.
+	 *
+	 * @param offset the offset of the range
+	 * @param length the length of the range
+	 */
+	private void check(int offset, int length) {
+		if ( this.coverage != null && length > SMALL_UPDATE_CUTOFF ) {
+			// Only check the part of a large edit that can be seen, the rest will be checked
+			// when it is scrolled to.
+			this.markUncovered(offset, offset + length);
+			this.checkUncoveredVisibleRange();
+			return;
+		}
+
+		if ( this.isCheckingInBackground() && length <= SMALL_UPDATE_CUTOFF ) {
+			// A small edit does not need to hold up (or restart) the check that is running,
+			// that check will take care of the edit itself
+			this.newErrorMarker(offset, length).doInForeground();
+			return;
+		}
+
 		this.errorMarker = this.createErrorMarker(offset, length, this.component.getDocument());//new ErrorMarker(offset, length, this.component, this.highlights, this.spellchecker, this.tokenizer);
 
 		if ( this.errorMarker.getLength() > SMALL_UPDATE_CUTOFF ) {
+			this.executeInBackground(this.errorMarker);
+		} else {
+			this.errorMarker.doInForeground();
+			this.errorMarker = null;
+		}
+	}
+
+	/**
+	 * @return true if asynchronous checking is turned on and a check is currently running in the
+	 *         background
+	 */
+	private boolean isCheckingInBackground() {
+		return this.asynchronousChecking && this.errorMarker != null && !this.errorMarker.isFinished();
+	}
+
+	/**
+	 * This method forgets the edits recorded so far if there is no check running in the background
+	 * that could still need them.
+	 */
+	private void trimEditLog() {
+		if ( (this.errorMarker == null || this.errorMarker.isFinished()) && !this.isFillingViewport() ) {
+			this.editLog.trim();
+		}
+	}
+
+	/**
+	 * This method executes the given {@link ErrorMarker} in the background, with the priority
+	 * that the component has.
+	 *
+	 * @param marker the {@link ErrorMarker} to execute
+	 * @see #executeInBackground(ErrorMarker, SpellcheckExecutor.Priority)
+	 */
+	private void executeInBackground(ErrorMarker marker) {
+		this.executeInBackground(marker, SpellcheckExecutor.Priority.of(this.component));
+	}
+
+	/**
+	 * This method executes the given {@link ErrorMarker} in the background.  Unless asynchronous
+	 * checking is turned on, the component is made uneditable until it has finished.
+	 *
+	 * @param marker the {@link ErrorMarker} to execute
+	 * @param priority the priority to execute it with, if there is a {@link SpellcheckExecutor}
+	 */
+	private void executeInBackground(ErrorMarker marker, SpellcheckExecutor.Priority priority) {
+		if ( !this.asynchronousChecking ) {
 			this.component.setEditable(false);
-			this.errorMarker.setCallback(new Runnable() {
+			marker.setCallback(new Runnable() {
 				@Override
 				public void run() {
 					SpellcheckedComponent.this.component.setEditable(true);
 				}
 			});
-			this.errorMarker.execute();
+		}
+
+		if ( this.executor != null ) {
+			this.executor.execute(this, priority, marker);
 		} else {
-			this.errorMarker.doInForeground();
-			this.errorMarker = null;
+			marker.execute();
 		}
 	}
 
@@ -312,30 +506,113 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		if ( this.errorMarker != null && !this.errorMarker.isDone() ) {
 			this.errorMarker.cancel(false);
 
-			List<WordToken> list = this.errorMarker.getProcessedItems();
-			Highlighter highlighter = this.component.getHighlighter();
+			if ( !this.asynchronousChecking ) {
+				List<WordToken> list = this.errorMarker.getProcessedItems();
 
-			// Remove all the highlights that were added by the canceled
-			// ErrorMarker, otherwise they will be added again by the new one.
-			for (WordToken wordToken : list) {
-				highlighter.removeHighlight(wordToken.getHighlightTag());
-				this.highlights.remove(wordToken);
+				// Remove all the highlights that were added by the canceled
+				// ErrorMarker, otherwise they will be added again by the new one.
+				// (When checking asynchronously, words that are already highlighted
+				// are skipped instead, so the highlights can stay where they are.)
+				for (WordToken wordToken : list) {
+					this.errorLayer.remove(wordToken);
+				}
 			}
 
-			// Adjust the offset and length
-			if ( offset < this.errorMarker.getOffset() ) {
-				length = (this.errorMarker.getOffset()-offset)+length;
-			} else {
-				length = (offset-this.errorMarker.getOffset())+length;
-				offset = this.errorMarker.getOffset();
-			}
+			// Cover the range of the canceled ErrorMarker as well, bringing it up to date
+			// with the edits made since it was created.
+			int[] oldRange = this.getCurrentRange(this.errorMarker);
+			int end = Math.max(offset + length, oldRange[1]);
+
+			offset = Math.min(offset, oldRange[0]);
+			length = end - offset;
 		}
 
 		// Make sure to bound the offset and length by the limits of the document
 		int realOffset = bound(0, offset, document.getLength());
 		int realLength = bound(0, length, document.getLength()-realOffset);
 
-		return new ErrorMarker(realOffset, realLength, this.component, this.highlights, this.spellchecker, this.tokenizer);
+		return this.newErrorMarker(realOffset, realLength);
+	}
+
+	/**
+	 * This method finds the range that an {@link ErrorMarker} covers now, bringing it up to date
+	 * with the edits made since it was created.
+	 *
+	 * @param marker the {@link ErrorMarker}
+	 * @return the start (inclusive) and end (exclusive) of the range
+	 */
+	private int[] getCurrentRange(ErrorMarker marker) {
+		int generation = marker.getGeneration();
+
+		return new int[] {
+				this.editLog.map(marker.getOffset(), false, generation),
+				this.editLog.map(marker.getOffset() + marker.getLength(), true, generation) };
+	}
+
+	/**
+	 * This method creates an {@link ErrorMarker} for the given range, configured the way this
+	 * component is.
+	 *
+	 * @param offset the offset to start the marking at
+	 * @param length the length to mark
+	 * @return the created {@link ErrorMarker}, ready to be executed
+	 */
+	private ErrorMarker newErrorMarker(int offset, int length) {
+		ErrorMarker marker = new ErrorMarker(offset, length, this.component, this.errorLayer, this.editLog, this.spellchecker, this.tokenizer);
+		marker.setParallel(this.parallelChecking);
+		return marker;
+	}
+
+	/**
+	 * This method adds the suggestions for the misspelled word at the given point to the popup menu.
+	 * If they are not already known, a placeholder is added instead, which is replaced once they
+	 * have been computed in the background.
+	 *
+	 * @param target the {@link Point} where the menu was triggered
+	 */
+	private void addSuggestions(Point target) {
+		this.abandonSuggestions();
+
+		WordToken belowMouse = this.getTokenByOffset(this.component.viewToModel(target));
+
+		if ( belowMouse == null ) {
+			return;
+		}
+
+		List<String> suggestions = belowMouse.getSuggestions();
+		if ( suggestions == null && this.suggestionCache != null
+				&& this.suggestionCache.contains(this.spellchecker, this.spellchecker.getCurrentDictionary(), belowMouse.getToken()) ) {
+			suggestions = this.suggestionCache.get(this.spellchecker, belowMouse.getToken());
+			belowMouse.setSuggestions(suggestions);
+		}
+
+		if ( suggestions != null ) {
+			for (String suggestion : suggestions) {
+				this.popupMenu.add(new ReplaceWordAction(this.component.getDocument(), belowMouse, suggestion));
+			}
+
+			if (suggestions.size() > 0) {
+				this.popupMenu.addSeparator();
+			}
+		} else {
+			JMenuItem placeholder = new JMenuItem("Loading suggestions...");
+			placeholder.setEnabled(false);
+			this.popupMenu.add(placeholder);
+			this.popupMenu.addSeparator();
+
+			this.suggestionLoader = new SuggestionLoader(this.popupMenu, placeholder, this.component.getDocument(), belowMouse, this.spellchecker, this.suggestionCache);
+			this.suggestionLoader.start(this.executor);
+		}
+	}
+
+	/**
+	 * This method stops waiting for the suggestions that are being loaded into the popup menu.
+	 */
+	private void abandonSuggestions() {
+		if ( this.suggestionLoader != null ) {
+			this.suggestionLoader.abandon();
+			this.suggestionLoader = null;
+		}
 	}
 
 	/**
@@ -357,7 +634,11 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 			List<String> suggestions = belowMouse.getSuggestions();
 
 			if ( suggestions == null ) {
-				suggestions = this.spellchecker.suggest(belowMouse.getToken());
+				if ( this.suggestionCache != null ) {
+					suggestions = this.suggestionCache.get(this.spellchecker, belowMouse.getToken());
+				} else {
+					suggestions = this.spellchecker.suggest(belowMouse.getToken());
+				}
 
 				// cache the suggestions since depending on the word, it can take
 				// hunspell quite a while to get back to us
@@ -373,6 +654,82 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		return spellcheckActions;
 	}
 
+	/**
+	 * This method computes the suggestions for the misspelled words near the given offset in the
+	 * background, so that they are already cached if the user asks for them.
+	 *
+	 * @param offset the offset of the caret or mouse
+	 */
+	private void prefetchSuggestions(final int offset) {
+		if ( !this.suggestionPrefetching || this.suggestionCache == null || this.executor == null || offset < 0 ) {
+			return;
+		}
+
+		Locale locale = this.spellchecker.getCurrentDictionary();
+		List<WordToken> nearby = this.highlights.getIntersecting(offset - PREFETCH_DISTANCE, offset + PREFETCH_DISTANCE);
+
+		// The closest words are the most likely to be asked about
+		Collections.sort(nearby, new Comparator<WordToken>() {
+			@Override
+			public int compare(WordToken first, WordToken second) {
+				return distance(first, offset) - distance(second, offset);
+			}
+		});
+
+		final List<String> words = new ArrayList<String>();
+		for (WordToken token : nearby) {
+			if ( words.size() == MAXIMUM_PREFETCH ) {
+				break;
+			}
+			if ( !this.suggestionCache.contains(this.spellchecker, locale, token.getToken()) && !words.contains(token.getToken()) ) {
+				words.add(token.getToken());
+			}
+		}
+
+		if ( words.isEmpty() || words.equals(this.lastPrefetched) ) {
+			return;
+		}
+		this.lastPrefetched = words;
+
+		final Spellchecker spellchecker = this.spellchecker;
+		final SuggestionCache suggestionCache = this.suggestionCache;
+
+		// Anything still waiting from the previous prefetch is superseded by this one
+		this.executor.execute(this.prefetchTrigger, SpellcheckExecutor.Priority.HIDDEN, new Runnable() {
+			@Override
+			public void run() {
+				for (String word : words) {
+					suggestionCache.get(spellchecker, word);
+				}
+			}
+		});
+	}
+
+	private static int distance(WordToken token, int offset) {
+		if ( offset < token.getStart() ) {
+			return token.getStart() - offset;
+		} else if ( offset > token.getEnd() ) {
+			return offset - token.getEnd();
+		} else {
+			return 0;
+		}
+	}
+
+	/**
+	 * This class triggers the prefetching of suggestions when the caret or mouse move.
+	 */
+	private final class PrefetchTrigger extends MouseMotionAdapter implements CaretListener {
+		@Override
+		public void caretUpdate(CaretEvent e) {
+			SpellcheckedComponent.this.prefetchSuggestions(e.getDot());
+		}
+
+		@Override
+		public void mouseMoved(MouseEvent e) {
+			SpellcheckedComponent.this.prefetchSuggestions(SpellcheckedComponent.this.component.viewToModel(e.getPoint()));
+		}
+	}
+
 	/**
 	 * This method will retrieve a given {@link WordToken} from the list of highlights given its
 	 * offset.
@@ -380,14 +737,8 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 	 * @param offset the offset to find
 	 * @return the {@link WordToken} that matches, or null if none found
 	 */
-	private WordToken getTokenByOffset(int offset) {
-		for (WordToken token : this.highlights) {
-			if ( offset >= token.getStartOffset().getOffset() && offset <= token.getEndOffset().getOffset() ) {
-				return token;
-			}
-		}
-
-		return null;
+	WordToken getTokenByOffset(int offset) {
+		return this.highlights.getTokenAt(offset);
 	}
 
 	/**
@@ -416,31 +767,192 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 
 	@Override
 	public void dictionaryChanged() {
-		Highlighter highlighter = this.component.getHighlighter();
+		// The dictionary may have finished loading on a background thread
+		if ( !SwingUtilities.isEventDispatchThread() ) {
+			this.refreshSpellchecking();
+			return;
+		}
+
+		// The whole document is about to be checked anyway
+		if ( this.dirtyRegions != null ) {
+			this.dirtyRegions.clear();
+		}
+
+		// Anything the running checks find would be for the old dictionary
+		if ( this.errorMarker != null && !this.errorMarker.isDone() ) {
+			this.errorMarker.cancel(false);
+		}
+		this.cancelViewportFills();
 
 		// Clear all previous highlights
-		for (WordToken wordToken : this.highlights) {
-			highlighter.removeHighlight(wordToken.getHighlightTag());
+		this.errorLayer.clear();
+
+		int documentLength = this.component.getDocument().getLength();
+		this.coverage = null;
+
+		if ( documentLength > this.sparseCheckingThreshold && SwingUtilities.getAncestorOfClass(JViewport.class, this.component) != null ) {
+			// Only check what the user can see, the rest is checked once it is scrolled to
+			this.coverage = new CoverageMap(this.component.getDocument());
+			this.listenToViewport();
+			this.checkUncoveredVisibleRange();
+			return;
+		}
+
+		int[] visible = null;
+		if ( documentLength >= SMALL_UPDATE_CUTOFF && this.viewportFirstChecking ) {
+			visible = this.getVisibleRange();
+		}
+
+		if ( visible == null ) {
+			// Perform an error marking on the whole document using the new
+			// dictionary.
+			this.errorMarker = this.newErrorMarker(0, documentLength);
+			if ( documentLength < SMALL_UPDATE_CUTOFF ) {
+				this.errorMarker.doInForeground();
+			} else {
+				this.executeInBackground(this.errorMarker);
+			}
+			return;
 		}
 
-		this.highlights.clear();
+		// Check what the user can see first, so that it is underlined right away, then fill
+		// in the rest of the document in the background.  The words that have already been
+		// highlighted are skipped.  None of the rest can be seen, so it waits behind the work
+		// for what can be, in this component and any other.
+		this.newErrorMarker(visible[0], visible[1] - visible[0]).doInForeground();
+
+		this.errorMarker = this.newErrorMarker(0, documentLength);
+		this.executeInBackground(this.errorMarker, SpellcheckExecutor.Priority.HIDDEN);
+	}
+
+	/**
+	 * This method finds the range of the document that is currently visible.
+	 *
+	 * @return the start (inclusive) and end (exclusive) of the visible range, or null if the
+	 *         component is not showing any of the document
+	 */
+	private int[] getVisibleRange() {
+		Rectangle visibleRect = this.component.getVisibleRect();
+
+		if ( visibleRect.isEmpty() ) {
+			return null;
+		}
 
+		int start = this.component.viewToModel(visibleRect.getLocation());
+		int end = this.component.viewToModel(new Point(visibleRect.x + visibleRect.width, visibleRect.y + visibleRect.height));
 		int documentLength = this.component.getDocument().getLength();
 
-		// Perform an error marking on the whole document using the new
-		// dictionary.
-		this.errorMarker = new ErrorMarker(0, documentLength, this.component, this.highlights, this.spellchecker, this.tokenizer);
-		if ( documentLength < SMALL_UPDATE_CUTOFF ) {
-			this.errorMarker.doInForeground();
-		} else {
-			this.component.setEditable(false);
-			this.errorMarker.setCallback(new Runnable() {
-				@Override
-				public void run() {
-					SpellcheckedComponent.this.component.setEditable(true);
-				}
-			});
-			this.errorMarker.execute();
+		if ( start < 0 || end < start ) {
+			return null;
+		}
+
+		// The range must start within the document in order to be checked
+		start = Math.min(start, Math.max(0, documentLength - 1));
+		end = bound(start, end, documentLength);
+
+		return new int[] { start, end };
+	}
+
+	/**
+	 * This method starts listening to the scrolling of the viewport the component is in, if it
+	 * is in one and is not already being listened to.
+	 */
+	private void listenToViewport() {
+		JViewport viewport = (JViewport) SwingUtilities.getAncestorOfClass(JViewport.class, this.component);
+
+		if ( viewport != this.viewport ) {
+			if ( this.viewport != null ) {
+				this.viewport.removeChangeListener(this.viewportListener);
+			}
+			if ( viewport != null ) {
+				viewport.addChangeListener(this.viewportListener);
+			}
+			this.viewport = viewport;
+		}
+	}
+
+	/**
+	 * This method checks the parts of the visible range that have not been checked yet, if the
+	 * document is being checked sparsely.
+	 */
+	private void checkUncoveredVisibleRange() {
+		if ( this.coverage == null ) {
+			return;
+		}
+
+		int[] visible = this.getVisibleRange();
+		if ( visible == null ) {
+			return;
+		}
+
+		// The parts that were scrolled away from before they were checked are checked once they
+		// are scrolled back to instead.
+		for (Iterator<ErrorMarker> iterator = this.viewportFills.iterator(); iterator.hasNext();) {
+			ErrorMarker fill = iterator.next();
+			int[] range = this.getCurrentRange(fill);
+
+			if ( fill.isFinished() ) {
+				iterator.remove();
+			} else if ( (range[1] <= visible[0] || range[0] >= visible[1]) && fill.cancel(false) ) {
+				this.markUncovered(range[0], range[1]);
+				iterator.remove();
+			}
+		}
+
+		// Each part is checked on its own, so scrolling from one part of the document to another
+		// does not check everything in between.  They are all checked in the background without
+		// making the component uneditable, since edits made meanwhile are taken care of.
+		for (int[] uncovered : this.coverage.getUncovered(visible[0], visible[1])) {
+			this.markCovered(uncovered[0], uncovered[1]);
+
+			ErrorMarker fill = this.newErrorMarker(uncovered[0], uncovered[1] - uncovered[0]);
+			if ( fill.getLength() <= SMALL_UPDATE_CUTOFF ) {
+				fill.doInForeground();
+			} else if ( this.executor != null ) {
+				this.viewportFills.add(fill);
+				// Its own owner, so that it does not supersede the other parts
+				this.executor.execute(fill, SpellcheckExecutor.Priority.of(this.component), fill);
+			} else {
+				this.viewportFills.add(fill);
+				fill.execute();
+			}
+		}
+	}
+
+	/**
+	 * @return true if any of the checks of the parts of the document that were scrolled to may
+	 *         still be running
+	 */
+	private boolean isFillingViewport() {
+		for (Iterator<ErrorMarker> iterator = this.viewportFills.iterator(); iterator.hasNext();) {
+			if ( iterator.next().isFinished() ) {
+				iterator.remove();
+			}
+		}
+
+		return !this.viewportFills.isEmpty();
+	}
+
+	private void cancelViewportFills() {
+		for (ErrorMarker fill : this.viewportFills) {
+			fill.cancel(false);
+		}
+		this.viewportFills.clear();
+	}
+
+	private void markCovered(int from, int to) {
+		try {
+			this.coverage.add(from, to);
+		} catch (BadLocationException e) {
+			log.error("An error occurred when updating the checked regions.", e);
+		}
+	}
+
+	private void markUncovered(int from, int to) {
+		try {
+			this.coverage.remove(from, to);
+		} catch (BadLocationException e) {
+			log.error("An error occurred when updating the checked regions.", e);
 		}
 	}
 
@@ -459,6 +971,177 @@ public class SpellcheckedComponent implements DocumentListener, DictionaryChange
 		this.refreshSpellchecking();
 	}
 
+	public boolean isParallelChecking() {
+		return this.parallelChecking;
+	}
+
+	/**
+	 * This method sets whether large checks (such as the one performed on the whole document
+	 * when the dictionary changes) should be split into chunks at word boundaries and checked
+	 * on a thread per processor.  This should only be turned on if the {@link Spellchecker}
+	 * can be used by several threads at the same time.
+	 *
+	 * @param parallelChecking true if large checks should be performed in parallel
+	 */
+	public void setParallelChecking(boolean parallelChecking) {
+		this.parallelChecking = parallelChecking;
+	}
+
+	public SpellcheckExecutor getExecutor() {
+		return this.executor;
+	}
+
+	/**
+	 * This method sets the executor that background checks are run on.  Checks for the component
+	 * that has the focus are run before those for other components that share the executor.  If it
+	 * is null (the default), the background checks are run using {@link SwingWorker#execute()}.
+	 *
+	 * @param executor the executor to run background checks on, or null
+	 */
+	public void setExecutor(SpellcheckExecutor executor) {
+		this.executor = executor;
+	}
+
+	public HighlightPainter getHighlightPainter() {
+		return this.errorLayer.getPainter();
+	}
+
+	/**
+	 * This method sets the painter that misspelled words are highlighted with.  The words that are
+	 * already highlighted are switched over to it right away.  The same painter should be used for
+	 * as many highlights as possible (such as those returned by
+	 * {@link SquigglyUnderlineHighlightPainter#forColor(Color)}), rather than a new one per component.
+	 *
+	 * @param highlightPainter the painter to highlight misspelled words with
+	 */
+	public void setHighlightPainter(HighlightPainter highlightPainter) {
+		if ( highlightPainter == null ) {
+			throw new NullPointerException("highlightPainter must be non-null.");
+		}
+
+		this.errorLayer.setPainter(highlightPainter);
+	}
+
+	public SuggestionCache getSuggestionCache() {
+		return this.suggestionCache;
+	}
+
+	/**
+	 * This method sets the cache that suggestions are kept in.  The cache can be shared between
+	 * components, so that the suggestions for a word only have to be computed once.
+	 *
+	 * @param suggestionCache the cache to keep suggestions in, or null to not cache them
+	 */
+	public void setSuggestionCache(SuggestionCache suggestionCache) {
+		this.suggestionCache = suggestionCache;
+	}
+
+	public boolean isSuggestionPrefetching() {
+		return this.suggestionPrefetching;
+	}
+
+	/**
+	 * This method sets whether the suggestions for the misspelled words near the caret and mouse
+	 * should be computed in the background before they are asked for.  This needs both a
+	 * {@link #setSuggestionCache(SuggestionCache) suggestion cache} and an
+	 * {@link #setExecutor(SpellcheckExecutor) executor}.  It should only be turned on if the
+	 * spellchecker can make suggestions for one word while checking others (a
+	 * {@link com.atlascopco.literumilo.spellchecker.hunspell.HunspellPool} with more than one
+	 * instance, for example); otherwise a check on the event dispatch thread may have to wait for
+	 * the suggestions being prefetched.
+	 *
+	 * @param suggestionPrefetching true if suggestions should be prefetched
+	 */
+	public void setSuggestionPrefetching(boolean suggestionPrefetching) {
+		this.suggestionPrefetching = suggestionPrefetching;
+	}
+
+	public int getCheckDelay() {
+		return this.checkDelay;
+	}
+
+	/**
+	 * This method sets how long to wait after an edit before checking it.  Edits made during the
+	 * wait restart it, and the regions they touch are merged, so that a burst of typing is checked
+	 * once rather than once per keystroke.  However, continuous typing will not put a check off for
+	 * more than four times the delay.  A delay of 0 (the default) checks every edit immediately.
+	 *
+	 * @param checkDelay the number of milliseconds to wait, or 0 to check immediately
+	 */
+	public void setCheckDelay(int checkDelay) {
+		if ( checkDelay < 0 ) {
+			throw new IllegalArgumentException("checkDelay must not be negative (was "+checkDelay+").");
+		}
+
+		// Check whatever was waiting under the old delay
+		if ( this.dirtyRegions != null ) {
+			this.dirtyRegions.flush();
+			this.dirtyRegions = null;
+		}
+
+		this.checkDelay = checkDelay;
+
+		if ( checkDelay > 0 ) {
+			this.dirtyRegions = new DirtyRegionScheduler(this.component.getDocument(), checkDelay, checkDelay * MAXIMUM_LATENCY_FACTOR, new DirtyRegionScheduler.Listener() {
+				@Override
+				public void regionDirty(int offset, int length) {
+					int documentLength = SpellcheckedComponent.this.component.getDocument().getLength();
+					int start = Math.max(0, Math.min(offset, documentLength - 1));
+
+					SpellcheckedComponent.this.check(start, bound(0, length + offset - start, documentLength - start));
+				}
+			});
+		}
+	}
+
+	public boolean isViewportFirstChecking() {
+		return this.viewportFirstChecking;
+	}
+
+	/**
+	 * This method sets whether the part of the document that is visible should be checked (in the
+	 * foreground) before the rest of the document is checked in the background, when the whole
+	 * document needs to be checked.  This makes the first highlights appear right away, even for
+	 * large documents.
+	 *
+	 * @param viewportFirstChecking true if the visible part of the document should be checked first
+	 */
+	public void setViewportFirstChecking(boolean viewportFirstChecking) {
+		this.viewportFirstChecking = viewportFirstChecking;
+	}
+
+	public int getSparseCheckingThreshold() {
+		return this.sparseCheckingThreshold;
+	}
+
+	/**
+	 * This method sets the length above which a document is checked sparsely.  Instead of checking
+	 * the whole document when needed, only the part of it that is visible is checked, and other
+	 * parts are checked once they are scrolled to.  By default documents are never checked sparsely.
+	 *
+	 * @param sparseCheckingThreshold the length of document above which only the visited parts are checked
+	 */
+	public void setSparseCheckingThreshold(int sparseCheckingThreshold) {
+		this.sparseCheckingThreshold = sparseCheckingThreshold;
+	}
+
+	public boolean isAsynchronousChecking() {
+		return this.asynchronousChecking;
+	}
+
+	/**
+	 * This method sets whether the component should stay editable while large checks are running
+	 * in the background.  When it is turned on, the misspelled words are highlighted as they are
+	 * found, and edits made during a check only cause the words they touch to be dropped from it
+	 * (those words are checked again along with the edit).  When it is turned off, the component
+	 * is made uneditable until a large check has finished.
+	 *
+	 * @param asynchronousChecking true if the component should stay editable during large checks
+	 */
+	public void setAsynchronousChecking(boolean asynchronousChecking) {
+		this.asynchronousChecking = asynchronousChecking;
+	}
+
 	public Tokenizer getTokenizer() {
 		return this.tokenizer;
 	}
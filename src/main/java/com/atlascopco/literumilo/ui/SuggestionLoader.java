@@ -0,0 +1,172 @@
+/*******************************************************************************
+ * Copyright 2012 Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ ******************************************************************************/
+package com.atlascopco.literumilo.ui;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.swing.JMenuItem;
+import javax.swing.JPopupMenu;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.text.Document;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.atlascopco.literumilo.spellchecker.Spellchecker;
+import com.atlascopco.literumilo.spellchecker.SuggestionCache;
+import com.atlascopco.literumilo.tokenizer.WordToken;
+
+/**
+ * This class fills in the suggestions for a misspelled word in a popup menu that is already open.
+ * Until they arrive, the menu shows a placeholder item, which the suggestions replace.
+ *
+ * The suggestions are computed in the background, so that a slow {@link Spellchecker} never holds
+ * up the EDT.  If they do not arrive before the deadline, the placeholder says so and the menu stops
+ * waiting for them.  If there is a {@link SuggestionCache}, they will still be remembered for the
+ * next time once they do arrive.
+ *
+ * @author Thomas Joiner
+ */
+final class SuggestionLoader extends SwingWorker<List<String>, Void> {
+
+	private static final Logger log = LoggerFactory.getLogger(SuggestionLoader.class);
+
+	/**
+	 * The number of milliseconds to wait for the suggestions before giving up on them.
+	 */
+	private static final int DEADLINE = 1500;
+
+	private final JPopupMenu menu;
+	private final JMenuItem placeholder;
+	private final Document document;
+	private final WordToken token;
+	private final Spellchecker spellchecker;
+	private final SuggestionCache suggestionCache;
+	private final Timer deadline;
+
+	/**
+	 * Creates a {@link SuggestionLoader}.
+	 *
+	 * @param menu the menu to add the suggestions to
+	 * @param placeholder the item in the menu to replace with the suggestions
+	 * @param document the document that the word is in
+	 * @param token the misspelled word
+	 * @param spellchecker the {@link Spellchecker} to get the suggestions from
+	 * @param suggestionCache the cache to keep the suggestions in, or null
+	 */
+	public SuggestionLoader(JPopupMenu menu, JMenuItem placeholder, Document document, WordToken token, Spellchecker spellchecker, SuggestionCache suggestionCache) {
+		this.menu = menu;
+		this.placeholder = placeholder;
+		this.document = document;
+		this.token = token;
+		this.spellchecker = spellchecker;
+		this.suggestionCache = suggestionCache;
+
+		this.deadline = new Timer(DEADLINE, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				SuggestionLoader.this.expire();
+			}
+		});
+		this.deadline.setRepeats(false);
+	}
+
+	/**
+	 * Starts computing the suggestions, on the given executor if there is one.
+	 *
+	 * @param executor the executor to compute the suggestions on, or null
+	 */
+	public void start(SpellcheckExecutor executor) {
+		this.deadline.start();
+
+		if ( executor != null ) {
+			// The user is waiting on these, so they come before anything else
+			executor.execute(this.menu, SpellcheckExecutor.Priority.FOCUSED, this);
+		} else {
+			this.execute();
+		}
+	}
+
+	/**
+	 * Stops waiting for the suggestions, for example because the menu was closed.
+	 */
+	public void abandon() {
+		this.deadline.stop();
+		this.cancel(false);
+	}
+
+	@Override
+	protected List<String> doInBackground() {
+		if ( this.suggestionCache != null ) {
+			return this.suggestionCache.get(this.spellchecker, this.token.getToken());
+		} else {
+			return this.spellchecker.suggest(this.token.getToken());
+		}
+	}
+
+	@Override
+	protected void done() {
+		if ( this.isCancelled() ) {
+			return;
+		}
+
+		List<String> suggestions;
+		try {
+			suggestions = this.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return;
+		} catch (ExecutionException e) {
+			log.error("An error occurred when retrieving suggestions.", e.getCause());
+			this.placeholder.setText("No suggestions available");
+			return;
+		}
+
+		this.deadline.stop();
+		this.token.setSuggestions(suggestions);
+
+		int index = this.menu.getComponentIndex(this.placeholder);
+		if ( index < 0 ) {
+			return;
+		}
+
+		if ( suggestions.isEmpty() ) {
+			this.placeholder.setText("No suggestions");
+			return;
+		}
+
+		this.menu.remove(index);
+		for (String suggestion : suggestions) {
+			this.menu.insert(new ReplaceWordAction(this.document, this.token, suggestion), index++);
+		}
+
+		// Resize the menu to fit the suggestions
+		if ( this.menu.isVisible() ) {
+			this.menu.pack();
+		}
+	}
+
+	private void expire() {
+		if ( !this.isDone() ) {
+			this.cancel(false);
+			this.placeholder.setText("No suggestions available");
+		}
+	}
+}
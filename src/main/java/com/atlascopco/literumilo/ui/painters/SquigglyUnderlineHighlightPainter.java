@@ -19,11 +19,30 @@ import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Paint;
 import java.awt.Rectangle;
 import java.awt.Shape;
+import java.awt.TexturePaint;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 import javax.swing.plaf.TextUI;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.text.Highlighter.HighlightPainter;
 import javax.swing.text.JTextComponent;
 import javax.swing.text.LayeredHighlighter.LayerPainter;
@@ -37,6 +56,22 @@ import org.slf4j.LoggerFactory;
  * This {@link HighlightPainter} paints a squiggly line to show the words that
  * are misspelled.
  *
+ * Instances are immutable, so a single one can be used for all of the highlights of a
+ * given color, in any number of components; {@link #forColor(Color)} returns such a
+ * shared instance.
+ *
+ * Since the squiggle is a repeating pattern, it is drawn once into a tile (for each
+ * scale it is painted at, so that it stays crisp on high resolution screens), and
+ * the lines are then filled with that tile rather than stroked.  The tiles for the
+ * usual scales are drawn when the painter is created.
+ *
+ * Working out where a highlight is on the screen is much more expensive than painting
+ * it.  Whoever paints many highlights in a component with the same painter (such as
+ * the layer that paints the misspelled words) can keep a {@link PaintCache} for the
+ * component, which remembers the positions until the component is laid out again or
+ * its text changes, along with the tiles for any other scales.  Only the parts of the
+ * highlights that are inside the clip are painted.
+ *
  * @author Thomas Joiner
  */
 public class SquigglyUnderlineHighlightPainter extends LayerPainter {
@@ -45,9 +80,36 @@ public class SquigglyUnderlineHighlightPainter extends LayerPainter {
 	private static final BasicStroke STROKE_2_4_0 = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 2.0f, new float[] { 2.0f, 4.0f }, 0.0f);
 	private static final BasicStroke STROKE_2_4_1 = new BasicStroke(1, BasicStroke.CAP_BUTT, BasicStroke.JOIN_ROUND, 2.0f, new float[] { 2.0f, 4.0f }, 1.0f);
 
+	/**
+	 * The width of one repetition of the squiggle.
+	 */
+	private static final int PERIOD = 6;
+	/**
+	 * The height of the squiggle.
+	 */
+	private static final int HEIGHT = 3;
+	/**
+	 * The scales that the tiles are drawn for up front.
+	 */
+	private static final double[] USUAL_SCALES = { 1.0, 2.0 };
+	/**
+	 * The number of tiles a {@link PaintCache} keeps, as there is one for every other scale
+	 * it has been painted at, before starting over.
+	 */
+	private static final int MAXIMUM_TILES = 8;
+
 	private static final Logger log = LoggerFactory.getLogger(SquigglyUnderlineHighlightPainter.class);
 
+	/**
+	 * The shared instances, by color.
+	 */
+	private static final ConcurrentMap<Color, SquigglyUnderlineHighlightPainter> painters = new ConcurrentHashMap<Color, SquigglyUnderlineHighlightPainter>();
+
 	private final Color underlineColor;
+	/**
+	 * The tiles that the squiggle is filled with at the {@link #USUAL_SCALES}, by scale.
+	 */
+	private final Map<Double, TexturePaint> tiles;
 
 	public SquigglyUnderlineHighlightPainter(Color underlineColor) {
 		if ( underlineColor == null ) {
@@ -55,15 +117,80 @@ public class SquigglyUnderlineHighlightPainter extends LayerPainter {
 		}
 
 		this.underlineColor = underlineColor;
+
+		Map<Double, TexturePaint> tiles = new HashMap<Double, TexturePaint>();
+		for (double scale : USUAL_SCALES) {
+			tiles.put(Double.valueOf(scale), this.createTile(scale));
+		}
+		this.tiles = Collections.unmodifiableMap(tiles);
+	}
+
+	/**
+	 * Retrieves the shared {@link SquigglyUnderlineHighlightPainter} for the given color, creating
+	 * it if this is the first time it has been asked for.
+	 *
+	 * @param underlineColor the color of the underline
+	 * @return the painter for the color
+	 */
+	public static SquigglyUnderlineHighlightPainter forColor(Color underlineColor) {
+		if ( underlineColor == null ) {
+			throw new NullPointerException("underlineColor must be non-null.");
+		}
+
+		SquigglyUnderlineHighlightPainter painter = painters.get(underlineColor);
+
+		if ( painter == null ) {
+			SquigglyUnderlineHighlightPainter created = new SquigglyUnderlineHighlightPainter(underlineColor);
+			painter = painters.putIfAbsent(underlineColor, created);
+
+			if ( painter == null ) {
+				painter = created;
+			}
+		}
+
+		return painter;
+	}
+
+	/**
+	 * Creates a cache for painting the highlights in the given component with this painter.
+	 * It should be {@link PaintCache#dispose() disposed} of once it is no longer used.
+	 *
+	 * @param component the component the highlights are in
+	 * @return the cache
+	 */
+	public PaintCache createCache(JTextComponent component) {
+		return new PaintCache(this, component);
 	}
 
 	@Override
 	public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c) {
+		this.paint(g, p0, p1, bounds, c, null);
+	}
+
+	/**
+	 * Paints a highlight, looking its position up in the given cache.
+	 *
+	 * @param g the graphics context to paint with
+	 * @param p0 the start of the highlight
+	 * @param p1 the end of the highlight
+	 * @param bounds the bounding box of the component
+	 * @param c the component the highlight is in
+	 * @param cache the cache that was created by this painter for the component, or null
+	 */
+	public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c, PaintCache cache) {
+		if ( cache != null && (cache.painter != this || cache.geometry.component.get() != c) ) {
+			throw new IllegalArgumentException("cache must have been created by this painter for the component.");
+		}
+
 		try {
-			TextUI textUI = c.getUI();
-			Rectangle rectangle0 = textUI.modelToView(c, p0);
-			Rectangle rectangle1 = textUI.modelToView(c, p1);
+			Rectangle[] geometry = cache != null ? cache.geometry.get(c, p0, p1) : getGeometry(c, p0, p1);
+			if ( geometry == null ) {
+				return;
+			}
+			Rectangle rectangle0 = geometry[0];
+			Rectangle rectangle1 = geometry[1];
 			Rectangle alloc = bounds.getBounds();
+			Rectangle clip = g.getClipBounds();
 
 			g.setColor(this.getUnderlineColor());
 
@@ -71,17 +198,32 @@ public class SquigglyUnderlineHighlightPainter extends LayerPainter {
 				// same line, render a rectangle
 				Rectangle r = rectangle0.union(rectangle1);
 
-				this.renderLine(g, r.x, r.y + r.height - 3, r.width);
+				if ( isClipped(clip, r.x, r.y + r.height - HEIGHT, r.width) ) {
+					return;
+				}
+
+				this.renderLine(g, r.x, r.y + r.height - HEIGHT, r.width, cache);
 			} else {
 				// different lines
 				int p0ToMarginWidth = alloc.x + alloc.width - rectangle0.x;
-				this.renderLine(g, rectangle0.x, rectangle0.y, p0ToMarginWidth);
+				if ( !isClipped(clip, rectangle0.x, rectangle0.y, p0ToMarginWidth) ) {
+					this.renderLine(g, rectangle0.x, rectangle0.y, p0ToMarginWidth, cache);
+				}
+
+				int y = rectangle0.y + rectangle0.height;
+				if ( clip != null && clip.y > y && rectangle0.height > 0 ) {
+					// Skip straight to the first line in the clip
+					y += (clip.y - y) / rectangle0.height * rectangle0.height;
+				}
+				int yMax = clip != null ? Math.min(rectangle1.y, clip.y + clip.height) : rectangle1.y;
 
-				for ( int y = rectangle0.y + rectangle0.height; y < rectangle1.y; y+=rectangle0.height) {
-					this.renderLine(g, alloc.x, y, alloc.width);
+				for ( ; y < yMax; y+=rectangle0.height) {
+					this.renderLine(g, alloc.x, y, alloc.width, cache);
 				}
 
-				this.renderLine(g, alloc.x, rectangle1.y, (rectangle1.x - alloc.x));
+				if ( !isClipped(clip, alloc.x, rectangle1.y, rectangle1.x - alloc.x) ) {
+					this.renderLine(g, alloc.x, rectangle1.y, (rectangle1.x - alloc.x), cache);
+				}
 			}
 		} catch (BadLocationException e) {
 			log.warn("Error occurred when rendering line.", e);
@@ -91,6 +233,16 @@ public class SquigglyUnderlineHighlightPainter extends LayerPainter {
 	@Override
 	public Shape paintLayer(Graphics g, int p0, int p1, Shape viewBounds,
 			JTextComponent editor, View view) {
+		Rectangle clip = g.getClipBounds();
+		Rectangle alloc = (viewBounds instanceof Rectangle) ? (Rectangle) viewBounds
+				: viewBounds.getBounds();
+
+		if ( clip != null && (alloc.y + alloc.height <= clip.y || alloc.y >= clip.y + clip.height) ) {
+			// None of the view is being painted, so there is no need to work
+			// out where in it the highlight is.
+			return alloc;
+		}
+
 		Color color = this.getUnderlineColor();
 
 		if (color == null) {
@@ -101,17 +253,13 @@ public class SquigglyUnderlineHighlightPainter extends LayerPainter {
 
 		if (p0 == view.getStartOffset() && p1 == view.getEndOffset()) {
 			// Contained in view, can just use bounds.
-			Rectangle bounds;
+			Rectangle bounds = alloc;
 
-			if (viewBounds instanceof Rectangle) {
-				bounds = (Rectangle) viewBounds;
-			} else {
-				bounds = viewBounds.getBounds();
+			if ( !isClipped(clip, bounds.x, bounds.y + bounds.height - HEIGHT, bounds.width) ) {
+				this.renderLine(g, bounds.x, bounds.y + bounds.height - HEIGHT,
+						bounds.width, null);
 			}
 
-			this.renderLine(g, bounds.x, bounds.y + bounds.height - 3,
-					bounds.width);
-
 			return bounds;
 		} else {
 			// Should only render part of View.
@@ -125,8 +273,10 @@ public class SquigglyUnderlineHighlightPainter extends LayerPainter {
 				Rectangle bounds = (shape instanceof Rectangle) ? (Rectangle) shape
 						: shape.getBounds();
 
-				this.renderLine(g, bounds.x, bounds.y + bounds.height - 3,
-						bounds.width);
+				if ( !isClipped(clip, bounds.x, bounds.y + bounds.height - HEIGHT, bounds.width) ) {
+					this.renderLine(g, bounds.x, bounds.y + bounds.height - HEIGHT,
+							bounds.width, null);
+				}
 
 				return bounds;
 			} catch (BadLocationException e) {
@@ -138,6 +288,45 @@ public class SquigglyUnderlineHighlightPainter extends LayerPainter {
 		return null;
 	}
 
+	/**
+	 * Determines whether a line lies entirely outside of the clip.
+	 *
+	 * @param clip the clip, or null if nothing is clipped
+	 * @param x the x coordinate the line starts at
+	 * @param y the y coordinate the line starts at
+	 * @param width the width of the line
+	 * @return true if none of the line would be painted
+	 */
+	private static boolean isClipped(Rectangle clip, int x, int y, int width) {
+		if ( clip == null ) {
+			return false;
+		}
+
+		return y + HEIGHT <= clip.y || y >= clip.y + clip.height
+				|| x + width <= clip.x || x >= clip.x + clip.width;
+	}
+
+	/**
+	 * Works out the view coordinates of the start and end of a highlight.
+	 *
+	 * @param c the component the highlight is in
+	 * @param p0 the start of the highlight
+	 * @param p1 the end of the highlight
+	 * @return the rectangles for the start and the end of the highlight, or null if the
+	 *         component has not been laid out
+	 * @throws BadLocationException if the highlight is not in the document
+	 */
+	private static Rectangle[] getGeometry(JTextComponent c, int p0, int p1) throws BadLocationException {
+		TextUI textUI = c.getUI();
+		Rectangle[] geometry = new Rectangle[] { textUI.modelToView(c, p0), textUI.modelToView(c, p1) };
+
+		if ( geometry[0] == null || geometry[1] == null ) {
+			return null;
+		}
+
+		return geometry;
+	}
+
 	/**
 	 * Draw a squiggly line of the given width at the given (x,y) coordinates.
 	 * The line will be 3 pixels tall.
@@ -150,27 +339,24 @@ public class SquigglyUnderlineHighlightPainter extends LayerPainter {
 	 *            the y coordinate to start at
 	 * @param width
 	 *            the width that the line should extend.
+	 * @param cache
+	 *            the cache to keep the tile in if it is not one of the usual ones, or null
 	 */
-	private void renderLine(Graphics g, int x, int y, int width) {
+	private void renderLine(Graphics g, int x, int y, int width, PaintCache cache) {
 		if (g instanceof Graphics2D) {
-			// Create a copy of the graphics context so we don't
-			// mess with the original settings.
-			Graphics2D g2d = (Graphics2D) g.create();
+			Graphics2D g2d = (Graphics2D) g;
+			Paint paint = g2d.getPaint();
 
+			// The tile is anchored at the origin, so move the origin to the start
+			// of the line in order for every line to start at the same point in
+			// the pattern.
+			g2d.translate(x, y);
 			try {
-				BasicStroke stroke2_4_1 = STROKE_2_4_1;
-				BasicStroke stroke2_4_0 = STROKE_2_4_0;
-				BasicStroke stroke1_2 = STROKE_1_2;
-
-				g2d.setColor(this.getUnderlineColor());
-				g2d.setStroke(stroke2_4_1);
-				g2d.drawLine(x, y, x + width, y);
-				g2d.setStroke(stroke1_2);
-				g2d.drawLine(x + 1, y + 1, x + width - 1, y + 1);
-				g2d.setStroke(stroke2_4_0);
-				g2d.drawLine(x + 2, y + 2, x + width - 2, y + 2);
+				g2d.setPaint(this.getTile(g2d, cache));
+				g2d.fillRect(0, 0, width, HEIGHT);
 			} finally {
-				g2d.dispose();
+				g2d.translate(-x, -y);
+				g2d.setPaint(paint);
 			}
 		} else {
 			g.setColor(this.getUnderlineColor());
@@ -184,8 +370,256 @@ public class SquigglyUnderlineHighlightPainter extends LayerPainter {
 		}
 	}
 
+	/**
+	 * Retrieves the tile for the scale that the given graphics context paints at.  Tiles for
+	 * scales other than the usual ones are kept in the cache, if there is one, and are
+	 * otherwise created every time.
+	 *
+	 * @param g the graphics context the tile will be painted with
+	 * @param cache the cache to keep the tile in, or null
+	 * @return the tile
+	 */
+	private TexturePaint getTile(Graphics2D g, PaintCache cache) {
+		double scale = Math.abs(g.getTransform().getScaleX());
+		if ( scale == 0 ) {
+			scale = 1;
+		}
+
+		Double key = Double.valueOf(scale);
+		TexturePaint tile = this.tiles.get(key);
+
+		if ( tile == null && cache != null ) {
+			tile = cache.tiles.get(key);
+
+			if ( tile == null ) {
+				tile = this.createTile(scale);
+				if ( cache.tiles.size() >= MAXIMUM_TILES ) {
+					cache.tiles.clear();
+				}
+				cache.tiles.put(key, tile);
+			}
+		} else if ( tile == null ) {
+			tile = this.createTile(scale);
+		}
+
+		return tile;
+	}
+
+	/**
+	 * Creates a tile containing the squiggle at the given scale.
+	 *
+	 * The squiggle is drawn with the dashed strokes it was originally drawn with,
+	 * over several periods, and the tile is taken from the middle of it, where the
+	 * pattern does not depend on where the line started.
+	 *
+	 * @param scale the scale that the tile will be painted at
+	 * @return the tile
+	 */
+	private TexturePaint createTile(double scale) {
+		// The tile has to be a whole number of pixels wide at this scale, which
+		// can take several periods of the pattern for fractional scales.
+		int periods = 1;
+		while ( periods < 4 && Math.abs(PERIOD * periods * scale - Math.rint(PERIOD * periods * scale)) > 0.01 ) {
+			periods++;
+		}
+		int tileWidth = PERIOD * periods;
+
+		int imageWidth = Math.max(1, (int) Math.rint(tileWidth * scale));
+		int imageHeight = Math.max(1, (int) Math.ceil(HEIGHT * scale));
+		BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
+
+		Graphics2D g2d = image.createGraphics();
+		try {
+			g2d.scale(imageWidth / (double) tileWidth, imageHeight / (double) HEIGHT);
+			g2d.translate(-tileWidth, 0);
+
+			int width = tileWidth * 3;
+			g2d.setColor(this.getUnderlineColor());
+			g2d.setStroke(STROKE_2_4_1);
+			g2d.drawLine(0, 0, width, 0);
+			g2d.setStroke(STROKE_1_2);
+			g2d.drawLine(1, 1, width - 1, 1);
+			g2d.setStroke(STROKE_2_4_0);
+			g2d.drawLine(2, 2, width - 2, 2);
+		} finally {
+			g2d.dispose();
+		}
+
+		return new TexturePaint(image, new Rectangle2D.Double(0, 0, tileWidth, HEIGHT));
+	}
+
 	public Color getUnderlineColor() {
 		return this.underlineColor;
 	}
 
+	/**
+	 * This class keeps what a {@link SquigglyUnderlineHighlightPainter} works out while
+	 * painting the highlights in one component: where the highlights are, and the tiles for
+	 * the scales that the painter does not have tiles for already.  It belongs to whoever
+	 * created it rather than to the painter, which stays immutable, and it must only be used
+	 * from the EDT.
+	 */
+	public static final class PaintCache {
+		private final SquigglyUnderlineHighlightPainter painter;
+		private final Map<Double, TexturePaint> tiles = new HashMap<Double, TexturePaint>();
+		private final GeometryCache geometry;
+
+		PaintCache(SquigglyUnderlineHighlightPainter painter, JTextComponent component) {
+			if ( component == null ) {
+				throw new NullPointerException("component must be non-null.");
+			}
+
+			this.painter = painter;
+			this.geometry = new GeometryCache(component);
+		}
+
+		/**
+		 * @return the number of tiles that are cached
+		 */
+		int getTileCount() {
+			return this.tiles.size();
+		}
+
+		/**
+		 * @return the number of highlights whose positions are cached
+		 */
+		int getGeometryCount() {
+			return this.geometry.size();
+		}
+
+		/**
+		 * Forgets everything that is cached and stops listening to the component and its
+		 * document.
+		 */
+		public void dispose() {
+			this.tiles.clear();
+			this.geometry.dispose();
+		}
+	}
+
+	/**
+	 * This class caches the positions of the highlights in a component, and forgets them
+	 * whenever anything that could move them changes.
+	 *
+	 * It only listens to the document the component showed when it was last painted, and
+	 * stops as soon as the document is replaced.  It only keeps a weak reference to the
+	 * component, so that the component can still be collected, and once it has been the
+	 * cache stops listening to the document as well, which may well outlive it.
+	 */
+	private static final class GeometryCache extends ComponentAdapter implements DocumentListener, PropertyChangeListener {
+		/**
+		 * The number of highlights to remember before starting over.
+		 */
+		private static final int MAXIMUM_SIZE = 4096;
+
+		private final Map<Long, Rectangle[]> rectangles = new HashMap<Long, Rectangle[]>();
+		private final Reference<JTextComponent> component;
+		private Document document;
+
+		public GeometryCache(JTextComponent component) {
+			this.component = new WeakReference<JTextComponent>(component);
+			component.addComponentListener(this);
+			component.addPropertyChangeListener(this);
+		}
+
+		public synchronized Rectangle[] get(JTextComponent c, int p0, int p1) throws BadLocationException {
+			if ( this.document != c.getDocument() ) {
+				this.setDocument(c.getDocument());
+			}
+
+			Long key = Long.valueOf(((long) p0 << 32) | (p1 & 0xFFFFFFFFL));
+			Rectangle[] geometry = this.rectangles.get(key);
+
+			if ( geometry == null ) {
+				geometry = getGeometry(c, p0, p1);
+
+				if ( geometry == null ) {
+					// Not laid out yet, so there is nothing to paint or remember
+					return null;
+				}
+
+				if ( this.rectangles.size() >= MAXIMUM_SIZE ) {
+					this.rectangles.clear();
+				}
+				this.rectangles.put(key, geometry);
+			}
+
+			return geometry;
+		}
+
+		private synchronized void clear() {
+			this.rectangles.clear();
+		}
+
+		private synchronized int size() {
+			return this.rectangles.size();
+		}
+
+		private void dispose() {
+			JTextComponent c = this.component.get();
+			if ( c != null ) {
+				c.removeComponentListener(this);
+				c.removePropertyChangeListener(this);
+			}
+			this.setDocument(null);
+		}
+
+		/**
+		 * Starts listening to the given document instead of the one listened to so far.
+		 *
+		 * @param document the document to listen to, or null to stop listening
+		 */
+		private synchronized void setDocument(Document document) {
+			if ( this.document != null ) {
+				this.document.removeDocumentListener(this);
+			}
+			this.document = document;
+			if ( this.document != null ) {
+				this.document.addDocumentListener(this);
+			}
+
+			this.rectangles.clear();
+		}
+
+		private void documentChanged() {
+			if ( this.component.get() == null ) {
+				this.setDocument(null);
+			} else {
+				this.clear();
+			}
+		}
+
+		@Override
+		public void componentResized(ComponentEvent e) {
+			this.clear();
+		}
+
+		@Override
+		public void propertyChange(PropertyChangeEvent evt) {
+			// The font, the document, the margins, line wrapping and more can all
+			// move the text, so just start over whenever any of them change.
+			if ( "document".equals(evt.getPropertyName()) ) {
+				// The new document is listened to once the component is painted again
+				this.setDocument(null);
+			} else {
+				this.clear();
+			}
+		}
+
+		@Override
+		public void insertUpdate(DocumentEvent e) {
+			this.documentChanged();
+		}
+
+		@Override
+		public void removeUpdate(DocumentEvent e) {
+			this.documentChanged();
+		}
+
+		@Override
+		public void changedUpdate(DocumentEvent e) {
+			this.documentChanged();
+		}
+	}
+
 }
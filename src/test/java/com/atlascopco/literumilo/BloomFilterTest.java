@@ -0,0 +1,68 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.atlascopco.literumilo.spellchecker.BloomFilter;
+
+public class BloomFilterTest {
+
+	@Test
+	public void testFalsePositiveRate() {
+		BloomFilter filter = new BloomFilter(10000, 0.01);
+
+		for (int i = 0; i < 10000; i++) {
+			assertThat(filter.add("word" + i), is(true));
+		}
+
+		// Never a false negative
+		for (int i = 0; i < 10000; i++) {
+			assertThat(filter.mightContain("word" + i), is(true));
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100000; i++) {
+			if ( filter.mightContain("other" + i) ) {
+				falsePositives++;
+			}
+		}
+
+		assertTrue(falsePositives < 2000);
+		assertTrue(filter.getFalsePositiveRate() < 0.02);
+		// About 9.6 bits per word
+		assertTrue(filter.getMemorySize() < 10000 * 10 / 8 + 8);
+	}
+
+	@Test
+	public void testFull() {
+		BloomFilter filter = new BloomFilter(2, 0.01);
+
+		assertThat(filter.add("one"), is(true));
+		assertThat(filter.add("two"), is(true));
+		assertThat(filter.add("three"), is(false));
+		assertThat(filter.mightContain("three"), is(false));
+		assertThat(filter.getCount(), is(2));
+
+		filter.clear();
+		assertThat(filter.mightContain("one"), is(false));
+		assertThat(filter.getCount(), is(0));
+	}
+}
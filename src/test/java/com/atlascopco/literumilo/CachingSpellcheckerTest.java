@@ -0,0 +1,166 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlascopco.literumilo.spellchecker.CachingSpellchecker;
+import com.atlascopco.literumilo.spellchecker.Spellchecker.DictionaryChangeListener;
+
+public class CachingSpellcheckerTest {
+
+	private static final Locale ENGLISH = new Locale("en", "US");
+	private static final Locale GERMAN = new Locale("de", "DE");
+
+	private MockSpellchecker delegate;
+
+	@Before
+	public void setUp() {
+		this.delegate = new MockSpellchecker();
+		this.delegate.addDictionary(ENGLISH, "the", "hat", "Paris");
+		this.delegate.addDictionary(GERMAN, "der", "Hut");
+	}
+
+	@Test
+	public void testRepeatedWordsOnlyCheckedOnce() {
+		CachingSpellchecker spellchecker = new CachingSpellchecker(this.delegate);
+
+		for (int i = 0; i < 10; i++) {
+			assertThat(spellchecker.misspelled("the"), is(false));
+			assertThat(spellchecker.misspelled("teh"), is(true));
+		}
+
+		assertThat(this.delegate.getChecks(), is(2));
+		assertThat(spellchecker.getHitRate(), is(18 / 20.0));
+	}
+
+	@Test
+	public void testCaseIsSignificant() {
+		CachingSpellchecker spellchecker = new CachingSpellchecker(this.delegate);
+
+		assertThat(spellchecker.misspelled("Paris"), is(false));
+		assertThat(spellchecker.misspelled("paris"), is(true));
+		assertThat(this.delegate.getChecks(), is(2));
+	}
+
+	@Test
+	public void testVerdictsAreKeptPerDictionary() {
+		final CachingSpellchecker spellchecker = new CachingSpellchecker(this.delegate);
+		final int[] changes = { 0 };
+
+		DictionaryChangeListener listener = new DictionaryChangeListener() {
+			@Override
+			public void dictionaryChanged() {
+				changes[0]++;
+			}
+		};
+		spellchecker.addDictionaryChangeListener(listener);
+
+		assertThat(spellchecker.misspelled("hat"), is(false));
+
+		spellchecker.setDictionary(GERMAN);
+		assertThat(changes[0], is(1));
+		assertThat(spellchecker.misspelled("hat"), is(true));
+
+		spellchecker.setDictionary(ENGLISH);
+		assertThat(spellchecker.misspelled("hat"), is(false));
+		assertThat(this.delegate.getChecks(), is(2));
+	}
+
+	@Test
+	public void testCapacityIsBounded() {
+		CachingSpellchecker spellchecker = new CachingSpellchecker(this.delegate, 1);
+
+		spellchecker.misspelled("the");
+		spellchecker.misspelled("hat");
+		spellchecker.misspelled("the");
+
+		assertThat(this.delegate.getChecks(), is(3));
+	}
+
+	@Test
+	public void testBatch() {
+		CachingSpellchecker spellchecker = new CachingSpellchecker(this.delegate);
+
+		spellchecker.misspelled("the");
+
+		BitSet misspelled = spellchecker.misspelled(Arrays.asList("the", "teh", "hat", "teh"));
+
+		assertThat(misspelled.cardinality(), is(2));
+		assertThat(misspelled.get(1), is(true));
+		assertThat(misspelled.get(3), is(true));
+		assertThat(this.delegate.getChecks(), is(3));
+	}
+
+	@Test
+	public void testChangeToSameDictionaryInvalidates() {
+		CachingSpellchecker spellchecker = new CachingSpellchecker(this.delegate);
+
+		spellchecker.misspelled("the");
+		// As when the dictionary finishes loading, or its words change
+		this.delegate.setDictionary(ENGLISH);
+		spellchecker.misspelled("the");
+
+		assertThat(this.delegate.getChecks(), is(2));
+	}
+
+	@Test
+	public void testVerdictFromSwitchedDictionaryIsNotCached() {
+		MockSpellchecker delegate = new MockSpellchecker() {
+			private boolean switched = false;
+
+			@Override
+			public boolean misspelled(String word) {
+				// Switch to the other dictionary while the verdict is being made
+				if ( !this.switched ) {
+					this.switched = true;
+					this.setDictionary(GERMAN);
+				}
+
+				return super.misspelled(word);
+			}
+		};
+		delegate.addDictionary(ENGLISH, "the", "hat");
+		delegate.addDictionary(GERMAN, "der", "Hut");
+
+		CachingSpellchecker spellchecker = new CachingSpellchecker(delegate);
+
+		assertThat(spellchecker.misspelled("hat"), is(true));
+
+		spellchecker.setDictionary(ENGLISH);
+		assertThat(spellchecker.misspelled("hat"), is(false));
+		assertThat(delegate.getChecks(), is(2));
+	}
+
+	@Test
+	public void testInvalidate() {
+		CachingSpellchecker spellchecker = new CachingSpellchecker(this.delegate);
+
+		spellchecker.misspelled("the");
+		spellchecker.invalidate(ENGLISH);
+		spellchecker.misspelled("the");
+
+		assertThat(this.delegate.getChecks(), is(2));
+	}
+}
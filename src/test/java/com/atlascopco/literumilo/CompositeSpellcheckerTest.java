@@ -0,0 +1,124 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlascopco.literumilo.spellchecker.CompositeSpellchecker;
+import com.atlascopco.literumilo.spellchecker.Spellchecker.DictionaryChangeListener;
+
+public class CompositeSpellcheckerTest {
+
+	private static final Locale ENGLISH = new Locale("en", "US");
+	private static final Locale GERMAN = new Locale("de", "DE");
+	private static final Locale FRENCH = new Locale("fr", "FR");
+
+	private MockSpellchecker english;
+	private MockSpellchecker german;
+	private CompositeSpellchecker spellchecker;
+	private final int[] selections = { 0 };
+	private final DictionaryChangeListener selectionCounter = new DictionaryChangeListener() {
+		@Override
+		public void dictionaryChanged() {
+			CompositeSpellcheckerTest.this.selections[0]++;
+		}
+	};
+
+	@Before
+	public void setUp() {
+		this.english = new MockSpellchecker();
+		this.english.addDictionary(ENGLISH, "the", "hat");
+		this.german = new MockSpellchecker();
+		this.german.addDictionary(GERMAN, "der", "Hut");
+		this.english.addDictionaryChangeListener(this.selectionCounter);
+
+		this.spellchecker = new CompositeSpellchecker();
+		this.spellchecker.addDictionaries(this.english);
+		this.spellchecker.addDictionaries(this.german);
+	}
+
+	@Test
+	public void testChecksGoToTheSpellcheckerOfTheDictionary() {
+		assertThat(this.spellchecker.getCurrentDictionary(), is(ENGLISH));
+		assertThat(this.spellchecker.misspelled("hat"), is(false));
+		assertThat(this.spellchecker.misspelled("Hut"), is(true));
+
+		this.spellchecker.setDictionary(GERMAN);
+
+		assertThat(this.spellchecker.getCurrentDictionary(), is(GERMAN));
+		assertThat(this.german.getCurrentDictionary(), is(GERMAN));
+		assertThat(this.spellchecker.misspelled("Hut"), is(false));
+		assertThat(this.spellchecker.misspelled("hat"), is(true));
+		assertThat(this.spellchecker.suggest("Hat").contains("Hut"), is(true));
+
+		assertThat(this.english.getChecks(), is(2));
+		assertThat(this.german.getChecks(), is(2));
+		assertThat(this.german.getSuggestions(), is(1));
+	}
+
+	@Test
+	public void testAddingDoesNotSelectTheDictionary() {
+		assertThat(this.spellchecker.getCurrentDictionary(), is(ENGLISH));
+		assertThat(this.selections[0], is(0));
+
+		assertThat(this.spellchecker.misspelled("the"), is(false));
+		assertThat(this.selections[0], is(1));
+		assertThat(this.spellchecker.misspelled("hat"), is(false));
+		assertThat(this.selections[0], is(1));
+
+		this.spellchecker.setDictionary(ENGLISH);
+		assertThat(this.selections[0], is(2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownDictionary() {
+		this.spellchecker.setDictionary(FRENCH);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDictionaryMissingFromSpellchecker() {
+		this.spellchecker.addDictionary(FRENCH, this.english);
+	}
+
+	@Test
+	public void testOnlyChangesOfTheCurrentSpellcheckerArePassedOn() {
+		final int[] changes = { 0 };
+
+		DictionaryChangeListener listener = new DictionaryChangeListener() {
+			@Override
+			public void dictionaryChanged() {
+				changes[0]++;
+			}
+		};
+		this.spellchecker.addDictionaryChangeListener(listener);
+
+		this.spellchecker.setDictionary(GERMAN);
+		assertThat(changes[0], is(1));
+
+		// Such as a dictionary finishing loading after another one was selected
+		this.english.setDictionary(ENGLISH);
+		assertThat(changes[0], is(1));
+
+		this.german.setDictionary(GERMAN);
+		assertThat(changes[0], is(2));
+	}
+}
@@ -25,7 +25,10 @@ import javax.swing.text.BadLocationException;
 
 import org.junit.Test;
 
+import com.atlascopco.literumilo.tokenizer.AbstractTokenizer;
+import com.atlascopco.literumilo.tokenizer.CharClassTable;
 import com.atlascopco.literumilo.tokenizer.DefaultTokenizer;
+import com.atlascopco.literumilo.tokenizer.TokenCursor;
 import com.atlascopco.literumilo.tokenizer.WordToken;
 
 public class DefaultTokenizerTest {
@@ -222,6 +225,111 @@ public class DefaultTokenizerTest {
 		assertThat(firstToken.getLength(), is(3));
 	}
 
+	@Test
+	public void testGetTokensOnlyRetrievesWindow() throws BadLocationException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 10000; i++) {
+			text.append(TEST_STRING).append(' ');
+		}
+		Mockument mockument = new Mockument(text.toString());
+
+		List<WordToken> tokens = this.toList(new DefaultTokenizer().tokenize(mockument, 5010 * (TEST_STRING.length() + 1) + 11, 5));
+
+		assertThat(tokens.size(), is(2));
+		assertThat(tokens.get(0).getToken(), is("der"));
+		assertThat(tokens.get(1).getToken(), is("hat"));
+		assertThat(mockument.getCharactersRetrieved() < 1000, is(true));
+	}
+
+	@Test
+	public void testGetTokensWordLongerThanWindow() throws BadLocationException {
+		StringBuilder word = new StringBuilder();
+		for (int i = 0; i < 500; i++) {
+			word.append('a');
+		}
+		Mockument mockument = new Mockument("Mein " + word + " Hut");
+
+		List<WordToken> tokens = this.toList(new DefaultTokenizer().tokenize(mockument, 250, 1));
+
+		assertThat(tokens.size(), is(1));
+		assertThat(tokens.get(0).getToken(), is(word.toString()));
+		assertThat(tokens.get(0).getStartOffset().getOffset(), is(5));
+	}
+
+	@Test
+	public void testCustomTokenizerUsesItsWordBreakCharacters() throws BadLocationException {
+		Mockument mockument = new Mockument("Mein-Hut der");
+
+		AbstractTokenizer tokenizer = new AbstractTokenizer() {
+			@Override
+			public boolean isWordBreakCharacter(char character) {
+				return character == '-';
+			}
+		};
+
+		List<WordToken> tokens = this.toList(tokenizer.tokenize(mockument, 0, mockument.getLength()));
+
+		assertThat(tokens.size(), is(2));
+		assertThat(tokens.get(0).getToken(), is("Mein"));
+		assertThat(tokens.get(1).getToken(), is("Hut der"));
+	}
+
+	@Test
+	public void testExtendingWordBreakTableDoesNotAffectOthers() throws BadLocationException {
+		Mockument mockument = new Mockument("Mein-Hut");
+
+		DefaultTokenizer hyphenating = new DefaultTokenizer() {
+			@Override
+			protected CharClassTable createWordBreakTable() {
+				CharClassTable table = super.createWordBreakTable();
+				table.add('-');
+				return table;
+			}
+		};
+
+		assertThat(this.toList(hyphenating.tokenize(mockument, 0, mockument.getLength())).size(), is(2));
+		assertThat(this.toList(new DefaultTokenizer().tokenize(mockument, 0, mockument.getLength())).size(), is(1));
+	}
+
+	@Test
+	public void testOverridingIsWordBreakCharacter() throws BadLocationException {
+		Mockument mockument = new Mockument("Mein-Hut e.g.");
+
+		DefaultTokenizer tokenizer = new DefaultTokenizer() {
+			@Override
+			public boolean isWordBreakCharacter(char character) {
+				if ( character == '.' ) {
+					return false;
+				}
+
+				return character == '-' || super.isWordBreakCharacter(character);
+			}
+		};
+
+		List<WordToken> tokens = this.toList(tokenizer.tokenize(mockument, 0, mockument.getLength()));
+		assertThat(tokens.size(), is(3));
+		assertThat(tokens.get(0).getToken(), is("Mein"));
+		assertThat(tokens.get(1).getToken(), is("Hut"));
+		assertThat(tokens.get(2).getToken(), is("e.g."));
+	}
+
+	@Test
+	public void testCursor() throws BadLocationException {
+		Mockument mockument = new Mockument(TEST_STRING);
+
+		TokenCursor cursor = new DefaultTokenizer().cursor(mockument, 9, 9);
+
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.getToken().toString(), is("der"));
+		assertThat(cursor.getStartOffset(), is(10));
+		assertThat(cursor.getEndOffset(), is(12));
+		assertThat(cursor.next(), is(true));
+		assertThat(cursor.getToken().length(), is(3));
+		assertThat(cursor.getToken().charAt(0), is('h'));
+		assertThat(cursor.toWordToken().getStartOffset().getOffset(), is(14));
+		assertThat(cursor.next(), is(false));
+	}
+
 	private <T> List<T> toList(Iterable<T> iterable) {
 		List<T> list = new ArrayList<T>();
 
@@ -0,0 +1,143 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.atlascopco.literumilo.spellchecker.automaton.HunspellDictionaryReader;
+
+public class HunspellDictionaryReaderTest {
+
+	@Test
+	public void testMorphologicalData() throws IOException {
+		List<String> words = expand(new String[] {
+				"SFX S Y 1",
+				"SFX S 0 s .",
+				"SFX p Y 1",
+				"SFX p 0 xyz ."
+		}, new String[] {
+				"3",
+				"cat/S po:noun",
+				"dog po:noun",
+				"bird/S\tst:bird"
+		});
+
+		// The p of po:noun is not a flag
+		assertThat(words, is(Arrays.asList("bird", "birds", "cat", "cats", "dog")));
+	}
+
+	@Test
+	public void testAliases() throws IOException {
+		List<String> words = expand(new String[] {
+				"AF 2",
+				"AF S",
+				"AF SU",
+				"PFX U Y 1",
+				"PFX U 0 un .",
+				"SFX S Y 1",
+				"SFX S 0 s ."
+		}, new String[] {
+				"2",
+				"cat/1 po:noun",
+				"lock/2"
+		});
+
+		assertThat(words, is(Arrays.asList("cat", "cats", "lock", "locks", "unlock", "unlocks")));
+	}
+
+	@Test
+	public void testLongFlags() throws IOException {
+		List<String> words = expand(new String[] {
+				"FLAG long",
+				"SFX Aa Y 1",
+				"SFX Aa 0 s .",
+				"SFX Bb Y 1",
+				"SFX Bb 0 ed ."
+		}, new String[] {
+				"2",
+				"walk/AaBb",
+				"jump/Aa"
+		});
+
+		assertThat(words, is(Arrays.asList("jump", "jumps", "walk", "walked", "walks")));
+	}
+
+	@Test
+	public void testNumericFlags() throws IOException {
+		List<String> words = expand(new String[] {
+				"FLAG num",
+				"SFX 101 Y 1",
+				"SFX 101 0 s .",
+				"SFX 7 Y 1",
+				"SFX 7 0 ed ."
+		}, new String[] {
+				"3",
+				"walk/101,7",
+				"jump/101",
+				"talk/1"
+		});
+
+		assertThat(words, is(Arrays.asList("jump", "jumps", "talk", "walk", "walked", "walks")));
+	}
+
+	@Test
+	public void testNeedAffix() throws IOException {
+		List<String> words = expand(new String[] {
+				"NEEDAFFIX X",
+				"SFX S Y 1",
+				"SFX S 0 s ."
+		}, new String[] {
+				"2",
+				"scissor/XS",
+				"pants/X"
+		});
+
+		// Neither stem is a word on its own
+		assertThat(words, is(Arrays.asList("scissors")));
+	}
+
+	private static List<String> expand(String[] aff, String[] dic) throws IOException {
+		return new HunspellDictionaryReader(write("test", ".aff", aff)).expand(write("test", ".dic", dic));
+	}
+
+	private static File write(String prefix, String suffix, String... lines) throws IOException {
+		File file = File.createTempFile(prefix, suffix);
+		file.deleteOnExit();
+
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+		try {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+
+		return file;
+	}
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.atlascopco.literumilo.spellchecker.AbstractSpellchecker;
+import com.atlascopco.literumilo.spellchecker.Spellchecker;
+
+/**
+ * A {@link Spellchecker} backed by plain sets of words, which counts how many
+ * times it has been asked to check a word.
+ */
+public class MockSpellchecker extends AbstractSpellchecker {
+
+	private final Map<Locale, Set<String>> dictionaries = new HashMap<Locale, Set<String>>();
+	private Locale currentDictionary;
+	private int checks = 0;
+	private int suggestions = 0;
+
+	public void addDictionary(Locale locale, String... words) {
+		if ( this.currentDictionary == null ) {
+			this.currentDictionary = locale;
+		}
+
+		this.dictionaries.put(locale, new HashSet<String>(Arrays.asList(words)));
+	}
+
+	public int getChecks() {
+		return this.checks;
+	}
+
+	public int getSuggestions() {
+		return this.suggestions;
+	}
+
+	@Override
+	public boolean misspelled(String word) {
+		this.checks++;
+
+		return !this.dictionaries.get(this.currentDictionary).contains(word);
+	}
+
+	@Override
+	public List<String> suggest(String word) {
+		this.suggestions++;
+
+		return new ArrayList<String>(this.dictionaries.get(this.currentDictionary));
+	}
+
+	@Override
+	public void setDictionary(Locale locale) throws IllegalArgumentException {
+		this.currentDictionary = locale;
+
+		this.fireDictionaryChange();
+	}
+
+	@Override
+	public List<Locale> getAvailableDictionaries() {
+		return new ArrayList<Locale>(this.dictionaries.keySet());
+	}
+
+	@Override
+	public Locale getCurrentDictionary() {
+		return this.currentDictionary;
+	}
+
+}
@@ -27,6 +27,7 @@ import javax.swing.text.Segment;
 public class Mockument implements Document {
 
 	private final String document;
+	private int charactersRetrieved = 0;
 
 	public Mockument(String document) {
 		this.document = document;
@@ -89,6 +90,14 @@ public class Mockument implements Document {
 		txt.array = this.document.toCharArray();
 		txt.offset = offset;
 		txt.count = length;
+		this.charactersRetrieved += length;
+	}
+
+	/**
+	 * @return the total number of characters retrieved through {@link #getText(int, int, Segment)}
+	 */
+	public int getCharactersRetrieved() {
+		return this.charactersRetrieved;
 	}
 
 	@Override
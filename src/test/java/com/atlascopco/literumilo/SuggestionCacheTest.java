@@ -0,0 +1,75 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.atlascopco.literumilo.spellchecker.SuggestionCache;
+
+public class SuggestionCacheTest {
+
+	private static final Locale ENGLISH = new Locale("en", "US");
+	private static final Locale GERMAN = new Locale("de", "DE");
+
+	@Test
+	public void testSuggestionsCachedPerDictionary() {
+		MockSpellchecker spellchecker = new MockSpellchecker();
+		spellchecker.addDictionary(ENGLISH, "the", "hat");
+		spellchecker.addDictionary(GERMAN, "der", "Hut");
+		SuggestionCache cache = new SuggestionCache();
+
+		assertThat(cache.contains(spellchecker, ENGLISH, "teh"), is(false));
+		for (int i = 0; i < 5; i++) {
+			assertThat(cache.get(spellchecker, "teh").contains("the"), is(true));
+		}
+		assertThat(spellchecker.getSuggestions(), is(1));
+		assertThat(cache.contains(spellchecker, ENGLISH, "teh"), is(true));
+
+		spellchecker.setDictionary(GERMAN);
+		assertThat(cache.get(spellchecker, "teh").contains("der"), is(true));
+		assertThat(spellchecker.getSuggestions(), is(2));
+
+		cache.invalidate(GERMAN);
+		assertThat(cache.contains(spellchecker, GERMAN, "teh"), is(false));
+		assertThat(cache.contains(spellchecker, ENGLISH, "teh"), is(true));
+	}
+
+	@Test
+	public void testSuggestionsCachedPerSpellchecker() {
+		MockSpellchecker first = new MockSpellchecker();
+		first.addDictionary(ENGLISH, "the");
+		MockSpellchecker second = new MockSpellchecker();
+		second.addDictionary(ENGLISH, "ten");
+		SuggestionCache cache = new SuggestionCache();
+
+		assertThat(cache.get(first, "teh").contains("the"), is(true));
+		assertThat(cache.contains(second, ENGLISH, "teh"), is(false));
+		assertThat(cache.get(second, "teh").contains("ten"), is(true));
+		assertThat(cache.get(second, "teh").contains("the"), is(false));
+
+		cache.invalidate(second, ENGLISH);
+		assertThat(cache.contains(first, ENGLISH, "teh"), is(true));
+		assertThat(cache.contains(second, ENGLISH, "teh"), is(false));
+
+		cache.invalidate(ENGLISH);
+		assertThat(cache.contains(first, ENGLISH, "teh"), is(false));
+	}
+}
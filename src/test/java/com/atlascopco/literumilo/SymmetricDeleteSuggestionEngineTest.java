@@ -0,0 +1,69 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.atlascopco.literumilo.spellchecker.SymmetricDeleteSuggestionEngine;
+
+public class SymmetricDeleteSuggestionEngineTest {
+
+	private static final List<String> WORDS = Arrays.asList("receive", "recite", "relieve", "the", "then", "they", "them", "Paris", "parish");
+
+	@Test
+	public void testEditDistance() {
+		SymmetricDeleteSuggestionEngine engine = new SymmetricDeleteSuggestionEngine(WORDS);
+
+		// A transposition is a single edit, so it comes before the words two edits away
+		assertThat(engine.suggest("recieve"), is(Arrays.asList("receive", "relieve", "recite")));
+		// Nothing is within two edits
+		assertThat(engine.suggest("xylophone").isEmpty(), is(true));
+	}
+
+	@Test
+	public void testFrequency() {
+		SymmetricDeleteSuggestionEngine engine = new SymmetricDeleteSuggestionEngine(WORDS, Arrays.asList("the", "they", "them", "then"));
+
+		assertThat(engine.suggest("thei"), is(Arrays.asList("the", "they", "them", "then")));
+	}
+
+	@Test
+	public void testCase() {
+		SymmetricDeleteSuggestionEngine engine = new SymmetricDeleteSuggestionEngine(WORDS);
+
+		assertThat(engine.suggest("paris"), is(Arrays.asList("Paris", "parish")));
+		assertThat(engine.suggest("Recieve").get(0), is("Receive"));
+		assertThat(engine.suggest("RECIEVE").get(0), is("RECEIVE"));
+	}
+
+	@Test
+	public void testLongWords() {
+		List<String> words = new ArrayList<String>();
+		words.add("internationalization");
+		words.add("internationalizations");
+		SymmetricDeleteSuggestionEngine engine = new SymmetricDeleteSuggestionEngine(words);
+
+		// The edits are past the indexed prefix
+		assertThat(engine.suggest("internationalisation"), is(Arrays.asList("internationalization", "internationalizations")));
+	}
+}
@@ -0,0 +1,229 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.util.Locale;
+
+import org.junit.Test;
+
+import com.atlascopco.literumilo.spellchecker.automaton.AutomatonSpellchecker;
+import com.atlascopco.literumilo.spellchecker.automaton.WordAutomaton;
+import com.atlascopco.literumilo.spellchecker.automaton.WordAutomatonBuilder;
+
+public class WordAutomatonTest {
+
+	@Test
+	public void testMinimalAutomaton() {
+		WordAutomatonBuilder builder = new WordAutomatonBuilder();
+		for (String word : new String[] { "tap", "taps", "taps", "top", "tops" }) {
+			builder.add(word);
+		}
+		WordAutomaton automaton = builder.build();
+
+		assertThat(automaton.getWordCount(), is(4));
+		// t, a/o, p and s are shared by all of the words
+		assertThat(automaton.getStateCount(), is(5));
+		assertThat(automaton.getTransitionCount(), is(5));
+
+		assertThat(automaton.contains("tap"), is(true));
+		assertThat(automaton.contains("tops"), is(true));
+		assertThat(automaton.contains("to"), is(false));
+		assertThat(automaton.contains("tip"), is(false));
+		assertThat(automaton.contains("topsy"), is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnsortedWords() {
+		WordAutomatonBuilder builder = new WordAutomatonBuilder();
+		builder.add("top");
+		builder.add("tap");
+	}
+
+	@Test
+	public void testAffixExpansion() throws IOException {
+		File aff = write("test", ".aff",
+				"SET UTF-8",
+				"PFX U Y 1",
+				"PFX U 0 un .",
+				"SFX D Y 2",
+				"SFX D y ied [^aeiou]y",
+				"SFX D 0 ed [^y]",
+				"FORBIDDENWORD !");
+		File dic = write("test", ".dic",
+				"3",
+				"carry/DU",
+				"lock/DU",
+				"locked/!");
+
+		AutomatonSpellchecker spellchecker = new AutomatonSpellchecker();
+		spellchecker.addDictionary(Locale.ENGLISH, dic, aff);
+
+		for (String word : new String[] { "carry", "carried", "uncarried", "unlock", "unlocked", "Carried", "UNCARRY" }) {
+			assertThat(word, spellchecker.misspelled(word), is(false));
+		}
+		for (String word : new String[] { "carryed", "locked", "relock", "cArry" }) {
+			assertThat(word, spellchecker.misspelled(word), is(true));
+		}
+	}
+
+	@Test
+	public void testWriteAndMap() throws IOException {
+		WordAutomaton built = build("tap", "taps", "top", "tops", "\u00fcber");
+		File file = File.createTempFile("test", ".dawg");
+		file.deleteOnExit();
+		built.write(file);
+
+		WordAutomaton mapped = WordAutomaton.map(file);
+
+		assertThat(mapped.isMapped(), is(true));
+		assertThat(mapped.getWordCount(), is(built.getWordCount()));
+		assertThat(mapped.getStateCount(), is(built.getStateCount()));
+		assertThat(mapped.getTransitionCount(), is(built.getTransitionCount()));
+		assertThat(mapped.contains("\u00fcber"), is(true));
+		assertThat(mapped.contains("tops"), is(true));
+		assertThat(mapped.contains("to"), is(false));
+	}
+
+	@Test(expected = IOException.class)
+	public void testMapBadMagic() throws IOException {
+		WordAutomaton.map(write("test", ".dawg", "This is not a word automaton."));
+	}
+
+	@Test(expected = IOException.class)
+	public void testMapWrongVersion() throws IOException {
+		File file = File.createTempFile("test", ".dawg");
+		file.deleteOnExit();
+		build("tap", "top").write(file);
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.seek(4);
+			randomAccessFile.writeInt(2);
+		} finally {
+			randomAccessFile.close();
+		}
+
+		WordAutomaton.map(file);
+	}
+
+	@Test(expected = IOException.class)
+	public void testMapTruncated() throws IOException {
+		File file = File.createTempFile("test", ".dawg");
+		file.deleteOnExit();
+		build("tap", "top").write(file);
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.setLength(randomAccessFile.length() - 2);
+		} finally {
+			randomAccessFile.close();
+		}
+
+		WordAutomaton.map(file);
+	}
+
+	@Test(expected = IOException.class)
+	public void testMapTargetOutOfBounds() throws IOException {
+		WordAutomaton built = build("tap", "top");
+		File file = File.createTempFile("test", ".dawg");
+		file.deleteOnExit();
+		built.write(file);
+
+		// The target of the first transition, after the header, the final bits and the
+		// first transition of each state
+		long position = 6 * 4 + 8 + 4 * (built.getStateCount() + 1);
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.seek(position);
+			randomAccessFile.writeInt(built.getStateCount());
+		} finally {
+			randomAccessFile.close();
+		}
+
+		WordAutomaton.map(file);
+	}
+
+	@Test(expected = IOException.class)
+	public void testMapTransitionsOutOfBounds() throws IOException {
+		WordAutomaton built = build("tap", "top");
+		File file = File.createTempFile("test", ".dawg");
+		file.deleteOnExit();
+		built.write(file);
+
+		// The end of the transitions of the last state
+		long position = 6 * 4 + 8 + 4 * built.getStateCount();
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.seek(position);
+			randomAccessFile.writeInt(Integer.MAX_VALUE);
+		} finally {
+			randomAccessFile.close();
+		}
+
+		WordAutomaton.map(file);
+	}
+
+	@Test(expected = IOException.class)
+	public void testMapNegativeWordCount() throws IOException {
+		File file = File.createTempFile("test", ".dawg");
+		file.deleteOnExit();
+		build("tap", "top").write(file);
+
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			randomAccessFile.seek(16);
+			randomAccessFile.writeInt(-1);
+		} finally {
+			randomAccessFile.close();
+		}
+
+		WordAutomaton.map(file);
+	}
+
+	private static WordAutomaton build(String... words) {
+		WordAutomatonBuilder builder = new WordAutomatonBuilder();
+		for (String word : words) {
+			builder.add(word);
+		}
+		return builder.build();
+	}
+
+	private static File write(String prefix, String suffix, String... lines) throws IOException {
+		File file = File.createTempFile(prefix, suffix);
+		file.deleteOnExit();
+
+		Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+		try {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		} finally {
+			writer.close();
+		}
+
+		return file;
+	}
+}
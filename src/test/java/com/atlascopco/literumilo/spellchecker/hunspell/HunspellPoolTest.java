@@ -0,0 +1,154 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.spellchecker.hunspell;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlascopco.hunspell.Hunspell;
+
+public class HunspellPoolTest {
+
+	private HunspellLoader loader;
+
+	@Before
+	public void setUp() throws IOException {
+		// An empty dictionary is enough, since no words are checked
+		File dic = File.createTempFile("empty", ".dic");
+		dic.deleteOnExit();
+		write(dic, "0\n");
+		File aff = File.createTempFile("empty", ".aff");
+		aff.deleteOnExit();
+		write(aff, "SET UTF-8\n");
+
+		this.loader = new FileHunspellLoader(dic.getPath(), aff.getPath());
+	}
+
+	@Test
+	public void testLeaseAndUnload() {
+		HunspellPool pool = new HunspellPool(this.loader, 1);
+
+		assertThat(pool.isLoaded(), is(false));
+		assertThat(pool.getInstanceCount(), is(0));
+
+		Hunspell dictionary = pool.lease();
+		assertThat(pool.isLoaded(), is(true));
+		assertThat(pool.getInstanceCount(), is(1));
+
+		// Not while an instance is leased
+		assertThat(pool.unload(), is(false));
+
+		pool.release(dictionary);
+		assertThat(pool.unload(), is(true));
+		assertThat(pool.isLoaded(), is(false));
+		assertThat(pool.getInstanceCount(), is(0));
+
+		// It is loaded again the next time it is used
+		pool.release(pool.lease());
+		assertThat(pool.getInstanceCount(), is(1));
+		assertThat(pool.getLoadCount(), is(2));
+	}
+
+	@Test
+	public void testLeaseIfLoadedNeverLoads() {
+		HunspellPool pool = new HunspellPool(this.loader, 1);
+
+		assertThat(pool.leaseIfLoaded() == null, is(true));
+		assertThat(pool.getLoadCount(), is(0));
+
+		pool.release(pool.lease());
+		Hunspell dictionary = pool.leaseIfLoaded();
+		assertThat(dictionary != null, is(true));
+		pool.release(dictionary);
+
+		// Such as when it is unloaded between isLoaded() and leasing
+		assertThat(pool.unload(), is(true));
+		assertThat(pool.leaseIfLoaded() == null, is(true));
+		assertThat(pool.getLoadCount(), is(1));
+	}
+
+	@Test
+	public void testUnloadNeverExceedsSize() throws InterruptedException {
+		final HunspellPool pool = new HunspellPool(this.loader, 1);
+		final AtomicBoolean done = new AtomicBoolean();
+		final AtomicInteger mostInstances = new AtomicInteger();
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 4; i++) {
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 500; j++) {
+						Hunspell dictionary = pool.lease();
+						try {
+							int instances = pool.getInstanceCount();
+							if ( instances > mostInstances.get() ) {
+								mostInstances.set(instances);
+							}
+						} finally {
+							pool.release(dictionary);
+						}
+					}
+				}
+			});
+		}
+
+		for (Thread thread : threads) {
+			thread.start();
+		}
+
+		Thread unloader = new Thread() {
+			@Override
+			public void run() {
+				while ( !done.get() ) {
+					pool.unload();
+					Thread.yield();
+				}
+			}
+		};
+		unloader.start();
+
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		done.set(true);
+		unloader.join();
+
+		assertThat(mostInstances.get(), is(1));
+		// Whatever was unloaded, at most one instance is left
+		assertThat(pool.getInstanceCount() <= 1, is(true));
+	}
+
+	private static void write(File file, String text) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.spellchecker.hunspell;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlascopco.hunspell.Hunspell;
+import com.atlascopco.literumilo.spellchecker.BloomFilter;
+import com.atlascopco.literumilo.spellchecker.DictionaryNotReadyException;
+
+public class HunspellSpellcheckerTest {
+
+	private static final Locale ENGLISH = new Locale("en", "US");
+	private static final Locale GERMAN = new Locale("de", "DE");
+	private static final Locale FRENCH = new Locale("fr", "FR");
+
+	private File dic;
+	private File aff;
+	private HunspellSpellchecker spellchecker;
+
+	@Before
+	public void setUp() throws Exception {
+		this.dic = File.createTempFile("test", ".dic");
+		this.dic.deleteOnExit();
+		write(this.dic, "3\nthe\ncat\nsat\n");
+		this.aff = File.createTempFile("test", ".aff");
+		this.aff.deleteOnExit();
+		write(this.aff, "SET UTF-8\n");
+
+		this.spellchecker = new HunspellSpellchecker();
+		this.spellchecker.addDictionary(ENGLISH, new FileHunspellLoader(this.dic.getPath(), this.aff.getPath()));
+		this.spellchecker.preload(ENGLISH).get();
+	}
+
+	@Test
+	public void testKnownWordFilterRebuiltWhenReselected() {
+		this.spellchecker.setKnownWordFilter(100, 0.01);
+		this.spellchecker.setDictionary(ENGLISH);
+
+		BloomFilter knownWords = this.spellchecker.getKnownWordFilter(ENGLISH);
+		assertThat(this.spellchecker.misspelled("the"), is(false));
+		assertThat(knownWords.mightContain("the"), is(true));
+
+		this.spellchecker.setDictionary(ENGLISH);
+		assertThat(this.spellchecker.getKnownWordFilter(ENGLISH) != knownWords, is(true));
+		assertThat(this.spellchecker.getKnownWordFilter(ENGLISH).getCount(), is(0));
+	}
+
+	@Test
+	public void testKnownWordsNeedNoInstance() throws InterruptedException {
+		this.spellchecker.setKnownWordFilter(100, 0.01);
+		this.spellchecker.setDictionary(ENGLISH);
+
+		assertThat(this.spellchecker.misspelled(Arrays.asList("the", "cat")).isEmpty(), is(true));
+		long lastUsed = this.spellchecker.getStatistics(ENGLISH).getLastUsed();
+
+		Thread.sleep(20);
+		assertThat(this.spellchecker.misspelled(Arrays.asList("cat", "the", "cat")).isEmpty(), is(true));
+		assertThat(this.spellchecker.getStatistics(ENGLISH).getLastUsed(), is(lastUsed));
+	}
+
+	@Test
+	public void testMemoryBudget() throws Exception {
+		this.spellchecker.addDictionary(GERMAN, new FileHunspellLoader(this.dic.getPath(), this.aff.getPath(), 100));
+		this.spellchecker.addDictionary(FRENCH, new FileHunspellLoader(this.dic.getPath(), this.aff.getPath(), 100));
+		this.spellchecker.preload(GERMAN).get();
+		this.spellchecker.preload(FRENCH).get();
+
+		assertThat(this.spellchecker.getStatistics(GERMAN).getEstimatedFootprint(), is(100L));
+		// Its footprint is not known, so it does not count
+		assertThat(this.spellchecker.getStatistics(ENGLISH).getEstimatedFootprint(), is(-1L));
+
+		this.spellchecker.setDictionary(GERMAN);
+		this.spellchecker.misspelled("the");
+		Thread.sleep(20);
+		this.spellchecker.setDictionary(FRENCH);
+		this.spellchecker.misspelled("the");
+
+		// The dictionary used least recently makes way, but not the current one
+		this.spellchecker.setMemoryBudget(150);
+		assertThat(this.spellchecker.isLoaded(GERMAN), is(false));
+		assertThat(this.spellchecker.isLoaded(FRENCH), is(true));
+		assertThat(this.spellchecker.isLoaded(ENGLISH), is(true));
+	}
+
+	@Test
+	public void testChecksWhileLoading() throws Exception {
+		final CountDownLatch loadable = new CountDownLatch(1);
+		final HunspellLoader loader = new FileHunspellLoader(this.dic.getPath(), this.aff.getPath());
+		this.spellchecker.addDictionary(GERMAN, new HunspellLoader() {
+			@Override
+			public Hunspell load() {
+				try {
+					loadable.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return loader.load();
+			}
+		});
+
+		Future<Void> ready;
+		try {
+			this.spellchecker.setDictionary(GERMAN);
+
+			try {
+				this.spellchecker.misspelled(Arrays.asList("the", "teh"));
+				throw new AssertionError("The words were checked before the dictionary loaded.");
+			} catch (DictionaryNotReadyException e) {
+				assertThat(e.getLocale(), is(GERMAN));
+				assertThat(e.isLoadFailed(), is(false));
+				ready = e.getReady();
+			}
+			assertThat(ready.isDone(), is(false));
+		} finally {
+			loadable.countDown();
+		}
+
+		ready.get();
+		assertThat(this.spellchecker.misspelled("the"), is(false));
+	}
+
+	@Test
+	public void testFailedLoadIsReported() throws Exception {
+		final IllegalStateException failure = new IllegalStateException("The dictionary is broken.");
+		this.spellchecker.addDictionary(FRENCH, new HunspellLoader() {
+			@Override
+			public Hunspell load() {
+				throw failure;
+			}
+		});
+
+		this.spellchecker.setDictionary(FRENCH);
+		try {
+			this.spellchecker.preload(FRENCH).get();
+			throw new AssertionError("The dictionary loaded.");
+		} catch (ExecutionException e) {
+			assertThat(e.getCause() == failure, is(true));
+		}
+
+		try {
+			this.spellchecker.misspelled("the");
+			throw new AssertionError("The word was checked against a dictionary that failed to load.");
+		} catch (DictionaryNotReadyException e) {
+			assertThat(e.isLoadFailed(), is(true));
+			assertThat(e.getCause() == failure, is(true));
+		}
+	}
+
+	private static void write(File file, String text) throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write(text.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Test;
+
+public class CoverageMapTest {
+
+	@Test
+	public void testAddAndRemove() throws BadLocationException {
+		PlainDocument document = new PlainDocument();
+		document.insertString(0, "0123456789012345678901234567890123456789", null);
+
+		CoverageMap coverage = new CoverageMap(document);
+		coverage.add(5, 10);
+		coverage.add(20, 25);
+
+		assertThat(toString(coverage.getUncovered(0, 30)), is("[0,5) [10,20) [25,30)"));
+
+		// Touching ranges are merged, and a range inside another changes nothing
+		coverage.add(10, 12);
+		coverage.add(6, 8);
+		assertThat(toString(coverage.getUncovered(0, 30)), is("[0,5) [12,20) [25,30)"));
+
+		// Removing the middle of a range leaves both ends
+		coverage.remove(7, 9);
+		assertThat(toString(coverage.getUncovered(0, 30)), is("[0,5) [7,9) [12,20) [25,30)"));
+
+		coverage.remove(0, 22);
+		assertThat(toString(coverage.getUncovered(0, 30)), is("[0,22) [25,30)"));
+		assertThat(toString(coverage.getUncovered(22, 25)), is(""));
+	}
+
+	@Test
+	public void testRangesFollowEdits() throws BadLocationException {
+		PlainDocument document = new PlainDocument();
+		document.insertString(0, "0123456789012345678901234567890123456789", null);
+
+		CoverageMap coverage = new CoverageMap(document);
+		coverage.add(10, 20);
+
+		document.insertString(0, "xxxxx", null);
+		assertThat(toString(coverage.getUncovered(0, 30)), is("[0,15) [25,30)"));
+
+		document.remove(0, 20);
+		assertThat(toString(coverage.getUncovered(0, 10)), is("[5,10)"));
+	}
+
+	private static String toString(List<int[]> ranges) {
+		StringBuilder builder = new StringBuilder();
+
+		for (int[] range : ranges) {
+			if ( builder.length() > 0 ) {
+				builder.append(' ');
+			}
+			builder.append('[').append(range[0]).append(',').append(range[1]).append(')');
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,141 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class DirtyRegionSchedulerTest {
+
+	private PlainDocument document;
+	/**
+	 * The regions that were flushed, as "offset+length", only touched on the EDT.
+	 */
+	private List<String> flushed;
+	private DirtyRegionScheduler.Listener listener;
+
+	@Before
+	public void setUp() throws BadLocationException {
+		this.document = new PlainDocument();
+		this.document.insertString(0, "the cat sat on the mat", null);
+		this.flushed = new ArrayList<String>();
+		this.listener = new DirtyRegionScheduler.Listener() {
+			@Override
+			public void regionDirty(int offset, int length) {
+				DirtyRegionSchedulerTest.this.flushed.add(offset+"+"+length);
+			}
+		};
+	}
+
+	@Test
+	public void testRegionsAreMergedAndFollowEdits() throws Exception {
+		final DirtyRegionScheduler scheduler = new DirtyRegionScheduler(this.document, 60000, 60000, this.listener);
+
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				scheduler.markDirty(4, 3);
+				scheduler.markDirty(6, 5);
+				// Touching the merged region
+				scheduler.markDirty(11, 1);
+				scheduler.markDirty(19, 3);
+
+				try {
+					DirtyRegionSchedulerTest.this.document.insertString(0, "oh ", null);
+				} catch (BadLocationException e) {
+					throw new IllegalStateException(e);
+				}
+
+				assertThat(scheduler.isPending(), is(true));
+				scheduler.flush();
+				assertThat(scheduler.isPending(), is(false));
+			}
+		});
+
+		assertThat(this.flushed.size(), is(2));
+		assertThat(this.flushed.contains("7+8"), is(true));
+		assertThat(this.flushed.contains("22+3"), is(true));
+	}
+
+	@Test
+	public void testFlushedOnceIdle() throws Exception {
+		final DirtyRegionScheduler scheduler = new DirtyRegionScheduler(this.document, 100, 60000, this.listener);
+
+		// Each edit puts the check off again
+		for (int i = 0; i < 5; i++) {
+			this.markDirty(scheduler, 4, 3);
+			Thread.sleep(20);
+		}
+		assertThat(this.getFlushed().isEmpty(), is(true));
+
+		assertThat(this.waitForFlush(2000), is(true));
+		assertThat(this.getFlushed().toString(), is("[4+3]"));
+	}
+
+	@Test
+	public void testFlushedByMaximumLatency() throws Exception {
+		final DirtyRegionScheduler scheduler = new DirtyRegionScheduler(this.document, 200, 300, this.listener);
+
+		// Edits that keep coming never leave the document idle for long enough
+		long stop = System.currentTimeMillis() + 1500;
+		boolean flushedWhileEditing = false;
+		while ( System.currentTimeMillis() < stop && !flushedWhileEditing ) {
+			this.markDirty(scheduler, 4, 3);
+			Thread.sleep(50);
+			flushedWhileEditing = !this.getFlushed().isEmpty();
+		}
+
+		assertThat(flushedWhileEditing, is(true));
+	}
+
+	private void markDirty(final DirtyRegionScheduler scheduler, final int offset, final int length) throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				scheduler.markDirty(offset, length);
+			}
+		});
+	}
+
+	private List<String> getFlushed() throws Exception {
+		final List<String> flushed = new ArrayList<String>();
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				flushed.addAll(DirtyRegionSchedulerTest.this.flushed);
+			}
+		});
+		return flushed;
+	}
+
+	private boolean waitForFlush(long timeout) throws Exception {
+		long deadline = System.currentTimeMillis() + timeout;
+		while ( this.getFlushed().isEmpty() && System.currentTimeMillis() < deadline ) {
+			Thread.sleep(10);
+		}
+		return !this.getFlushed().isEmpty();
+	}
+}
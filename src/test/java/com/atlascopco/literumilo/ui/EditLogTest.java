@@ -0,0 +1,66 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class EditLogTest {
+
+	@Test
+	public void testRebase() {
+		EditLog log = new EditLog();
+		int generation = log.getGeneration();
+
+		// "aaa bbb ccc" -> "xx aaa bbb ccc" -> "xx aaa bbb c"
+		log.recordInsert(0, 3);
+		log.recordRemove(13, 2);
+
+		int[] bbb = { 4, 6 };
+		assertThat(log.rebase(bbb, generation), is(true));
+		assertThat(bbb[0], is(7));
+		assertThat(bbb[1], is(9));
+
+		int[] ccc = { 8, 10 };
+		assertThat(log.rebase(ccc, generation), is(false));
+
+		// Typing right after a word changes it
+		int afterInsert = log.getGeneration();
+		log.recordInsert(10, 1);
+		int[] moved = { 7, 9 };
+		assertThat(log.rebase(moved, afterInsert), is(false));
+
+		log.trim();
+		assertThat(log.rebase(new int[] { 0, 1 }, generation), is(false));
+		assertThat(log.rebase(new int[] { 0, 1 }, log.getGeneration()), is(true));
+	}
+
+	@Test
+	public void testMap() {
+		EditLog log = new EditLog();
+		int generation = log.getGeneration();
+
+		log.recordInsert(5, 2);
+		log.recordRemove(10, 4);
+
+		assertThat(log.map(5, false, generation), is(5));
+		assertThat(log.map(5, true, generation), is(7));
+		assertThat(log.map(11, false, generation), is(10));
+		assertThat(log.map(20, false, generation), is(18));
+	}
+}
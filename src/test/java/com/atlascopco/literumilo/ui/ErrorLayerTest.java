@@ -0,0 +1,186 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.awt.Color;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter.HighlightPainter;
+import javax.swing.text.JTextComponent;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlascopco.literumilo.tokenizer.WordToken;
+import com.atlascopco.literumilo.ui.painters.SquigglyUnderlineHighlightPainter;
+
+public class ErrorLayerTest {
+
+	private static final String LINE = "the cat sat on teh mat\n";
+
+	private JTextArea component;
+	/**
+	 * The start of each word that was painted.
+	 */
+	private List<Integer> painted;
+	private ErrorLayer errorLayer;
+
+	@Before
+	public void setUp() {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			text.append(LINE);
+		}
+		this.component = new JTextArea(text.toString());
+		this.component.setSize(this.component.getPreferredSize());
+
+		this.painted = new ArrayList<Integer>();
+		this.errorLayer = new ErrorLayer(this.component, new HighlightIndex(), new HighlightPainter() {
+			@Override
+			public void paint(Graphics g, int p0, int p1, Shape bounds, JTextComponent c) {
+				ErrorLayerTest.this.painted.add(p0);
+			}
+		});
+	}
+
+	@Test
+	public void testOnlyWordsBeingPaintedAreLookedUp() throws Exception {
+		final int top = LINE.indexOf("teh");
+		final int bottom = 50 * LINE.length() + top;
+
+		this.onEdt(new Callable<Void>() {
+			@Override
+			public Void call() throws BadLocationException {
+				ErrorLayer layer = ErrorLayerTest.this.errorLayer;
+				WordToken first = token(top);
+				layer.add(first);
+				layer.add(token(bottom));
+
+				assertThat(layer.isHighlighted(top, top), is(true));
+				assertThat(layer.isHighlighted(top+3, bottom-1), is(false));
+
+				// Only the first line
+				Rectangle line = ErrorLayerTest.this.component.modelToView(0);
+				ErrorLayerTest.this.paint(layer, new Rectangle(0, 0, ErrorLayerTest.this.component.getWidth(), line.height));
+				assertThat(ErrorLayerTest.this.painted.toString(), is("["+top+"]"));
+
+				ErrorLayerTest.this.painted.clear();
+				layer.remove(first);
+				ErrorLayerTest.this.paint(layer, null);
+				assertThat(ErrorLayerTest.this.painted.toString(), is("["+bottom+"]"));
+
+				ErrorLayerTest.this.painted.clear();
+				layer.clear();
+				ErrorLayerTest.this.paint(layer, null);
+				assertThat(ErrorLayerTest.this.painted.isEmpty(), is(true));
+				return null;
+			}
+		});
+	}
+
+	@Test
+	public void testCoexistsWithOtherHighlights() throws Exception {
+		this.onEdt(new Callable<Void>() {
+			@Override
+			public Void call() throws BadLocationException {
+				JTextArea component = ErrorLayerTest.this.component;
+				Object other = component.getHighlighter().addHighlight(4, 7, new DefaultHighlighter.DefaultHighlightPainter(Color.YELLOW));
+
+				ErrorLayerTest.this.errorLayer.install();
+				ErrorLayerTest.this.errorLayer.install();
+				assertThat(component.getHighlighter().getHighlights().length, is(2));
+
+				ErrorLayerTest.this.errorLayer.uninstall();
+				assertThat(component.getHighlighter().getHighlights().length, is(1));
+				assertThat(component.getHighlighter().getHighlights()[0] == other, is(true));
+				return null;
+			}
+		});
+	}
+
+	@Test
+	public void testPaintCacheFollowsThePainter() throws Exception {
+		this.onEdt(new Callable<Void>() {
+			@Override
+			public Void call() throws BadLocationException {
+				ErrorLayer layer = ErrorLayerTest.this.errorLayer;
+				layer.add(token(LINE.indexOf("teh")));
+				ErrorLayerTest.this.paint(layer, null);
+				assertThat(layer.getPaintCache(), nullValue());
+
+				layer.setPainter(SquigglyUnderlineHighlightPainter.forColor(Color.RED));
+				ErrorLayerTest.this.paint(layer, null);
+				assertThat(layer.getPaintCache(), notNullValue());
+
+				layer.setPainter(new DefaultHighlighter.DefaultHighlightPainter(Color.RED));
+				assertThat(layer.getPaintCache(), nullValue());
+
+				layer.setPainter(SquigglyUnderlineHighlightPainter.forColor(Color.RED));
+				ErrorLayerTest.this.paint(layer, null);
+				layer.uninstall();
+				assertThat(layer.getPaintCache(), nullValue());
+				return null;
+			}
+		});
+	}
+
+	private WordToken token(int offset) throws BadLocationException {
+		WordToken token = new WordToken(this.component.getDocument(), offset, offset+2, "teh");
+		token.anchor();
+		return token;
+	}
+
+	/**
+	 * Paints the layer the way the component's highlighter would.
+	 *
+	 * @param layer the layer to paint
+	 * @param clip the area to paint, or null to paint all of it
+	 */
+	private void paint(ErrorLayer layer, Rectangle clip) {
+		Rectangle bounds = new Rectangle(0, 0, this.component.getWidth(), this.component.getHeight());
+		BufferedImage image = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.setClip(clip != null ? clip : bounds);
+			layer.paint(g, 0, this.component.getDocument().getLength(), bounds, this.component);
+		} finally {
+			g.dispose();
+		}
+	}
+
+	private <T> T onEdt(Callable<T> callable) throws Exception {
+		FutureTask<T> task = new FutureTask<T>(callable);
+		SwingUtilities.invokeAndWait(task);
+		return task.get();
+	}
+}
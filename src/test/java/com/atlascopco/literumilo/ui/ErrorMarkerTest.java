@@ -0,0 +1,152 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.FutureTask;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.DefaultHighlighter;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlascopco.literumilo.MockSpellchecker;
+import com.atlascopco.literumilo.spellchecker.DictionaryNotReadyException;
+import com.atlascopco.literumilo.tokenizer.DefaultTokenizer;
+import com.atlascopco.literumilo.tokenizer.WordToken;
+
+public class ErrorMarkerTest {
+
+	private JTextArea component;
+	private ErrorLayer errorLayer;
+	private EditLog editLog;
+	private MockSpellchecker spellchecker;
+
+	@Before
+	public void setUp() {
+		this.component = new JTextArea();
+		this.errorLayer = new ErrorLayer(this.component, new HighlightIndex(), new DefaultHighlighter.DefaultHighlightPainter(Color.RED));
+		this.editLog = new EditLog();
+		this.spellchecker = new MockSpellchecker();
+		this.spellchecker.addDictionary(Locale.ENGLISH, "the", "cat", "sat", "on", "mat");
+	}
+
+	@Test
+	public void testForegroundCheckIsFinished() throws Exception {
+		this.component.setText("the cta sat on teh mat");
+
+		final List<String> misspelled = new ArrayList<String>();
+		final boolean[] finished = new boolean[1];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				ErrorMarker marker = ErrorMarkerTest.this.newErrorMarker(0, ErrorMarkerTest.this.component.getDocument().getLength());
+
+				for (WordToken token : marker.doInForeground()) {
+					misspelled.add(token.getToken());
+				}
+				finished[0] = marker.isFinished();
+			}
+		});
+
+		assertThat(misspelled.toString(), is("[cta, teh]"));
+		assertThat(finished[0], is(true));
+		assertThat(this.errorLayer.isHighlighted(4, 6), is(true));
+		assertThat(this.errorLayer.isHighlighted(0, 2), is(false));
+	}
+
+	@Test
+	public void testDictionaryNotReady() throws Exception {
+		this.spellchecker = new MockSpellchecker() {
+			@Override
+			public boolean misspelled(String word) {
+				throw new DictionaryNotReadyException(Locale.ENGLISH, new FutureTask<Void>(new Runnable() {
+					@Override
+					public void run() {
+					}
+				}, null));
+			}
+		};
+		this.spellchecker.addDictionary(Locale.ENGLISH, "the");
+		this.component.setText("the cta sat on teh mat");
+
+		final List<WordToken> misspelled = new ArrayList<WordToken>();
+		final boolean[] finished = new boolean[1];
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				ErrorMarker marker = ErrorMarkerTest.this.newErrorMarker(0, ErrorMarkerTest.this.component.getDocument().getLength());
+
+				// Nothing is checked, rather than the exception escaping or every word being taken to be correct
+				misspelled.addAll(marker.doInForeground());
+				finished[0] = marker.isFinished();
+			}
+		});
+
+		assertThat(misspelled.isEmpty(), is(true));
+		assertThat(finished[0], is(true));
+	}
+
+	@Test
+	public void testParallelCheckFindsTheSameWords() throws Exception {
+		// Long enough for several chunks, with words across the boundaries between them
+		StringBuilder text = new StringBuilder();
+		int sentences = 0;
+		while ( text.length() < 100 * 1024 ) {
+			text.append("the cat sat on teh mat ");
+			sentences++;
+		}
+		this.component.setText(text.toString());
+
+		List<WordToken> serial = this.markInForeground(false);
+		List<WordToken> parallel = this.markInForeground(true);
+
+		assertThat(serial.size(), is(sentences));
+		assertThat(parallel.size(), is(serial.size()));
+		for (int i = 0; i < serial.size(); i++) {
+			assertThat(parallel.get(i).getToken(), is(serial.get(i).getToken()));
+			assertThat(parallel.get(i).getStart(), is(serial.get(i).getStart()));
+		}
+		int last = text.lastIndexOf("teh");
+		assertThat(this.errorLayer.isHighlighted(last, last+2), is(true));
+	}
+
+	private List<WordToken> markInForeground(final boolean parallel) throws Exception {
+		final List<WordToken> misspelled = new ArrayList<WordToken>();
+		SwingUtilities.invokeAndWait(new Runnable() {
+			@Override
+			public void run() {
+				ErrorMarker marker = ErrorMarkerTest.this.newErrorMarker(0, ErrorMarkerTest.this.component.getDocument().getLength());
+				marker.setParallel(parallel);
+
+				misspelled.addAll(marker.doInForeground());
+			}
+		});
+		return misspelled;
+	}
+
+	private ErrorMarker newErrorMarker(int offset, int length) {
+		return new ErrorMarker(offset, length, this.component, this.errorLayer, this.editLog, this.spellchecker, new DefaultTokenizer());
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Test;
+
+import com.atlascopco.literumilo.tokenizer.WordToken;
+
+public class HighlightIndexTest {
+
+	@Test
+	public void testLookupsFollowEdits() throws BadLocationException {
+		PlainDocument document = new PlainDocument();
+		document.insertString(0, "aaa bbb ccc ddd", null);
+
+		HighlightIndex index = new HighlightIndex();
+		WordToken bbb = token(document, 4, "bbb");
+		WordToken ddd = token(document, 12, "ddd");
+		index.add(ddd);
+		index.add(bbb);
+
+		assertThat(index.getTokenAt(5), is(bbb));
+		assertThat(index.getTokenAt(7), nullValue());
+
+		document.insertString(0, "xx ", null);
+
+		assertThat(index.getTokenAt(5), nullValue());
+		assertThat(index.getTokenAt(8), is(bbb));
+		assertThat(index.getTokenAt(15), is(ddd));
+		assertThat(index.getIntersecting(9, 15).size(), is(2));
+		assertThat(index.getIntersecting(10, 14).size(), is(0));
+
+		// Collapse both words onto the same offset
+		document.remove(7, 11);
+
+		assertThat(index.remove(ddd), is(true));
+		assertThat(index.remove(ddd), is(false));
+		assertThat(index.getAll().size(), is(1));
+		assertThat(index.getAll().get(0), is(bbb));
+	}
+
+	@Test
+	public void testManyTokens() throws BadLocationException {
+		StringBuilder text = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			text.append("word ");
+		}
+
+		PlainDocument document = new PlainDocument();
+		document.insertString(0, text.toString(), null);
+
+		HighlightIndex index = new HighlightIndex();
+		List<WordToken> tokens = new ArrayList<WordToken>();
+		for (int i = 999; i >= 0; i--) {
+			WordToken token = token(document, i * 5, "word");
+			tokens.add(0, token);
+			index.add(token);
+		}
+
+		for (int i = 0; i < 1000; i += 2) {
+			index.remove(tokens.get(i));
+		}
+
+		assertThat(index.size(), is(500));
+		assertThat(index.getTokenAt(0), nullValue());
+		assertThat(index.getTokenAt(7), is(tokens.get(1)));
+		assertThat(index.getIntersecting(0, 4999).size(), is(500));
+
+		List<WordToken> all = index.getAll();
+		for (int i = 0; i < all.size(); i++) {
+			assertThat(all.get(i), is(tokens.get(i * 2 + 1)));
+		}
+	}
+
+	private static WordToken token(PlainDocument document, int offset, String word) throws BadLocationException {
+		WordToken token = new WordToken();
+		token.setStartOffset(document.createPosition(offset));
+		token.setEndOffset(document.createPosition(offset + word.length() - 1));
+		token.setToken(word);
+		return token;
+	}
+}
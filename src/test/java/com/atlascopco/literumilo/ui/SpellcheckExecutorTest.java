@@ -0,0 +1,79 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.atlascopco.literumilo.ui.SpellcheckExecutor.Priority;
+
+public class SpellcheckExecutorTest {
+
+	@Test
+	public void testPriorityAndSupersession() throws InterruptedException {
+		SpellcheckExecutor executor = new SpellcheckExecutor(1);
+		final CountDownLatch blocker = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(3);
+		final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+
+		// Keep the only thread busy while the rest of the work is queued
+		executor.execute(new Object(), Priority.FOCUSED, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					blocker.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+
+		Object hidden = new Object();
+		FutureTask<Void> superseded = new FutureTask<Void>(record(order, "superseded", finished), null);
+		executor.execute(hidden, Priority.HIDDEN, superseded);
+		executor.execute(hidden, Priority.HIDDEN, record(order, "hidden", finished));
+		executor.execute(new Object(), Priority.VISIBLE, record(order, "visible", finished));
+		executor.execute(new Object(), Priority.FOCUSED, record(order, "focused", finished));
+
+		blocker.countDown();
+		finished.await(5, TimeUnit.SECONDS);
+
+		assertThat(order, is(Arrays.asList("focused", "visible", "hidden")));
+		assertThat(superseded.isCancelled(), is(true));
+
+		executor.shutdown();
+	}
+
+	private static Runnable record(final List<String> order, final String name, final CountDownLatch finished) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				order.add(name);
+				finished.countDown();
+			}
+		};
+	}
+}
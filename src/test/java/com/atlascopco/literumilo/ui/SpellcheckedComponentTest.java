@@ -0,0 +1,178 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlascopco.literumilo.MockSpellchecker;
+import com.atlascopco.literumilo.tokenizer.DefaultTokenizer;
+
+public class SpellcheckedComponentTest {
+
+	private static final String LINE = "the cat sat on the mat\n";
+	private static final int LINES = 2000;
+
+	private JTextArea component;
+	private JScrollPane scrollPane;
+	private SpellcheckedComponent spellcheckedComponent;
+
+	@Before
+	public void setUp() throws Exception {
+		this.onEdt(new Callable<Void>() {
+			@Override
+			public Void call() {
+				StringBuilder text = new StringBuilder();
+				for (int i = 0; i < LINES; i++) {
+					text.append(LINE);
+				}
+				// A misspelled word at the start, in the middle and at the end
+				text.replace(0, 3, "teh");
+				text.replace(LINES / 2 * LINE.length(), LINES / 2 * LINE.length() + 3, "teh");
+				text.replace((LINES - 1) * LINE.length(), (LINES - 1) * LINE.length() + 3, "teh");
+
+				MockSpellchecker spellchecker = new MockSpellchecker();
+				spellchecker.addDictionary(Locale.ENGLISH, "the", "cat", "sat", "on", "mat");
+
+				SpellcheckedComponentTest.this.component = new JTextArea(text.toString());
+				SpellcheckedComponentTest.this.scrollPane = new JScrollPane(SpellcheckedComponentTest.this.component);
+				SpellcheckedComponentTest.this.spellcheckedComponent = new SpellcheckedComponent(SpellcheckedComponentTest.this.component, spellchecker, new DefaultTokenizer(), false);
+				return null;
+			}
+		});
+	}
+
+	@Test
+	public void testViewportIsCheckedFirst() throws Exception {
+		this.spellcheckedComponent.setViewportFirstChecking(true);
+
+		boolean[] highlighted = this.onEdt(new Callable<boolean[]>() {
+			@Override
+			public boolean[] call() {
+				SpellcheckedComponentTest.this.layOut(300);
+				SpellcheckedComponentTest.this.spellcheckedComponent.initialize();
+				SpellcheckedComponentTest.this.spellcheckedComponent.dictionaryChanged();
+
+				// The rest of the document is only highlighted once the EDT is free again
+				return SpellcheckedComponentTest.this.getHighlighted();
+			}
+		});
+
+		assertThat(highlighted[0], is(true));
+		assertThat(highlighted[2], is(false));
+
+		highlighted = this.waitForHighlights(true, true, true);
+		assertThat(highlighted[1], is(true));
+		assertThat(highlighted[2], is(true));
+	}
+
+	@Test
+	public void testOnlyVisitedPartsAreCheckedSparsely() throws Exception {
+		this.spellcheckedComponent.setSparseCheckingThreshold(LINE.length() * 100);
+
+		boolean editable = this.onEdt(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				// Tall enough that each part is checked in the background
+				SpellcheckedComponentTest.this.layOut(2000);
+				SpellcheckedComponentTest.this.spellcheckedComponent.initialize();
+				SpellcheckedComponentTest.this.spellcheckedComponent.dictionaryChanged();
+				return SpellcheckedComponentTest.this.component.isEditable();
+			}
+		});
+
+		assertThat(editable, is(true));
+		assertThat(this.waitForHighlights(true, false, false)[0], is(true));
+
+		editable = this.onEdt(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				// Scroll to the end
+				Point end = new Point(0, SpellcheckedComponentTest.this.component.getHeight() - 2000);
+				SpellcheckedComponentTest.this.scrollPane.getViewport().setViewPosition(end);
+				return SpellcheckedComponentTest.this.component.isEditable();
+			}
+		});
+
+		assertThat(editable, is(true));
+
+		boolean[] highlighted = this.waitForHighlights(true, false, true);
+		assertThat(highlighted[0], is(true));
+		assertThat(highlighted[2], is(true));
+		// Nothing between the two parts that were visited was checked
+		assertThat(highlighted[1], is(false));
+	}
+
+	private void layOut(int height) {
+		this.scrollPane.setSize(300, height);
+		this.scrollPane.doLayout();
+		this.component.setSize(this.component.getPreferredSize());
+		this.scrollPane.getViewport().doLayout();
+	}
+
+	/**
+	 * @return whether each of the misspelled words at the start, the middle and the end is highlighted
+	 */
+	private boolean[] getHighlighted() {
+		return new boolean[] {
+				this.spellcheckedComponent.getTokenByOffset(0) != null,
+				this.spellcheckedComponent.getTokenByOffset(LINES / 2 * LINE.length()) != null,
+				this.spellcheckedComponent.getTokenByOffset((LINES - 1) * LINE.length()) != null };
+	}
+
+	private boolean[] waitForHighlights(boolean... expected) throws Exception {
+		long deadline = System.currentTimeMillis() + 10000;
+		boolean[] highlighted;
+
+		do {
+			Thread.sleep(10);
+			highlighted = this.onEdt(new Callable<boolean[]>() {
+				@Override
+				public boolean[] call() {
+					return SpellcheckedComponentTest.this.getHighlighted();
+				}
+			});
+		} while ( !Arrays.equals(highlighted, expected) && System.currentTimeMillis() < deadline );
+
+		// Give anything that should not be running a chance to show itself
+		Thread.sleep(100);
+		return this.onEdt(new Callable<boolean[]>() {
+			@Override
+			public boolean[] call() {
+				return SpellcheckedComponentTest.this.getHighlighted();
+			}
+		});
+	}
+
+	private <T> T onEdt(Callable<T> callable) throws Exception {
+		FutureTask<T> task = new FutureTask<T>(callable);
+		SwingUtilities.invokeAndWait(task);
+		return task.get();
+	}
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.JMenuItem;
+import javax.swing.JPopupMenu;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlascopco.literumilo.MockSpellchecker;
+import com.atlascopco.literumilo.spellchecker.SuggestionCache;
+import com.atlascopco.literumilo.tokenizer.WordToken;
+
+public class SuggestionLoaderTest {
+
+	private PlainDocument document;
+	private WordToken token;
+	private JPopupMenu menu;
+	private JMenuItem placeholder;
+	private CountDownLatch started;
+	private CountDownLatch release;
+	private MockSpellchecker spellchecker;
+	private SuggestionCache suggestionCache;
+
+	@Before
+	public void setUp() throws BadLocationException {
+		this.document = new PlainDocument();
+		this.document.insertString(0, "teh cat", null);
+		this.token = new WordToken(this.document, 0, 3, "teh");
+		this.menu = new JPopupMenu();
+		this.placeholder = new JMenuItem("Loading suggestions...");
+		this.menu.add(this.placeholder);
+		this.started = new CountDownLatch(1);
+		this.release = new CountDownLatch(1);
+		// Suggestions only arrive once the test lets them
+		this.spellchecker = new MockSpellchecker() {
+			@Override
+			public List<String> suggest(String word) {
+				SuggestionLoaderTest.this.started.countDown();
+				try {
+					SuggestionLoaderTest.this.release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return super.suggest(word);
+			}
+		};
+		this.spellchecker.addDictionary(Locale.ENGLISH, "the");
+		this.suggestionCache = new SuggestionCache();
+	}
+
+	@Test
+	public void testSuggestionsReplacePlaceholder() throws Exception {
+		SuggestionLoader loader = this.start();
+		this.release.countDown();
+
+		assertThat(this.waitUntil(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return SuggestionLoaderTest.this.menu.getComponentIndex(SuggestionLoaderTest.this.placeholder) < 0;
+			}
+		}, 5000), is(true));
+		assertThat(loader.isCancelled(), is(false));
+		assertThat(this.onEdt(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				return SuggestionLoaderTest.this.menu.getComponentCount();
+			}
+		}), is(1));
+		assertThat(this.token.getSuggestions().toString(), is("[the]"));
+	}
+
+	@Test
+	public void testDeadline() throws Exception {
+		SuggestionLoader loader = this.start();
+
+		// The menu gives up on them, rather than waiting for as long as they take
+		assertThat(this.waitUntil(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return "No suggestions available".equals(SuggestionLoaderTest.this.placeholder.getText());
+			}
+		}, 5000), is(true));
+		assertThat(loader.isCancelled(), is(true));
+
+		// They are still remembered for the next time once they arrive
+		this.release.countDown();
+		assertThat(this.waitUntil(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return SuggestionLoaderTest.this.suggestionCache.contains(SuggestionLoaderTest.this.spellchecker, Locale.ENGLISH, "teh");
+			}
+		}, 5000), is(true));
+		assertThat(this.menu.getComponentIndex(this.placeholder), is(0));
+	}
+
+	@Test
+	public void testAbandon() throws Exception {
+		final SuggestionLoader loader = this.start();
+		// Abandoned while the spellchecker is working on them
+		assertThat(this.started.await(5, TimeUnit.SECONDS), is(true));
+		this.onEdt(new Callable<Void>() {
+			@Override
+			public Void call() {
+				loader.abandon();
+				return null;
+			}
+		});
+		this.release.countDown();
+
+		assertThat(this.waitUntil(new Callable<Boolean>() {
+			@Override
+			public Boolean call() {
+				return SuggestionLoaderTest.this.suggestionCache.contains(SuggestionLoaderTest.this.spellchecker, Locale.ENGLISH, "teh");
+			}
+		}, 5000), is(true));
+		// Let anything that was queued on the EDT run
+		this.onEdt(new Callable<Void>() {
+			@Override
+			public Void call() {
+				return null;
+			}
+		});
+
+		assertThat(loader.isCancelled(), is(true));
+		assertThat(this.menu.getComponentIndex(this.placeholder), is(0));
+		assertThat(this.placeholder.getText(), is("Loading suggestions..."));
+		assertThat(this.token.getSuggestions() == null || this.token.getSuggestions().isEmpty(), is(true));
+	}
+
+	private SuggestionLoader start() throws Exception {
+		return this.onEdt(new Callable<SuggestionLoader>() {
+			@Override
+			public SuggestionLoader call() {
+				SuggestionLoader loader = new SuggestionLoader(SuggestionLoaderTest.this.menu, SuggestionLoaderTest.this.placeholder,
+						SuggestionLoaderTest.this.document, SuggestionLoaderTest.this.token, SuggestionLoaderTest.this.spellchecker,
+						SuggestionLoaderTest.this.suggestionCache);
+				loader.start(null);
+				return loader;
+			}
+		});
+	}
+
+	private boolean waitUntil(Callable<Boolean> condition, long timeout) throws Exception {
+		long deadline = System.currentTimeMillis() + timeout;
+		while ( !this.onEdt(condition) && System.currentTimeMillis() < deadline ) {
+			Thread.sleep(10);
+		}
+		return this.onEdt(condition);
+	}
+
+	private <T> T onEdt(Callable<T> callable) throws Exception {
+		FutureTask<T> task = new FutureTask<T>(callable);
+		SwingUtilities.invokeAndWait(task);
+		return task.get();
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ * Copyright [yyyy] Atlas Copco Drilling Solutions
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * 		http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.atlascopco.literumilo.ui.painters;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.atlascopco.literumilo.ui.painters.SquigglyUnderlineHighlightPainter.PaintCache;
+
+public class SquigglyUnderlineHighlightPainterTest {
+
+	private JTextArea component;
+	private SquigglyUnderlineHighlightPainter painter;
+
+	@Before
+	public void setUp() {
+		this.component = new JTextArea("the cat sat on teh mat");
+		this.component.setSize(300, 100);
+		this.painter = new SquigglyUnderlineHighlightPainter(Color.RED);
+	}
+
+	@Test
+	public void testUsualScalesAreNotCached() throws Exception {
+		final PaintCache cache = this.painter.createCache(this.component);
+
+		assertThat(this.onEdt(new Callable<Integer>() {
+			@Override
+			public Integer call() {
+				SquigglyUnderlineHighlightPainterTest.this.paint(1.0, cache);
+				SquigglyUnderlineHighlightPainterTest.this.paint(2.0, cache);
+				return cache.getTileCount();
+			}
+		}), is(0));
+	}
+
+	@Test
+	public void testUnusualScalesAreCached() throws Exception {
+		final PaintCache cache = this.painter.createCache(this.component);
+
+		this.onEdt(new Callable<Void>() {
+			@Override
+			public Void call() {
+				SquigglyUnderlineHighlightPainterTest.this.paint(1.5, cache);
+				assertThat(cache.getTileCount(), is(1));
+				SquigglyUnderlineHighlightPainterTest.this.paint(1.5, cache);
+				assertThat(cache.getTileCount(), is(1));
+				SquigglyUnderlineHighlightPainterTest.this.paint(1.25, cache);
+				assertThat(cache.getTileCount(), is(2));
+
+				// However many scales it is painted at, only a few tiles are kept
+				for (int i = 1; i <= 20; i++) {
+					SquigglyUnderlineHighlightPainterTest.this.paint(1 + i / 32.0, cache);
+				}
+				assertThat(cache.getTileCount() <= 8, is(true));
+
+				cache.dispose();
+				assertThat(cache.getTileCount(), is(0));
+				return null;
+			}
+		});
+	}
+
+	@Test
+	public void testSquiggleIsPainted() throws Exception {
+		final PaintCache cache = this.painter.createCache(this.component);
+
+		for (final double scale : new double[] { 1.0, 1.5 }) {
+			BufferedImage image = this.onEdt(new Callable<BufferedImage>() {
+				@Override
+				public BufferedImage call() {
+					return SquigglyUnderlineHighlightPainterTest.this.paint(scale, cache);
+				}
+			});
+
+			assertThat("scale "+scale, isPainted(image), is(true));
+		}
+	}
+
+	@Test
+	public void testGeometryIsForgottenWhenTheTextMoves() throws Exception {
+		final PaintCache cache = this.painter.createCache(this.component);
+
+		this.onEdt(new Callable<Void>() {
+			@Override
+			public Void call() throws BadLocationException {
+				SquigglyUnderlineHighlightPainterTest.this.paint(1.0, cache);
+				SquigglyUnderlineHighlightPainterTest.this.paint(1.0, cache);
+				assertThat(cache.getGeometryCount(), is(1));
+
+				SquigglyUnderlineHighlightPainterTest.this.component.getDocument().insertString(0, "oh ", null);
+				assertThat(cache.getGeometryCount(), is(0));
+
+				SquigglyUnderlineHighlightPainterTest.this.paint(1.0, cache);
+				assertThat(cache.getGeometryCount(), is(1));
+				SquigglyUnderlineHighlightPainterTest.this.component.setLineWrap(true);
+				assertThat(cache.getGeometryCount(), is(0));
+
+				SquigglyUnderlineHighlightPainterTest.this.paint(1.0, cache);
+				SquigglyUnderlineHighlightPainterTest.this.component.setSize(200, 100);
+				return null;
+			}
+		});
+
+		// The component is told that it was resized once the EDT gets to the event
+		this.onEdt(new Callable<Void>() {
+			@Override
+			public Void call() {
+				assertThat(cache.getGeometryCount(), is(0));
+
+				// The document is listened to again once it has been painted
+				SquigglyUnderlineHighlightPainterTest.this.component.setDocument(new PlainDocument());
+				SquigglyUnderlineHighlightPainterTest.this.component.setText("the cat sat on teh mat");
+				SquigglyUnderlineHighlightPainterTest.this.paint(1.0, cache);
+				assertThat(cache.getGeometryCount(), is(1));
+
+				SquigglyUnderlineHighlightPainterTest.this.component.setText("teh");
+				assertThat(cache.getGeometryCount(), is(0));
+
+				cache.dispose();
+				return null;
+			}
+		});
+	}
+
+	@Test(expected=IllegalArgumentException.class)
+	public void testCacheOfAnotherComponentIsRejected() throws Exception {
+		PaintCache cache = this.painter.createCache(new JTextArea());
+
+		BufferedImage image = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			this.painter.paint(g, 0, 3, new Rectangle(0, 0, 300, 100), this.component, cache);
+		} finally {
+			g.dispose();
+		}
+	}
+
+	/**
+	 * Paints the highlight under "teh" at the given scale.
+	 *
+	 * @param scale the scale to paint at
+	 * @param cache the cache to paint with
+	 * @return the image that it was painted on
+	 */
+	private BufferedImage paint(double scale, PaintCache cache) {
+		BufferedImage image = new BufferedImage((int) Math.ceil(300 * scale), (int) Math.ceil(100 * scale), BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			g.scale(scale, scale);
+			this.painter.paint(g, 15, 18, new Rectangle(0, 0, 300, 100), this.component, cache);
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+	private static boolean isPainted(BufferedImage image) {
+		for (int y = 0; y < image.getHeight(); y++) {
+			for (int x = 0; x < image.getWidth(); x++) {
+				if ( (image.getRGB(x, y) >>> 24) != 0 ) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private <T> T onEdt(Callable<T> callable) throws Exception {
+		FutureTask<T> task = new FutureTask<T>(callable);
+		SwingUtilities.invokeAndWait(task);
+		return task.get();
+	}
+}